@@ -0,0 +1,33 @@
+import axios from "axios";
+import { API_BASE_URL } from "./client";
+
+// Delta poll of a trip chat.
+// `state` ({ etag, lastId }) is kept by the caller between polls (e.g. in a ref).
+// Returns only messages newer than state.lastId, or [] when the server answered 304.
+export async function pollTripMessages(tripId, token, state) {
+  const headers = { Authorization: `Bearer ${token}` };
+  if (state.etag) headers["If-None-Match"] = state.etag;
+
+  const response = await axios.get(`${API_BASE_URL}/api/chat/trip/${tripId}/messages`, {
+    headers,
+    params: state.lastId ? { sinceId: state.lastId } : {},
+    validateStatus: (s) => s === 200 || s === 304,
+  });
+  if (response.status === 304) return [];
+
+  state.etag = response.headers?.etag || null;
+  const fresh = Array.isArray(response.data) ? response.data : [];
+  for (const m of fresh) {
+    if (m?.id && m.id > (state.lastId || 0)) state.lastId = m.id;
+  }
+  return fresh;
+}
+
+// Merge messages by id, oldest first (later copies win, e.g. after a read flag change)
+export function mergeTripMessages(current, incoming) {
+  if (!incoming || incoming.length === 0) return current;
+  const byId = new Map();
+  for (const m of current) byId.set(m.id, m);
+  for (const m of incoming) byId.set(m.id, m);
+  return Array.from(byId.values()).sort((a, b) => (a.id || 0) - (b.id || 0));
+}
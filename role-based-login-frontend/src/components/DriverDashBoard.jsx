@@ -83,13 +83,13 @@ function DriverDashBoard() {
     fetchWeatherByDefault();
   }, []);
 
-  // Fetch assigned trips
+  // Fetch assigned trips with their unread counts and last message in one request
   useEffect(() => {
-    const fetchAssignedTrips = async () => {
+    const fetchAssignedTrips = async (initial) => {
       try {
-        setLoadingTrips(true);
+        if (initial) setLoadingTrips(true);
         const response = await axios.get(
-          `${API_BASE_URL}/api/driver/assigned-trips`,
+          `${API_BASE_URL}/api/chat/driver/trips-with-messages`,
           {
             headers: { Authorization: `Bearer ${token}` },
           }
@@ -98,11 +98,13 @@ function DriverDashBoard() {
       } catch (err) {
         console.error("Error fetching assigned trips:", err);
       } finally {
-        setLoadingTrips(false);
+        if (initial) setLoadingTrips(false);
       }
     };
 
-    fetchAssignedTrips();
+    fetchAssignedTrips(true);
+    const interval = setInterval(() => fetchAssignedTrips(false), 15000);
+    return () => clearInterval(interval);
   }, [token]);
 
   const getWeatherEmoji = (code) => {
@@ -196,6 +198,8 @@ function DriverDashBoard() {
                       pickup={trip.pickup}
                       dropLocation={trip.dropLocation}
                       pickupTime={trip.pickupTime}
+                      unreadCount={trip.unreadCount}
+                      lastMessage={trip.lastMessage}
                     />
                   ))}
                 </div>
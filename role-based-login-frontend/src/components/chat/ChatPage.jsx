@@ -1,4 +1,4 @@
-import React, { useEffect, useMemo, useState } from "react";
+import React, { useEffect, useMemo, useRef, useState } from "react";
 import axios from "axios";
 import TopNav from "../common/TopNav";
 import { authStorage } from "../../auth/storage";
@@ -27,6 +27,15 @@ const ChatPage = () => {
   const [loading, setLoading] = useState(false);
   const [sending, setSending] = useState(false);
 
+  // Live STOMP client; when connected, sends go over the socket instead of HTTP
+  const stompRef = useRef(null);
+
+  // Full-text search over my messages (server-ranked, cursor-paginated)
+  const [searchQuery, setSearchQuery] = useState("");
+  const [searchResults, setSearchResults] = useState([]);
+  const [searchCursor, setSearchCursor] = useState(null);
+  const [searching, setSearching] = useState(false);
+
   const loadContactsForMe = async () => {
     try {
       const res = await axios.get(`${API}/api/chat/contacts-for-me`, {
@@ -71,17 +80,23 @@ const ChatPage = () => {
     }
   };
 
-  // Live updates: subscribe to inbox topics (email + role)
+  // Live updates: subscribe to the user inbox and the role inbox
   useEffect(() => {
     const emailKey = String(myEmail || "").trim().toLowerCase();
     const roleKey = String(myRole || "").trim().toLowerCase();
     if (!emailKey && !roleKey) return;
 
     const wsUrl = `${API_BASE_URL}/ws`;
+    const nativeUrl = `${API_BASE_URL.replace(/^http/, "ws")}/ws-native`;
+    // Plain WebSocket first; fall back to SockJS if it never manages to connect
+    let useNative = typeof window !== "undefined" && "WebSocket" in window;
+    let connectedOnce = false;
 
     const client = new Client({
-      // Use SockJS for broader compatibility
-      webSocketFactory: () => new SockJS(wsUrl),
+      webSocketFactory: () =>
+        useNative ? new WebSocket(nativeUrl, ["v12.stomp", "v11.stomp", "v10.stomp"]) : new SockJS(wsUrl),
+      // Authenticated once at CONNECT; SEND frames then need no per-message auth
+      connectHeaders: token ? { Authorization: `Bearer ${token}` } : {},
       reconnectDelay: 2500,
       heartbeatIncoming: 10000,
       heartbeatOutgoing: 10000,
@@ -89,11 +104,17 @@ const ChatPage = () => {
     });
 
     client.onConnect = () => {
-      if (emailKey) {
-        client.subscribe(`/topic/inbox.${emailKey}`, () => {
-          refreshInbox();
-        });
-      }
+      connectedOnce = true;
+      stompRef.current = token ? client : null;
+      // Inbox topics need an authenticated session (the server rejects the subscription otherwise)
+      if (!token) return;
+      client.subscribe("/user/queue/errors", (frame) => {
+        alert(frame.body || "Failed to send message");
+      });
+      // Direct messages arrive on this session's own user destination
+      client.subscribe("/user/queue/inbox", () => {
+        refreshInbox();
+      });
 
       if (roleKey) {
         client.subscribe(`/topic/inbox.role.${roleKey}`, () => {
@@ -102,16 +123,22 @@ const ChatPage = () => {
       }
     };
 
+    client.onDisconnect = () => {
+      stompRef.current = null;
+    };
+
     client.onStompError = (frame) => {
       console.error("Live chat STOMP error", frame?.headers?.message, frame?.body);
     };
 
     client.onWebSocketError = (e) => {
+      if (useNative && !connectedOnce) useNative = false;
       console.error("Live chat websocket error", e);
     };
 
     client.activate();
     return () => {
+      stompRef.current = null;
       try {
         client.deactivate();
       } catch {
@@ -120,7 +147,7 @@ const ChatPage = () => {
     };
     // Intentionally avoid depending on refreshInbox reference changes.
     // eslint-disable-next-line react-hooks/exhaustive-deps
-  }, [myEmail, myRole]);
+  }, [myEmail, myRole, token]);
 
   useEffect(() => {
     loadContactsForMe();
@@ -156,19 +183,23 @@ const ChatPage = () => {
 
     setSending(true);
     try {
-      await axios.post(
-        `${API}/api/chat/messages`,
-        {
-          senderEmail: myEmail,
-          senderRole: myRole,
-          receiverEmail: receiverEmail || null,
-          receiverRole: null,
-          subject: subject || null,
-          content,
-          messageType: inferredMessageType,
-        },
-        { headers: { Authorization: `Bearer ${token}` } }
-      );
+      const payload = {
+        senderEmail: myEmail,
+        senderRole: myRole,
+        receiverEmail: receiverEmail || null,
+        receiverRole: null,
+        subject: subject || null,
+        content,
+        messageType: inferredMessageType,
+      };
+      const live = stompRef.current;
+      if (live && live.connected) {
+        live.publish({ destination: "/app/chat.send", body: JSON.stringify(payload) });
+      } else {
+        await axios.post(`${API}/api/chat/messages`, payload, {
+          headers: { Authorization: `Bearer ${token}` },
+        });
+      }
       setContent("");
       setSubject("");
       await refreshInbox();
@@ -192,6 +223,27 @@ const ChatPage = () => {
     }
   };
 
+  const runSearch = async (e, cursor = null) => {
+    if (e) e.preventDefault();
+    const q = searchQuery.trim();
+    if (!q) return;
+    setSearching(true);
+    try {
+      const res = await axios.get(`${API}/api/chat/search`, {
+        headers: { Authorization: `Bearer ${token}` },
+        params: cursor ? { q, cursor } : { q },
+      });
+      const page = Array.isArray(res.data) ? res.data : [];
+      setSearchResults((prev) => (cursor ? [...prev, ...page] : page));
+      setSearchCursor(res.headers?.["x-next-cursor"] || null);
+    } catch (err) {
+      console.error("Search failed", err);
+      alert(err?.response?.data || "Search failed");
+    } finally {
+      setSearching(false);
+    }
+  };
+
   const currentContacts = contactsByRole[targetRole] || [];
 
   return (
@@ -288,6 +340,59 @@ const ChatPage = () => {
 
           <div style={{ height: 18 }} />
 
+          <div className="card">
+            <div className="cardInner">
+              <h3 style={{ marginTop: 0, color: "var(--gold)", fontWeight: 900 }}>Search messages</h3>
+              <form onSubmit={runSearch} style={{ display: "flex", gap: 10, flexWrap: "wrap" }}>
+                <input
+                  className="input"
+                  style={{ flex: 1, minWidth: 220 }}
+                  placeholder='e.g. gate 7, "main entrance", pickup -cancelled'
+                  value={searchQuery}
+                  onChange={(e) => setSearchQuery(e.target.value)}
+                />
+                <button type="submit" className="btnPrimary" disabled={searching || !searchQuery.trim()}>
+                  {searching ? "Searching..." : "Search"}
+                </button>
+              </form>
+
+              {searchResults.length > 0 && (
+                <>
+                  <div style={{ height: 12 }} />
+                  <table className="table">
+                    <thead>
+                      <tr>
+                        <th>From</th>
+                        <th>To</th>
+                        <th>Subject</th>
+                        <th>Message</th>
+                        <th>Time</th>
+                      </tr>
+                    </thead>
+                    <tbody>
+                      {searchResults.map((m) => (
+                        <tr key={m.id}>
+                          <td>{m.senderEmail}</td>
+                          <td>{m.receiverEmail || m.receiverRole}</td>
+                          <td>{m.subject || "—"}</td>
+                          <td style={{ maxWidth: 420 }}>{m.content}</td>
+                          <td>{m.createdAt}</td>
+                        </tr>
+                      ))}
+                    </tbody>
+                  </table>
+                  {searchCursor && (
+                    <button type="button" className="btnGhost" onClick={() => runSearch(null, searchCursor)} disabled={searching}>
+                      Load more
+                    </button>
+                  )}
+                </>
+              )}
+            </div>
+          </div>
+
+          <div style={{ height: 18 }} />
+
           <div className="card">
             <div className="cardInner">
               <div style={{ display: "flex", alignItems: "center", justifyContent: "space-between", gap: 10, flexWrap: "wrap" }}>
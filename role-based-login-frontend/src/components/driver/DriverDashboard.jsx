@@ -1,5 +1,7 @@
 import React, { useEffect, useState } from "react";
 import axios from "axios";
+import { Client } from "@stomp/stompjs";
+import SockJS from "sockjs-client";
 import TopNav from "../common/TopNav";
 import { authStorage } from "../../auth/storage";
 import LiveMouseBackground from "../common/LiveMouseBackground";
@@ -8,12 +10,21 @@ import TripCommunication from "./TripCommunication";
 
 import { API_BASE_URL } from "../../api/client";
 
+const EFFECT_LABELS = {
+  OTP_SMS: "OTP to employee",
+  DRIVER_SMS: "Trip SMS to you",
+  HR_NOTIFICATION: "HR notified",
+  DRIVER_CHAT: "Assignment message",
+};
+
 const DriverDashboard = () => {
   const [trips, setTrips] = useState([]);
   const [requests, setRequests] = useState([]);
   const [driver, setDriver] = useState(null);
   const [busy, setBusy] = useState(false);
   const [pendingOtpBookingId, setPendingOtpBookingId] = useState(null);
+  // Status of the accepted trip's background work (OTP SMS, driver SMS, HR notification, chat)
+  const [acceptEffects, setAcceptEffects] = useState([]);
 
   const OPENWEATHER_API_KEY = process.env.REACT_APP_OPENWEATHER_API_KEY;
   const DRIVER_LOCATION = "Hyderabad";
@@ -123,34 +134,163 @@ const DriverDashboard = () => {
     }
   };
 
+  // Open requests for this driver's cab type (served from the server's in-memory index)
   const fetchRideRequests = async () => {
     const token = authStorage.getToken();
-    const driverEmail = authStorage.getEmail();
 
     try {
-      const response = await axios.get(`${API_BASE_URL}/api/driver/ride-requests?email=${driverEmail}`, {
+      const response = await axios.get(`${API_BASE_URL}/api/driver/ride-requests/snapshot`, {
         headers: {
           Authorization: `Bearer ${token}`
         }
       });
-      setRequests(Array.isArray(response.data) ? response.data : []);
+      const list = response.data?.requests;
+      setRequests(Array.isArray(list) ? list : []);
     } catch (error) {
       console.error("Error fetching ride requests", error);
       setRequests([]);
     }
   };
 
+  // Live ride-request feed: subscribe to the cab type's topic, then load the snapshot and
+  // replay whatever arrived while it was loading (applying an event twice is harmless).
+  const cabTypeKey = String(driver?.cabType || "").trim().toLowerCase().replace(/[^a-z0-9_-]/g, "-");
+  useEffect(() => {
+    const token = authStorage.getToken();
+    if (!token || !cabTypeKey) return undefined;
+
+    const applyEvent = (list, event) => {
+      if (!event || !event.bookingId) return list;
+      const rest = list.filter((r) => r.id !== event.bookingId);
+      if (event.type === "RIDE_REQUEST_OPENED" && event.request) {
+        return [event.request, ...rest].sort((a, b) => (b.id || 0) - (a.id || 0));
+      }
+      return rest;
+    };
+
+    const wsUrl = `${API_BASE_URL}/ws`;
+    const nativeUrl = `${API_BASE_URL.replace(/^http/, "ws")}/ws-native`;
+    let useNative = typeof window !== "undefined" && "WebSocket" in window;
+    let connectedOnce = false;
+
+    const client = new Client({
+      webSocketFactory: () =>
+        useNative ? new WebSocket(nativeUrl, ["v12.stomp", "v11.stomp", "v10.stomp"]) : new SockJS(wsUrl),
+      connectHeaders: { Authorization: `Bearer ${token}` },
+      reconnectDelay: 2500,
+      heartbeatIncoming: 10000,
+      heartbeatOutgoing: 10000,
+      debug: () => {},
+    });
+
+    client.onConnect = async () => {
+      connectedOnce = true;
+      let buffered = [];
+      client.subscribe(`/topic/ride-requests.${cabTypeKey}`, (frame) => {
+        let event;
+        try {
+          event = JSON.parse(frame.body);
+        } catch {
+          return;
+        }
+        if (buffered) buffered.push(event);
+        else setRequests((prev) => applyEvent(prev, event));
+      });
+      await fetchRideRequests();
+      const pending = buffered;
+      buffered = null;
+      setRequests((prev) => pending.reduce(applyEvent, prev));
+    };
+
+    client.onStompError = (frame) => {
+      console.error("Ride request feed STOMP error", frame?.headers?.message, frame?.body);
+    };
+
+    client.onWebSocketError = (e) => {
+      if (useNative && !connectedOnce) useNative = false;
+      console.error("Ride request feed websocket error", e);
+    };
+
+    client.activate();
+    return () => {
+      try {
+        client.deactivate();
+      } catch {
+        // ignore
+      }
+    };
+    // eslint-disable-next-line react-hooks/exhaustive-deps
+  }, [cabTypeKey]);
+
+  // The OTP and notifications are sent after the accept returns; poll until they all settled
+  useEffect(() => {
+    if (!pendingOtpBookingId) return undefined;
+    let cancelled = false;
+    let timer = null;
+    let attempts = 0;
+    const poll = async () => {
+      try {
+        const res = await axios.get(
+          `${API_BASE_URL}/api/driver/accept-trip/${pendingOtpBookingId}/effects`,
+          { headers: { Authorization: `Bearer ${authStorage.getToken()}` } }
+        );
+        if (cancelled) return;
+        setAcceptEffects(res.data?.effects || []);
+        if (res.data?.finished) return;
+      } catch (e) {
+        if (cancelled) return;
+        if (e.response?.status === 404) return;
+        console.error("Error fetching accept status", e);
+      }
+      attempts += 1;
+      if (attempts < 60) timer = setTimeout(poll, 1000);
+    };
+    poll();
+    return () => {
+      cancelled = true;
+      if (timer) clearTimeout(timer);
+    };
+  }, [pendingOtpBookingId]);
+
+  // While available, report the browser's position (at most every 30s) so auto-dispatch can pick nearby drivers
+  const isAvailable = Boolean(driver?.available);
+  useEffect(() => {
+    if (!isAvailable || !navigator.geolocation) return undefined;
+    let lastSent = 0;
+    const watchId = navigator.geolocation.watchPosition(
+      async (pos) => {
+        const now = Date.now();
+        if (now - lastSent < 30000) return;
+        lastSent = now;
+        try {
+          await axios.put(
+            `${API_BASE_URL}/api/driver/position?lat=${pos.coords.latitude}&lon=${pos.coords.longitude}`,
+            null,
+            { headers: { Authorization: `Bearer ${authStorage.getToken()}` } }
+          );
+        } catch (e) {
+          console.error("Error reporting position", e);
+        }
+      },
+      () => {},
+      { enableHighAccuracy: false, maximumAge: 30000 }
+    );
+    return () => navigator.geolocation.clearWatch(watchId);
+  }, [isAvailable]);
+
   const acceptTrip = async (bookingId) => {
     const token = authStorage.getToken();
     const driverEmail = authStorage.getEmail();
     setBusy(true);
     try {
-      await axios.put(`${API_BASE_URL}/api/driver/accept-trip/${bookingId}?email=${driverEmail}`, null, {
+      const res = await axios.put(`${API_BASE_URL}/api/driver/accept-trip/${bookingId}?email=${driverEmail}`, null, {
         headers: { Authorization: `Bearer ${token}` }
       });
+      setAcceptEffects(res?.data?.effects || []);
       setPendingOtpBookingId(bookingId);
+      // The accepted request disappears through the live feed
+      setRequests((prev) => prev.filter((r) => r.id !== bookingId));
       await fetchMyTrips();
-      await fetchRideRequests();
       await fetchProfile();
     } catch (e) {
       console.error("Error accepting trip", e);
@@ -428,6 +568,21 @@ const DriverDashboard = () => {
                 }}
                 onClick={(e) => e.stopPropagation()}
               >
+                {acceptEffects.length > 0 && (
+                  <ul style={{ listStyle: "none", padding: 0, margin: "0 0 16px", fontSize: 13 }}>
+                    {acceptEffects.map((fx) => (
+                      <li
+                        key={fx.effect}
+                        style={{
+                          color: fx.state === "FAILED" ? "#ff6b6b" : fx.state === "DONE" ? "#69db7c" : "#ccc",
+                        }}
+                      >
+                        {EFFECT_LABELS[fx.effect] || fx.effect}: {fx.state.toLowerCase()}
+                        {fx.detail ? ` (${fx.detail})` : ""}
+                      </li>
+                    ))}
+                  </ul>
+                )}
                 <TripCommunication
                   tripId={pendingOtpBookingId}
                   onOtpVerified={() => {
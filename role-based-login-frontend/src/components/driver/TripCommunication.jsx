@@ -1,10 +1,11 @@
-import React, { useState, useEffect, useCallback } from "react";
+import React, { useState, useEffect, useCallback, useRef } from "react";
 import axios from "axios";
 import { authStorage } from "../../auth/storage";
 import { API_BASE_URL } from "../../api/client";
+import { pollTripMessages, mergeTripMessages } from "../../api/tripChat";
 import { useNavigate } from "react-router-dom";
 
-const TripCommunication = ({ tripId, employeeEmail, employeeName, pickup, dropLocation, pickupTime, onOtpVerified }) => {
+const TripCommunication = ({ tripId, employeeEmail, employeeName, pickup, dropLocation, pickupTime, unreadCount: summaryUnread = 0, lastMessage, onOtpVerified }) => {
   const navigate = useNavigate();
   const token = authStorage.getToken();
   const driverEmail = authStorage.getEmail();
@@ -26,16 +27,19 @@ const TripCommunication = ({ tripId, employeeEmail, employeeName, pickup, dropLo
   const [otpAttempts, setOtpAttempts] = useState(0);
   const [resendCooldown, setResendCooldown] = useState(0);
 
+  // Delta polling state: last seen id + ETag (server answers 304 when nothing changed)
+  const pollRef = useRef({ etag: null, lastId: 0 });
+
+  useEffect(() => {
+    pollRef.current = { etag: null, lastId: 0 };
+    setMessages([]);
+  }, [tripId]);
+
   const loadMessages = useCallback(async () => {
     try {
       setLoading(true);
-      const response = await axios.get(
-        `${API_BASE_URL}/api/chat/trip/${tripId}/messages`,
-        {
-          headers: { Authorization: `Bearer ${token}` },
-        }
-      );
-      setMessages(response.data || []);
+      const fresh = await pollTripMessages(tripId, token, pollRef.current);
+      setMessages((prev) => mergeTripMessages(prev, fresh));
       setError(null);
     } catch (err) {
       console.error("Error loading messages:", err);
@@ -66,12 +70,14 @@ const TripCommunication = ({ tripId, employeeEmail, employeeName, pickup, dropLo
     }
   }, [tripId, token]);
 
+  // The thread is only loaded (and polled every 5 seconds) while it is open;
+  // collapsed, the unread count and last message come from the dashboard summary.
   useEffect(() => {
+    if (!expandedMessages) return undefined;
     loadMessages();
-    // Poll for new messages every 5 seconds
     const interval = setInterval(loadMessages, 5000);
     return () => clearInterval(interval);
-  }, [loadMessages]);
+  }, [loadMessages, expandedMessages]);
 
   // Check OTP verification status on component mount
   useEffect(() => {
@@ -115,7 +121,7 @@ const TripCommunication = ({ tripId, employeeEmail, employeeName, pickup, dropLo
         }
       );
 
-      setMessages([...messages, response.data]);
+      setMessages((prev) => mergeTripMessages(prev, [response.data]));
       setNewMessage("");
       setError(null);
     } catch (err) {
@@ -135,7 +141,7 @@ const TripCommunication = ({ tripId, employeeEmail, employeeName, pickup, dropLo
           headers: { Authorization: `Bearer ${token}` },
         }
       );
-      loadMessages();
+      setMessages((prev) => prev.map((m) => (m.id === messageId ? { ...m, readFlag: true } : m)));
     } catch (err) {
       console.error("Error marking message as read:", err);
     }
@@ -241,7 +247,9 @@ const TripCommunication = ({ tripId, employeeEmail, employeeName, pickup, dropLo
     }
   };
 
-  const unreadCount = messages.filter((m) => !m.readFlag && m.receiverEmail === driverEmail).length;
+  const unreadCount = expandedMessages
+    ? messages.filter((m) => !m.readFlag && m.receiverEmail === driverEmail).length
+    : summaryUnread;
 
   return (
     <div style={{
@@ -276,6 +284,11 @@ const TripCommunication = ({ tripId, employeeEmail, employeeName, pickup, dropLo
               </span>
             )}
           </div>
+          {!expandedMessages && lastMessage && (
+            <div style={{ fontSize: "12px", color: "#bbb", marginTop: "4px" }}>
+              {lastMessage.senderEmail === driverEmail ? "You" : employeeName}: {lastMessage.content}
+            </div>
+          )}
         </div>
         <span style={{ color: "var(--gold)", fontSize: "18px" }}>
           {expandedMessages ? "▼" : "▶"}
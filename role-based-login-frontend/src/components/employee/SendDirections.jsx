@@ -1,7 +1,8 @@
-import React, { useState, useEffect, useCallback } from "react";
+import React, { useState, useEffect, useCallback, useRef } from "react";
 import axios from "axios";
 import { authStorage } from "../../auth/storage";
 import { API_BASE_URL } from "../../api/client";
+import { pollTripMessages, mergeTripMessages } from "../../api/tripChat";
 
 const SendDirections = ({ tripId, driverEmail, driverName, employeeEmail, pickup, dropLocation }) => {
   const token = authStorage.getToken();
@@ -16,16 +17,19 @@ const SendDirections = ({ tripId, driverEmail, driverName, employeeEmail, pickup
   const [messageType, setMessageType] = useState("TRIP_DIRECTION");
   const [expandedMessages, setExpandedMessages] = useState(false);
 
+  // Delta polling state: last seen id + ETag (server answers 304 when nothing changed)
+  const pollRef = useRef({ etag: null, lastId: 0 });
+
+  useEffect(() => {
+    pollRef.current = { etag: null, lastId: 0 };
+    setMessages([]);
+  }, [tripId]);
+
   const loadMessages = useCallback(async () => {
     try {
       setLoading(true);
-      const response = await axios.get(
-        `${API_BASE_URL}/api/chat/trip/${tripId}/messages`,
-        {
-          headers: { Authorization: `Bearer ${token}` },
-        }
-      );
-      setMessages(response.data || []);
+      const fresh = await pollTripMessages(tripId, token, pollRef.current);
+      setMessages((prev) => mergeTripMessages(prev, fresh));
       setError(null);
     } catch (err) {
       console.error("Error loading messages:", err);
@@ -71,7 +75,7 @@ const SendDirections = ({ tripId, driverEmail, driverName, employeeEmail, pickup
         }
       );
 
-      setMessages([...messages, response.data]);
+      setMessages((prev) => mergeTripMessages(prev, [response.data]));
       setNewMessage("");
       setError(null);
     } catch (err) {
@@ -91,7 +95,7 @@ const SendDirections = ({ tripId, driverEmail, driverName, employeeEmail, pickup
           headers: { Authorization: `Bearer ${token}` },
         }
       );
-      loadMessages();
+      setMessages((prev) => prev.map((m) => (m.id === messageId ? { ...m, readFlag: true } : m)));
     } catch (err) {
       console.error("Error marking message as read:", err);
     }
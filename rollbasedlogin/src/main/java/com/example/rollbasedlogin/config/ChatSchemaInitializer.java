@@ -0,0 +1,170 @@
+package com.example.rollbasedlogin.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.rollbasedlogin.service.ChatPartitionService;
+
+/**
+ * Startup backfill for derived chat data (normalized keys, conversation key, conversation summaries).
+ * Hibernate (ddl-auto=update) adds the new columns and indexes, but rows written
+ * before they existed have NULLs there and would be invisible to the indexed
+ * inbox queries. Updates run in small batches so they never hold long locks.
+ *
+ * Also owns the Postgres-only DDL Hibernate can't express (full-text search column and index,
+ * monthly partitions via ChatPartitionService).
+ */
+@Component
+public class ChatSchemaInitializer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatSchemaInitializer.class);
+
+    private final JdbcTemplate jdbc;
+    private final ChatPartitionService partitionService;
+
+    @Value("${app.chat.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.chat.backfill.batch-size:5000}")
+    private int batchSize;
+
+    public ChatSchemaInitializer(JdbcTemplate jdbc, ChatPartitionService partitionService) {
+        this.jdbc = jdbc;
+        this.partitionService = partitionService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        syncMessageSequence();
+        ensureSearchIndex();
+        partitionService.initialize();
+        if (!enabled) return;
+
+        step("Normalized sender/receiver keys",
+                "update chat_message set " +
+                "  sender_email_norm = nullif(lower(trim(sender_email)), ''), " +
+                "  receiver_email_norm = nullif(lower(trim(receiver_email)), ''), " +
+                "  receiver_role_norm = nullif(lower(trim(receiver_role)), '') " +
+                "where id in (select id from chat_message " +
+                "  where (sender_email_norm is null and nullif(trim(sender_email), '') is not null) " +
+                "     or (receiver_email_norm is null and nullif(trim(receiver_email), '') is not null) " +
+                "     or (receiver_role_norm is null and nullif(trim(receiver_role), '') is not null) " +
+                "  limit ?)");
+
+        // Must match ChatMessage.conversationKey: ordered by code point, hence COLLATE "C".
+        step("Computed conversation keys",
+                "update chat_message set conversation_key = " +
+                "  least(sender_email_norm collate \"C\", receiver_email_norm collate \"C\") || '|' || " +
+                "  greatest(sender_email_norm collate \"C\", receiver_email_norm collate \"C\") " +
+                "where id in (select id from chat_message " +
+                "  where conversation_key is null " +
+                "    and sender_email_norm is not null and receiver_email_norm is not null " +
+                "  limit ?)");
+
+        // Only non-partitioned tables can still have these (the conversion fills them)
+        step("Sent timestamps",
+                "update chat_message set sent_at = " + ChatPartitionService.SENT_AT_FROM_CREATED_AT + " " +
+                "where id in (select id from chat_message where sent_at is null limit ?)");
+
+        ddl("drop index if exists idx_chat_sender_receiver_norm_id");
+
+        seedConversationSummaries();
+    }
+
+    /**
+     * One-off: builds conversation_summary from existing messages the first time the
+     * table is empty. Afterwards ChatMessageService keeps it current on every write.
+     */
+    private void seedConversationSummaries() {
+        try {
+            Boolean hasRows = jdbc.queryForObject("select exists(select 1 from conversation_summary)", Boolean.class);
+            if (Boolean.TRUE.equals(hasRows)) return;
+
+            int rows = jdbc.update(
+                    "insert into conversation_summary " +
+                    "  (owner_email, peer_email, conversation_key, last_message_id, unread_count) " +
+                    "select owner, min(peer), conversation_key, max(id), sum(case when unread then 1 else 0 end) " +
+                    "from ( " +
+                    "  select sender_email_norm as owner, receiver_email_norm as peer, conversation_key, id, false as unread " +
+                    "  from chat_message where conversation_key is not null " +
+                    "  union all " +
+                    "  select receiver_email_norm, sender_email_norm, conversation_key, id, not read_flag " +
+                    "  from chat_message where conversation_key is not null and receiver_email_norm <> sender_email_norm " +
+                    ") t group by owner, conversation_key " +
+                    "on conflict (owner_email, conversation_key) do nothing");
+            jdbc.update(
+                    "update conversation_summary s set " +
+                    "  last_preview = left(m.content, 140), last_sender_email = m.sender_email, last_at = m.created_at " +
+                    "from chat_message m where m.id = s.last_message_id and s.last_preview is null");
+            if (rows > 0) log.info("[CHAT-BACKFILL] Seeded {} conversation summaries", rows);
+        } catch (Exception e) {
+            log.warn("[CHAT-BACKFILL] Seeding conversation summaries failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Full-text search (ChatMessageRepository.searchPage): a stored generated tsvector over
+     * subject (weight A) and content (weight B), so Postgres maintains it on every insert
+     * and update, plus a GIN index over it. The 'simple' configuration keeps every word
+     * unstemmed, which suits addresses and names. Adding the column rewrites chat_message once.
+     */
+    private void ensureSearchIndex() {
+        ddl("alter table chat_message add column if not exists search_tsv tsvector " +
+                "generated always as (" +
+                "  setweight(to_tsvector('simple', coalesce(subject, '')), 'A') || " +
+                "  setweight(to_tsvector('simple', coalesce(content, '')), 'B')" +
+                ") stored");
+        ddl("create index if not exists idx_chat_search_tsv on chat_message using gin (search_tsv)");
+    }
+
+    /**
+     * chat_message ids used to come from an IDENTITY column. When switching to
+     * chat_message_seq, move the sequence past the existing ids so new inserts can't collide.
+     * Every allocated id is &lt;= last_value, so last_value &lt; max(id) only happens for rows
+     * written before the switch. The sequence was first created with increment 50 (pooled
+     * ids); ChatMessage now takes one id per nextval, so the increment goes back to 1.
+     */
+    private void syncMessageSequence() {
+        try {
+            jdbc.execute("alter sequence chat_message_seq increment by 1");
+            jdbc.execute(
+                    "select setval('chat_message_seq', (select max(id) from chat_message) + 50) " +
+                    "where (select last_value from chat_message_seq) < (select coalesce(max(id), 0) from chat_message)");
+        } catch (Exception e) {
+            log.warn("[CHAT-SCHEMA] Could not sync chat_message_seq: {}", e.getMessage());
+        }
+    }
+
+    private void step(String label, String sql) {
+        try {
+            int rows = backfill(sql);
+            if (rows > 0) log.info("[CHAT-BACKFILL] {} on {} messages", label, rows);
+        } catch (Exception e) {
+            // Never block startup on a backfill; the next boot will pick up where this one stopped.
+            log.warn("[CHAT-BACKFILL] {} failed: {}", label, e.getMessage());
+        }
+    }
+
+    private void ddl(String sql) {
+        try {
+            jdbc.execute(sql);
+        } catch (Exception e) {
+            log.warn("[CHAT-SCHEMA] '{}' failed: {}", sql, e.getMessage());
+        }
+    }
+
+    private int backfill(String sql) {
+        int total = 0;
+        int updated;
+        do {
+            updated = jdbc.update(sql, batchSize);
+            total += updated;
+        } while (updated > 0);
+        return total;
+    }
+}
@@ -36,7 +36,9 @@ public class CorsConfig {
                         // Use patterns so you can allow Vercel preview domains like https://*.vercel.app
                         .allowedOriginPatterns(originsOrPatterns)
                         .allowedMethods("*")
-                        .allowedHeaders("*");
+                        .allowedHeaders("*")
+                        // Pagination cursors and ETags are returned as headers; browsers hide them unless exposed.
+                        .exposedHeaders("X-Next-Before-Id", "X-Next-Cursor", "ETag");
             }
         };
     }
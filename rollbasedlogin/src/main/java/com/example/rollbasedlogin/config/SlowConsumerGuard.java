@@ -0,0 +1,238 @@
+package com.example.rollbasedlogin.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Keeps one slow client (typically a driver on a bad mobile link) from piling up
+ * outbound STOMP frames in server memory.
+ *
+ * Every MESSAGE frame is counted per session from the moment it enters the client
+ * outbound channel until it has been written to the socket. A session is a slow
+ * consumer when it has at least max-pending frames outstanding while a socket write
+ * is blocked. New frames for it are then handled by app.ws.slow-consumer.policy:
+ * - drop: discarded
+ * - coalesce (default): discarded if the same subscription already has a frame
+ *   waiting; clients treat inbox/trip events as "something changed, reload", so the
+ *   waiting frame triggers the same refresh
+ * - disconnect: the session is closed and the client reconnects and reloads
+ *
+ * Whatever the policy, Spring's own send-time and buffer-size limits (WebSocketConfig)
+ * still close a session that stays stuck.
+ *
+ * Metrics: chat.ws.outbound.pending{stat=total|max}, chat.ws.slow_consumer.frames{action},
+ * chat.ws.slow_consumer.disconnects.
+ */
+@Component
+public class SlowConsumerGuard implements ChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowConsumerGuard.class);
+
+    enum Policy { DROP, COALESCE, DISCONNECT }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TrackedSession> sessions = new ConcurrentHashMap<>();
+
+    @Value("${app.ws.slow-consumer.policy:coalesce}")
+    private String policyName = "coalesce";
+
+    @Value("${app.ws.slow-consumer.max-pending:64}")
+    private int maxPending = 64;
+
+    private Policy policy = Policy.COALESCE;
+    private Counter dropped;
+    private Counter coalesced;
+    private Counter disconnects;
+
+    public SlowConsumerGuard(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void start() {
+        policy = Policy.valueOf(policyName.trim().toUpperCase(Locale.ROOT));
+        dropped = Counter.builder("chat.ws.slow_consumer.frames").tag("action", "dropped")
+                .description("Outbound frames not sent to slow consumers").register(meterRegistry);
+        coalesced = Counter.builder("chat.ws.slow_consumer.frames").tag("action", "coalesced")
+                .description("Outbound frames not sent to slow consumers").register(meterRegistry);
+        disconnects = Counter.builder("chat.ws.slow_consumer.disconnects")
+                .description("Sessions closed for being too slow").register(meterRegistry);
+        Gauge.builder("chat.ws.outbound.pending", this, SlowConsumerGuard::totalPending)
+                .description("MESSAGE frames accepted but not yet written").tag("stat", "total")
+                .register(meterRegistry);
+        Gauge.builder("chat.ws.outbound.pending", this, SlowConsumerGuard::maxSessionPending)
+                .description("MESSAGE frames accepted but not yet written").tag("stat", "max")
+                .register(meterRegistry);
+        log.info("[WS] Slow-consumer policy {} (max-pending={})", policy, maxPending);
+    }
+
+    // --- outbound channel ---
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        TrackedSession s = sessions.get(String.valueOf(SimpMessageHeaderAccessor.getSessionId(message.getHeaders())));
+        if (s == null) return message;
+        String subscription = String.valueOf(SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders()));
+
+        if (s.pending.get() >= maxPending && s.isWriteBlocked()) {
+            switch (policy) {
+                case DROP -> {
+                    dropped.increment();
+                    return null;
+                }
+                case COALESCE -> {
+                    if (s.pendingBySubscription.getOrDefault(subscription, 0) > 0) {
+                        coalesced.increment();
+                        return null;
+                    }
+                }
+                case DISCONNECT -> {
+                    s.closeSlow();
+                    return null;
+                }
+            }
+        }
+        s.pending.incrementAndGet();
+        s.pendingBySubscription.merge(subscription, 1, Integer::sum);
+        return message;
+    }
+
+    // --- session tracking ---
+
+    @Override
+    public WebSocketHandler decorate(@NonNull WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+                TrackedSession tracked = new TrackedSession(session);
+                sessions.put(session.getId(), tracked);
+                super.afterConnectionEstablished(tracked);
+            }
+
+            @Override
+            public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status)
+                    throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, status);
+            }
+        };
+    }
+
+    private int totalPending() {
+        int total = 0;
+        for (TrackedSession s : sessions.values()) total += s.pending.get();
+        return total;
+    }
+
+    private int maxSessionPending() {
+        int max = 0;
+        for (TrackedSession s : sessions.values()) max = Math.max(max, s.pending.get());
+        return max;
+    }
+
+    /**
+     * Innermost session wrapper: sendMessage here is the actual socket write
+     * (Spring's ConcurrentWebSocketSessionDecorator buffers in front of it).
+     */
+    private final class TrackedSession extends WebSocketSessionDecorator {
+
+        final AtomicInteger pending = new AtomicInteger();
+        final Map<String, Integer> pendingBySubscription = new ConcurrentHashMap<>();
+        private final AtomicBoolean closing = new AtomicBoolean();
+        private volatile long writeStartedNanos;
+
+        TrackedSession(WebSocketSession delegate) {
+            super(delegate);
+        }
+
+        boolean isWriteBlocked() {
+            long started = writeStartedNanos;
+            return started != 0 && System.nanoTime() - started > TimeUnit.MILLISECONDS.toNanos(100);
+        }
+
+        @Override
+        public void sendMessage(@NonNull WebSocketMessage<?> message) throws IOException {
+            writeStartedNanos = System.nanoTime();
+            try {
+                super.sendMessage(message);
+            } finally {
+                writeStartedNanos = 0;
+                written(message);
+            }
+        }
+
+        private void written(WebSocketMessage<?> message) {
+            String frame;
+            if (message instanceof TextMessage text) {
+                frame = text.getPayload();
+            } else if (message instanceof BinaryMessage binary && binary.getPayload().hasArray()) {
+                frame = new String(binary.getPayload().array(), 0, Math.min(binary.getPayloadLength(), 512),
+                        StandardCharsets.UTF_8);
+            } else {
+                return;
+            }
+            if (!frame.startsWith("MESSAGE\n")) return;
+            if (pending.decrementAndGet() < 0) pending.set(0);
+            String subscription = header(frame, "subscription");
+            if (subscription != null) {
+                pendingBySubscription.computeIfPresent(subscription, (k, n) -> n <= 1 ? null : n - 1);
+            }
+        }
+
+        void closeSlow() {
+            if (!closing.compareAndSet(false, true)) return;
+            disconnects.increment();
+            log.info("[WS] Closing slow session {} ({} frames pending)", getId(), pending.get());
+            try {
+                getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException e) {
+                log.debug("[WS] Close of {} failed: {}", getId(), e.getMessage());
+            }
+        }
+    }
+
+    /** Value of a STOMP header in the frame's header block, or null. */
+    static String header(String frame, String name) {
+        String prefix = "\n" + name + ":";
+        int end = frame.indexOf("\n\n");
+        int at = frame.indexOf(prefix);
+        if (at < 0 || (end >= 0 && at > end)) return null;
+        int from = at + prefix.length();
+        int to = frame.indexOf('\n', from);
+        return to < 0 ? frame.substring(from) : frame.substring(from, to);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.rollbasedlogin.config;
+
+import java.util.Locale;
+
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import com.example.rollbasedlogin.util.JwtUtil;
+
+/**
+ * Authenticates STOMP sessions once, on CONNECT.
+ * The client sends "Authorization: Bearer <jwt>" as a STOMP connect header; the
+ * resulting principal is reused for every later frame on that session, so SEND
+ * frames carry no per-message auth.
+ * Connecting without a token is still allowed (subscribe-only, as before);
+ * a token that is present but invalid is rejected.
+ *
+ * Inbox topics are guarded on SUBSCRIBE: direct inbox events go to the per-user
+ * destination /user/queue/inbox, and a role inbox can only be subscribed to by a
+ * session authenticated with that role. Ride-request feeds carry employee pickup
+ * details and are limited to driver sessions.
+ */
+@Component
+public class StompAuthInterceptor implements ChannelInterceptor {
+
+    private static final String INBOX_TOPIC_PREFIX = "/topic/inbox.";
+    private static final String ROLE_INBOX_TOPIC_PREFIX = "/topic/inbox.role.";
+    private static final String RIDE_REQUEST_TOPIC_PREFIX = "/topic/ride-requests.";
+
+    private final JwtUtil jwtUtil;
+
+    public StompAuthInterceptor(JwtUtil jwtUtil) {
+        this.jwtUtil = jwtUtil;
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) return message;
+        if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            checkSubscription(accessor);
+            return message;
+        }
+        if (!StompCommand.CONNECT.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        String token = parseBearer(accessor.getFirstNativeHeader("Authorization"));
+        if (token == null) return message;
+        if (!jwtUtil.isTokenValid(token)) {
+            throw new MessagingException("Invalid or expired token");
+        }
+        accessor.setUser(new StompPrincipal(jwtUtil.getEmailFromToken(token), jwtUtil.getRoleFromToken(token)));
+        return message;
+    }
+
+    private static void checkSubscription(StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        if (destination != null && destination.startsWith(RIDE_REQUEST_TOPIC_PREFIX)) {
+            if (accessor.getUser() instanceof StompPrincipal p && p.getRole() != null
+                    && "driver".equalsIgnoreCase(p.getRole().trim())) {
+                return;
+            }
+            throw new MessagingException("Not allowed to subscribe to " + destination);
+        }
+        if (destination == null || !destination.startsWith(INBOX_TOPIC_PREFIX)) return;
+
+        if (destination.startsWith(ROLE_INBOX_TOPIC_PREFIX)
+                && accessor.getUser() instanceof StompPrincipal p
+                && p.getRole() != null
+                && destination.substring(ROLE_INBOX_TOPIC_PREFIX.length()).equals(p.getRole().trim().toLowerCase(Locale.ROOT))) {
+            return;
+        }
+        throw new MessagingException("Not allowed to subscribe to " + destination);
+    }
+
+    private static String parseBearer(String authHeader) {
+        if (authHeader == null) return null;
+        String h = authHeader.trim();
+        if (h.toLowerCase(Locale.ROOT).startsWith("bearer ")) {
+            String t = h.substring("bearer ".length()).trim();
+            return t.isEmpty() ? null : t;
+        }
+        return null;
+    }
+}
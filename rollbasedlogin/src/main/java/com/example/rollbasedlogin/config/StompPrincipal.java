@@ -0,0 +1,37 @@
+package com.example.rollbasedlogin.config;
+
+import java.security.Principal;
+
+import com.example.rollbasedlogin.model.ChatMessage;
+
+/**
+ * Identity attached to a STOMP session at CONNECT time (see StompAuthInterceptor).
+ * email = JWT subject as issued, role = "role" claim.
+ *
+ * The principal name is the normalized (trimmed, lower-cased) email, because it is
+ * what /user/... destinations and the session registry are keyed by.
+ */
+public class StompPrincipal implements Principal {
+    private final String email;
+    private final String role;
+    private final String name;
+
+    public StompPrincipal(String email, String role) {
+        this.email = email;
+        this.role = role;
+        this.name = ChatMessage.normKey(email);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getRole() {
+        return role;
+    }
+}
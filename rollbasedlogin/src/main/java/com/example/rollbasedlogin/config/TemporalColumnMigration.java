@@ -0,0 +1,81 @@
+package com.example.rollbasedlogin.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-off conversion of the date/time columns that used to be stored as ISO strings
+ * (LocalDateTime.now().toString() and friends) into real temporal types. ddl-auto=update
+ * never changes a column's type, so each column is rewritten here with ALTER ... USING,
+ * parsing the old text. Values that don't look like a date become NULL (logged first),
+ * except chat_message.created_at, which is NOT NULL and falls back to sent_at.
+ *
+ * Columns that are already temporal are skipped, so this is a no-op after the first boot.
+ * Runs before ChatSchemaInitializer, whose backfills read chat_message.created_at.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TemporalColumnMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(TemporalColumnMigration.class);
+
+    private static final String DATE_TIME = "^\\d{4}-\\d{2}-\\d{2}[T ]\\d{2}:\\d{2}(:\\d{2}(\\.\\d+)?)?$";
+    private static final String DATE = "^\\d{4}-(0[1-9]|1[0-2])-(0[1-9]|[12]\\d|3[01])";
+    private static final String TIME = "^([01]?\\d|2[0-3]):[0-5]\\d(:[0-5]\\d(\\.\\d+)?)?$";
+
+    private final JdbcTemplate jdbc;
+
+    public TemporalColumnMigration(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        convert("chat_message", "created_at", "timestamp(6)", DATE_TIME,
+                "replace(trim(created_at), 'T', ' ')::timestamp", "coalesce(sent_at, localtimestamp)");
+        convert("conversation_summary", "last_at", "timestamp(6)", DATE_TIME,
+                "replace(trim(last_at), 'T', ' ')::timestamp", "null");
+        convert("notification", "created_at", "timestamp(6)", DATE_TIME,
+                "replace(trim(created_at), 'T', ' ')::timestamp", "null");
+        convert("booking", "booking_date", "date", DATE,
+                "left(trim(booking_date), 10)::date", "null");
+        convert("booking", "pickup_time", "time(6)", TIME,
+                "trim(pickup_time)::time", "null");
+        convert("work_assignment", "assigned_date", "date", DATE,
+                "left(trim(assigned_date), 10)::date", "null");
+    }
+
+    private void convert(String table, String column, String type, String pattern, String parsed, String fallback) {
+        try {
+            String current = jdbc.query(
+                    "select data_type from information_schema.columns " +
+                    "where table_schema = current_schema() and table_name = ? and column_name = ?",
+                    rs -> rs.next() ? rs.getString(1) : null, table, column);
+            if (!"character varying".equals(current) && !"text".equals(current)) return;
+
+            Long unparseable = jdbc.queryForObject(
+                    "select count(*) from " + table + " where nullif(trim(" + column + "), '') is not null " +
+                    "and trim(" + column + ") !~ '" + pattern + "'", Long.class);
+            if (unparseable != null && unparseable > 0) {
+                log.warn("[SCHEMA-MIGRATION] {}.{}: {} values are not a valid {}, they become {}",
+                        table, column, unparseable, type, fallback);
+            }
+
+            long t0 = System.currentTimeMillis();
+            jdbc.execute("alter table " + table + " alter column " + column + " type " + type + " using (" +
+                    "case when trim(" + column + ") ~ '" + pattern + "' " +
+                    "then " + parsed + " else " + fallback + " end)");
+            log.info("[SCHEMA-MIGRATION] {}.{} converted to {} in {} ms",
+                    table, column, type, System.currentTimeMillis() - t0);
+        } catch (Exception e) {
+            // Leaves the column as text; inserts through the typed entity will fail until this is fixed.
+            log.error("[SCHEMA-MIGRATION] Converting {}.{} to {} failed: {}", table, column, type, e.getMessage());
+        }
+    }
+}
@@ -1,28 +1,119 @@
 package com.example.rollbasedlogin.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.lang.NonNull;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import jakarta.annotation.PreDestroy;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final StompAuthInterceptor stompAuthInterceptor;
+    private final SlowConsumerGuard slowConsumerGuard;
+    private final WebSocketTransportMetrics transportMetrics;
+
+    // Own small pool so heartbeats never queue behind other scheduled work.
+    // Deliberately not a bean: a TaskScheduler bean would also take over @Scheduled methods.
+    private ThreadPoolTaskScheduler heartbeatScheduler;
+
+    // STOMP heartbeats: how often the server sends one, and how often it expects one from clients (0 = off)
+    @Value("${app.ws.heartbeat.server-ms:10000}")
+    private long serverHeartbeatMs;
+
+    @Value("${app.ws.heartbeat.client-ms:10000}")
+    private long clientHeartbeatMs;
+
+    @Value("${app.ws.heartbeat.scheduler-threads:1}")
+    private int heartbeatThreads;
+
+    // SockJS frames its own heartbeats on top, when no other traffic flows
+    @Value("${app.ws.sockjs.heartbeat-ms:25000}")
+    private long sockJsHeartbeatMs;
+
+    // Per-session outbound limits; a session that exceeds either is closed by Spring
+    @Value("${app.ws.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.ws.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${app.ws.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    public WebSocketConfig(StompAuthInterceptor stompAuthInterceptor, SlowConsumerGuard slowConsumerGuard,
+                           WebSocketTransportMetrics transportMetrics) {
+        this.stompAuthInterceptor = stompAuthInterceptor;
+        this.slowConsumerGuard = slowConsumerGuard;
+        this.transportMetrics = transportMetrics;
+    }
+
+    private synchronized ThreadPoolTaskScheduler heartbeatScheduler() {
+        if (heartbeatScheduler == null) {
+            heartbeatScheduler = new ThreadPoolTaskScheduler();
+            heartbeatScheduler.setPoolSize(Math.max(1, heartbeatThreads));
+            heartbeatScheduler.setThreadNamePrefix("stomp-heartbeat-");
+            heartbeatScheduler.setDaemon(true);
+            heartbeatScheduler.initialize();
+        }
+        return heartbeatScheduler;
+    }
+
+    @PreDestroy
+    void shutdownHeartbeats() {
+        if (heartbeatScheduler != null) heartbeatScheduler.shutdown();
+    }
+
     @Override
     public void configureMessageBroker(@NonNull MessageBrokerRegistry config) {
         // Simple in-memory broker (good for small apps / demos)
-        config.enableSimpleBroker("/topic");
+        // /queue is used for per-user replies (/user/queue/...)
+        config.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[] {serverHeartbeatMs, clientHeartbeatMs})
+                .setTaskScheduler(heartbeatScheduler());
         config.setApplicationDestinationPrefixes("/app");
+        config.setUserDestinationPrefix("/user");
+    }
+
+    @Override
+    public void configureClientInboundChannel(@NonNull ChannelRegistration registration) {
+        // JWT is checked once on CONNECT; later frames reuse the session principal
+        registration.interceptors(stompAuthInterceptor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(@NonNull ChannelRegistration registration) {
+        registration.interceptors(slowConsumerGuard);
+    }
+
+    @Override
+    public void configureWebSocketTransport(@NonNull WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit)
+                .addDecoratorFactory(slowConsumerGuard)
+                .addDecoratorFactory(transportMetrics);
     }
 
     @Override
     public void registerStompEndpoints(@NonNull StompEndpointRegistry registry) {
+        // Plain WebSocket: no SockJS framing, for every client that can open a WebSocket
+        registry.addEndpoint("/ws-native")
+                .setAllowedOriginPatterns("*");
+
         // SockJS fallback for environments where native WS is blocked
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
-                .withSockJS();
+                .withSockJS()
+                .setHeartbeatTime(sockJsHeartbeatMs)
+                .setTaskScheduler(heartbeatScheduler());
     }
 }
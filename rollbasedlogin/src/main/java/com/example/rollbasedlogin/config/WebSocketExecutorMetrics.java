@@ -0,0 +1,42 @@
+package com.example.rollbasedlogin.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Publishes the STOMP inbound/outbound channel thread pools as Micrometer executor metrics
+ * (executor.active, executor.queued, executor.pool.size, executor.completed, ...), tagged
+ * name=clientInboundChannel|clientOutboundChannel. A growing queue on the outbound pool
+ * means frames are produced faster than sessions drain them.
+ */
+@Component
+public class WebSocketExecutorMetrics {
+
+    private final ThreadPoolTaskExecutor inbound;
+    private final ThreadPoolTaskExecutor outbound;
+    private final MeterRegistry meterRegistry;
+
+    public WebSocketExecutorMetrics(@Qualifier("clientInboundChannelExecutor") ThreadPoolTaskExecutor inbound,
+                                    @Qualifier("clientOutboundChannelExecutor") ThreadPoolTaskExecutor outbound,
+                                    MeterRegistry meterRegistry) {
+        this.inbound = inbound;
+        this.outbound = outbound;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void bind() {
+        // The pools only exist once the executors are initialized
+        new ExecutorServiceMetrics(inbound.getThreadPoolExecutor(), "clientInboundChannel", Tags.empty())
+                .bindTo(meterRegistry);
+        new ExecutorServiceMetrics(outbound.getThreadPoolExecutor(), "clientOutboundChannel", Tags.empty())
+                .bindTo(meterRegistry);
+    }
+}
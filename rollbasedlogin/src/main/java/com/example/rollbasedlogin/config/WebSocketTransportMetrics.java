@@ -0,0 +1,75 @@
+package com.example.rollbasedlogin.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.sockjs.transport.session.PollingSockJsSession;
+import org.springframework.web.socket.sockjs.transport.session.StreamingSockJsSession;
+import org.springframework.web.socket.sockjs.transport.session.WebSocketServerSockJsSession;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Counts STOMP connections by transport, to see how many clients actually use the
+ * native endpoint versus SockJS and which SockJS fallback they end up on.
+ *
+ * Metrics: chat.ws.connections{transport} (opened, counter) and
+ * chat.ws.connections.open{transport} (gauge), with transport one of
+ * native, sockjs-websocket, sockjs-streaming, sockjs-polling.
+ */
+@Component
+public class WebSocketTransportMetrics implements WebSocketHandlerDecoratorFactory {
+
+    static final String[] TRANSPORTS = {"native", "sockjs-websocket", "sockjs-streaming", "sockjs-polling"};
+
+    private final Map<String, Counter> opened = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> open = new ConcurrentHashMap<>();
+
+    public WebSocketTransportMetrics(MeterRegistry meterRegistry) {
+        for (String transport : TRANSPORTS) {
+            opened.put(transport, Counter.builder("chat.ws.connections").tag("transport", transport)
+                    .description("STOMP connections opened").register(meterRegistry));
+            AtomicInteger current = new AtomicInteger();
+            open.put(transport, current);
+            Gauge.builder("chat.ws.connections.open", current, AtomicInteger::get).tag("transport", transport)
+                    .description("STOMP connections currently open").register(meterRegistry);
+        }
+    }
+
+    static String transport(WebSocketSession session) {
+        if (session instanceof WebSocketServerSockJsSession) return "sockjs-websocket";
+        if (session instanceof StreamingSockJsSession) return "sockjs-streaming";
+        if (session instanceof PollingSockJsSession) return "sockjs-polling";
+        return "native";
+    }
+
+    @Override
+    public WebSocketHandler decorate(@NonNull WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+                String transport = transport(session);
+                opened.get(transport).increment();
+                open.get(transport).incrementAndGet();
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status)
+                    throws Exception {
+                open.get(transport(session)).decrementAndGet();
+                super.afterConnectionClosed(session, status);
+            }
+        };
+    }
+}
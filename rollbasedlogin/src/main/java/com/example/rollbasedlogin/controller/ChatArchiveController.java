@@ -0,0 +1,71 @@
+package com.example.rollbasedlogin.controller;
+
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.rollbasedlogin.service.ChatPartitionService;
+import com.example.rollbasedlogin.util.JwtUtil;
+
+/**
+ * Archived chat months (see ChatPartitionService). HR only.
+ */
+@RestController
+@RequestMapping("/api/chat/archive")
+@CrossOrigin(origins = "*")
+public class ChatArchiveController {
+
+    @Autowired
+    private ChatPartitionService partitionService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    private boolean isHr(String authHeader) {
+        if (authHeader == null || !authHeader.trim().toLowerCase(Locale.ROOT).startsWith("bearer ")) return false;
+        String token = authHeader.trim().substring("bearer ".length()).trim();
+        return jwtUtil.isTokenValid(token) && "hr".equalsIgnoreCase(jwtUtil.getRoleFromToken(token));
+    }
+
+    @GetMapping
+    public ResponseEntity<?> list(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+        if (!isHr(authHeader)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body("HR only");
+        try {
+            return ResponseEntity.ok(partitionService.archives());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error listing chat archives: " + e.getMessage());
+        }
+    }
+
+    // POST /api/chat/archive/2025-01/restore
+    @PostMapping("/{month}/restore")
+    public ResponseEntity<?> restore(
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @PathVariable String month) {
+        if (!isHr(authHeader)) return ResponseEntity.status(HttpStatus.FORBIDDEN).body("HR only");
+        try {
+            long rows = partitionService.restore(month);
+            return ResponseEntity.ok(java.util.Map.of("month", month, "restored", rows));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error restoring chat archive: " + e.getMessage());
+        }
+    }
+}
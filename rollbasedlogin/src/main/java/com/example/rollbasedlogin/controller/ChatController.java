@@ -1,14 +1,14 @@
 package com.example.rollbasedlogin.controller;
 
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -22,14 +22,26 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.example.rollbasedlogin.dto.ChatMessageRequest;
 import com.example.rollbasedlogin.dto.ChatContactsResponse;
+import com.example.rollbasedlogin.dto.DriverTripSummary;
+import com.example.rollbasedlogin.dto.ReadReceiptEvent;
 import com.example.rollbasedlogin.dto.UserPublicDto;
+import com.example.rollbasedlogin.model.Booking;
 import com.example.rollbasedlogin.model.ChatMessage;
+import com.example.rollbasedlogin.model.ConversationSummary;
 import com.example.rollbasedlogin.model.Driver;
 import com.example.rollbasedlogin.model.User;
+import com.example.rollbasedlogin.repository.BookingRepository;
 import com.example.rollbasedlogin.repository.ChatMessageRepository;
 import com.example.rollbasedlogin.repository.DriverRepository;
 import com.example.rollbasedlogin.repository.UserRepository;
 import com.example.rollbasedlogin.service.CachedDirectoryService;
+import com.example.rollbasedlogin.service.ChatInboxService;
+import com.example.rollbasedlogin.service.ChatEventPublisher;
+import com.example.rollbasedlogin.service.ChatMessageService;
+import com.example.rollbasedlogin.service.ChatSearchService;
+import com.example.rollbasedlogin.service.ChatIngestService;
+import com.example.rollbasedlogin.service.ChatSendService;
+import com.example.rollbasedlogin.service.UnreadCounterService;
 import com.example.rollbasedlogin.util.JwtUtil;
 
 @RestController
@@ -40,6 +52,9 @@ public class ChatController {
     @Autowired
     private ChatMessageRepository chatRepo;
 
+    @Autowired
+    private BookingRepository bookingRepo;
+
     @Autowired
     private UserRepository userRepo;
 
@@ -52,24 +67,23 @@ public class ChatController {
     @Autowired
     private CachedDirectoryService directoryService;
 
-    @Autowired(required = false)
-    private SimpMessagingTemplate messagingTemplate;
+    @Autowired
+    private ChatInboxService inboxService;
 
-    private void publishToLiveInbox(ChatMessage m) {
-        if (messagingTemplate == null || m == null) return;
+    @Autowired
+    private ChatMessageService chatMessageService;
 
-        // Direct inbox (email)
-        if (m.getReceiverEmail() != null && !m.getReceiverEmail().isBlank()) {
-            String key = m.getReceiverEmail().trim().toLowerCase(Locale.ROOT);
-            messagingTemplate.convertAndSend("/topic/inbox." + key, m);
-        }
+    @Autowired
+    private ChatSendService chatSendService;
 
-        // Role-based inbox
-        if (m.getReceiverRole() != null && !m.getReceiverRole().isBlank()) {
-            String key = m.getReceiverRole().trim().toLowerCase(Locale.ROOT);
-            messagingTemplate.convertAndSend("/topic/inbox.role." + key, m);
-        }
-    }
+    @Autowired
+    private ChatSearchService searchService;
+
+    @Autowired
+    private ChatEventPublisher publisher;
+
+    @Autowired
+    private UnreadCounterService unreadCounters;
 
     private static String norm(String s) {
         if (s == null) return null;
@@ -120,41 +134,23 @@ public class ChatController {
         String senderEmail = authEmail(authHeader, req.getSenderEmail());
         String senderRole = authRole(authHeader, req.getSenderRole());
 
-        String receiverEmail = norm(req.getReceiverEmail());
-        String receiverRole = norm(req.getReceiverRole());
-
-        String content = norm(req.getContent());
-        if (senderEmail == null) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("senderEmail missing");
-        }
-        if (content == null) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("content is required");
-        }
-        if (receiverEmail == null && receiverRole == null) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("receiverEmail or receiverRole is required");
+        try {
+            ChatMessage m = chatSendService.send(senderEmail, senderRole, req);
+            return ResponseEntity.status(HttpStatus.CREATED).body(m);
+        } catch (ChatIngestService.Busy e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
-
-        ChatMessage m = new ChatMessage();
-        m.setSenderEmail(senderEmail);
-        m.setSenderRole(senderRole);
-        m.setReceiverEmail(receiverEmail);
-        m.setReceiverRole(receiverRole);
-        m.setSubject(norm(req.getSubject()));
-        m.setContent(content);
-        m.setMessageType(norm(req.getMessageType()));
-        m.setCreatedAt(LocalDateTime.now().toString());
-        m.setReadFlag(false);
-
-        chatRepo.save(m);
-        publishToLiveInbox(m);
-        return ResponseEntity.status(HttpStatus.CREATED).body(m);
     }
 
     @GetMapping("/inbox")
     public ResponseEntity<?> inbox(
             @RequestHeader(value = "Authorization", required = false) String authHeader,
             @RequestParam(required = false) String email,
-            @RequestParam(required = false) String role) {
+            @RequestParam(required = false) String role,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(required = false) Integer limit) {
 
         String effectiveEmail = authEmail(authHeader, email);
         String effectiveRole = authRole(authHeader, role);
@@ -163,30 +159,92 @@ public class ChatController {
         }
 
         // if email missing but we have role, still allow role inbox
-        String e = effectiveEmail == null ? "" : effectiveEmail;
-        String r = effectiveRole == null ? "" : effectiveRole;
-        List<ChatMessage> list = chatRepo.inbox(e, r);
-        // keep payload small
-        if (list.size() > 50) list = list.subList(0, 50);
-        return ResponseEntity.ok(list);
+        List<ChatMessage> list = inboxService.inboxPage(effectiveEmail, effectiveRole, beforeId, limit);
+
+        // Cursor for the next (older) page: pass it back as beforeId
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (list.size() == ChatInboxService.clampLimit(limit)) {
+            ok.header("X-Next-Before-Id", String.valueOf(list.get(list.size() - 1).getId()));
+        }
+        return ok.body(list);
     }
 
     @GetMapping("/conversation")
     public ResponseEntity<?> conversation(
             @RequestHeader(value = "Authorization", required = false) String authHeader,
             @RequestParam(required = false) String email,
-            @RequestParam String withEmail) {
+            @RequestParam String withEmail,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(required = false) Integer limit) {
 
         String me = authEmail(authHeader, email);
         String other = norm(withEmail);
         if (me == null) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("email missing");
         if (other == null) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("withEmail missing");
 
-        List<ChatMessage> list = chatRepo.conversation(me, other);
-        if (list.size() > 200) {
-            list = list.subList(list.size() - 200, list.size());
+        // Tail-first: read the newest page, then hand it back oldest -> newest for display
+        List<ChatMessage> page = inboxService.conversationPage(me, other, beforeId, limit);
+        List<ChatMessage> list = new java.util.ArrayList<>(page);
+        java.util.Collections.reverse(list);
+
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (page.size() == ChatInboxService.clampLimit(limit, ChatInboxService.CONVERSATION_PAGE_SIZE)) {
+            ok.header("X-Next-Before-Id", String.valueOf(list.get(0).getId()));
+        }
+        return ok.body(list);
+    }
+
+    @GetMapping("/conversations")
+    public ResponseEntity<?> conversations(
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(required = false) Integer limit) {
+
+        String me = authEmail(authHeader, email);
+        if (me == null) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("email missing");
+
+        List<ConversationSummary> list = inboxService.conversationsPage(me, beforeId, limit);
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (list.size() == ChatInboxService.clampLimit(limit)) {
+            ok.header("X-Next-Before-Id", String.valueOf(list.get(list.size() - 1).getLastMessageId()));
+        }
+        return ok.body(list);
+    }
+
+    /** Badge count: unread direct messages across all of the caller's conversations. */
+    @GetMapping("/unread-count")
+    public ResponseEntity<?> unreadCount(
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestParam(required = false) String email) {
+
+        String me = authEmail(authHeader, email);
+        if (me == null) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("email missing");
+        return ResponseEntity.ok(java.util.Map.of("unread", unreadCounters.chatUnread(me)));
+    }
+
+    /**
+     * Full-text search over the caller's messages (subject + content), best match first.
+     * Requires a JWT. Pass X-Next-Cursor back as {@code cursor} for the next page.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+
+        String me = authEmail(authHeader, null);
+        if (me == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
+
+        try {
+            ChatSearchService.SearchPage page = searchService.search(me, authRole(authHeader, null), q, cursor, limit);
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+            if (page.nextCursor() != null) ok.header("X-Next-Cursor", page.nextCursor());
+            return ok.body(page.messages());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
-        return ResponseEntity.ok(list);
     }
 
     @PutMapping("/messages/{id}/read")
@@ -208,14 +266,42 @@ public class ChatController {
             }
         }
 
-        m.setReadFlag(true);
-        chatRepo.save(m);
+        if (!chatMessageService.markRead(m)) {
+            // Already read: nothing changed, so nothing to publish
+            return ResponseEntity.ok("Marked as read");
+        }
 
         // Notify receivers that inbox changed (simple approach: publish the updated message)
-        publishToLiveInbox(m);
+        publisher.publishToLiveInbox(m);
         return ResponseEntity.ok("Marked as read");
     }
 
+    /**
+     * Bulk read: marks everything received from {@code withEmail} up to {@code upToId}
+     * (or the whole thread when omitted) as read, then sends one read-receipt event.
+     */
+    @PutMapping("/conversation/read")
+    public ResponseEntity<?> markConversationRead(
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestParam(required = false) String email,
+            @RequestParam String withEmail,
+            @RequestParam(required = false) Long upToId) {
+
+        String me = authEmail(authHeader, email);
+        String other = norm(withEmail);
+        if (me == null) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("email missing");
+        if (other == null) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("withEmail missing");
+
+        long upTo = upToId == null ? Long.MAX_VALUE : upToId;
+        int count = chatMessageService.markConversationRead(me, other, upTo);
+        if (count > 0) {
+            ReadReceiptEvent event = new ReadReceiptEvent(lower(me), ChatMessage.conversationKey(me, other), null, upTo, count);
+            publisher.publishToInbox(me, event);
+            publisher.publishToInbox(other, event);
+        }
+        return ResponseEntity.ok(java.util.Map.of("updated", count));
+    }
+
     @GetMapping("/contacts")
     public ResponseEntity<?> contacts(@RequestParam String role) {
         String r = norm(role);
@@ -320,34 +406,61 @@ public class ChatController {
     // ===================== TRIP-SPECIFIC MESSAGING =====================
 
     /**
-     * GET trip messages - retrieve all messages for a specific trip
+     * GET trip messages - the caller's messages for a specific trip, oldest first.
+     * With {@code sinceId} only newer messages are returned (delta polling).
+     * The response carries an ETag built from the trip's chat version; a poll that
+     * sends it back in If-None-Match gets 304 with no message query at all.
      */
     @GetMapping("/trip/{tripId}/messages")
     public ResponseEntity<?> getTripMessages(
             @PathVariable Long tripId,
+            @RequestParam(required = false) Long sinceId,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch,
             @RequestHeader("Authorization") String authHeader) {
         try {
             String meEmail = authEmail(authHeader, null);
             if (meEmail == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
             }
+            String me = ChatMessage.normKey(meEmail);
+
+            // Read the version before the messages: if a write lands in between, the
+            // next poll simply gets a 200 again instead of missing it.
+            String etag = tripEtag(tripId, chatMessageService.tripVersion(tripId), me);
+            if (etagMatches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .cacheControl(CacheControl.noCache())
+                        .build();
+            }
 
-            List<ChatMessage> messages = chatRepo.findByTripId(tripId);
-            // Filter to only return messages where the user is sender or receiver
-            List<ChatMessage> filtered = messages.stream()
-                    .filter(m -> 
-                        (m.getSenderEmail() != null && m.getSenderEmail().equalsIgnoreCase(meEmail)) ||
-                        (m.getReceiverEmail() != null && m.getReceiverEmail().equalsIgnoreCase(meEmail))
-                    )
-                    .toList();
-
-            return ResponseEntity.ok(filtered);
+            long since = sinceId == null ? 0L : Math.max(sinceId, 0L);
+            List<ChatMessage> messages = chatRepo.tripMessagesFor(tripId, me, since);
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .body(messages);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error retrieving trip messages: " + e.getMessage());
         }
     }
 
+    // Per caller too: each participant sees a different subset of the trip chat
+    private static String tripEtag(Long tripId, long version, String me) {
+        return "\"trip-" + tripId + "-v" + version + "-" + Integer.toHexString(me.hashCode()) + "\"";
+    }
+
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.equals(etag)) return true;
+        }
+        return false;
+    }
+
     /**
      * POST trip message - send a message for a specific trip
      */
@@ -364,29 +477,11 @@ public class ChatController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
             }
 
-            ChatMessage msg = new ChatMessage();
-            msg.setSenderEmail(senderEmail);
-            msg.setSenderRole(norm(senderRole));
-            msg.setReceiverEmail(norm(req.getReceiverEmail()));
-            msg.setReceiverRole(norm(req.getReceiverRole()));
-            msg.setSubject(norm(req.getSubject()));
-            msg.setContent(norm(req.getContent()));
-            msg.setMessageType("TRIP_DIRECTION"); // New message type for trip-specific messages
-            msg.setTripId(tripId);
-            msg.setCreatedAt(LocalDateTime.now().toString());
-            msg.setReadFlag(false);
-
-            ChatMessage saved = chatRepo.save(msg);
-
-            // Publish to WebSocket topics
-            publishToLiveInbox(saved);
-            
-            // Also publish to trip-specific topic
-            if (messagingTemplate != null) {
-                messagingTemplate.convertAndSend("/topic/trip." + tripId, saved);
-            }
+            ChatMessage saved = chatSendService.sendTrip(tripId, senderEmail, senderRole, req);
 
             return ResponseEntity.ok(saved);
+        } catch (ChatIngestService.Busy e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error sending trip message: " + e.getMessage());
@@ -394,28 +489,70 @@ public class ChatController {
     }
 
     /**
-     * GET driver's assigned trips with unread message count
+     * GET the driver's trips with per-trip unread count and latest message, newest first,
+     * in one query. {@code status} defaults to ASSIGNED ("all" for every status); pass
+     * X-Next-Before-Id back as {@code beforeId} for the next page.
      */
     @GetMapping("/driver/trips-with-messages")
     public ResponseEntity<?> getDriverTripsWithMessages(
-            @RequestHeader("Authorization") String authHeader) {
+            @RequestHeader("Authorization") String authHeader,
+            @RequestParam(required = false, defaultValue = "ASSIGNED") String status,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(required = false) Integer limit) {
         try {
             String driverEmail = authEmail(authHeader, null);
             if (driverEmail == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
             }
 
-            // This endpoint requires using DriverRepository or BookingRepository
-            // You'll need to inject BookingRepository in ChatController
-            List<java.util.Map<String, Object>> result = new java.util.ArrayList<>();
-            // Implementation depends on your existing booking retrieval logic
-            return ResponseEntity.ok(result);
+            String statusKey = "all".equalsIgnoreCase(status.trim()) ? "" : status.trim().toUpperCase(Locale.ROOT);
+            long before = (beforeId == null || beforeId <= 0) ? Long.MAX_VALUE : beforeId;
+            int size = ChatInboxService.clampLimit(limit);
+            List<DriverTripSummary> trips = bookingRepo.driverTripsWithMessages(driverEmail,
+                            ChatMessage.normKey(driverEmail), statusKey, before, PageRequest.of(0, size))
+                    .stream()
+                    .map(row -> DriverTripSummary.of((Booking) row[0], ((Number) row[1]).longValue(),
+                            (ChatMessage) row[2]))
+                    .toList();
+
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+            if (trips.size() == size) {
+                ok.header("X-Next-Before-Id", String.valueOf(trips.get(trips.size() - 1).id()));
+            }
+            return ok.body(trips);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error retrieving driver trips: " + e.getMessage());
         }
     }
 
+    /**
+     * Bulk read for a trip chat: marks every trip message the caller received up to
+     * {@code upToId} (or all when omitted) as read with one UPDATE.
+     */
+    @PutMapping("/trip/{tripId}/read")
+    public ResponseEntity<?> markTripRead(
+            @PathVariable Long tripId,
+            @RequestParam(required = false) Long upToId,
+            @RequestHeader("Authorization") String authHeader) {
+        try {
+            String meEmail = authEmail(authHeader, null);
+            if (meEmail == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
+            }
+
+            long upTo = upToId == null ? Long.MAX_VALUE : upToId;
+            int count = chatMessageService.markTripRead(meEmail, tripId, upTo);
+            if (count > 0) {
+                publisher.publishToTrip(tripId, new ReadReceiptEvent(lower(meEmail), null, tripId, upTo, count));
+            }
+            return ResponseEntity.ok(java.util.Map.of("updated", count));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error marking messages as read: " + e.getMessage());
+        }
+    }
+
     /**
      * Mark trip message as read
      */
@@ -440,9 +577,8 @@ public class ChatController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Message does not belong to this trip");
             }
 
-            msg.setReadFlag(true);
-            ChatMessage updated = chatRepo.save(msg);
-            return ResponseEntity.ok(updated);
+            chatMessageService.markRead(msg);
+            return ResponseEntity.ok(msg);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error marking message as read: " + e.getMessage());
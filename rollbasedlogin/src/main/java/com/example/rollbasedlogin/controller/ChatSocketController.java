@@ -0,0 +1,58 @@
+package com.example.rollbasedlogin.controller;
+
+import java.security.Principal;
+
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+
+import com.example.rollbasedlogin.config.StompPrincipal;
+import com.example.rollbasedlogin.dto.ChatMessageRequest;
+import com.example.rollbasedlogin.model.ChatMessage;
+import com.example.rollbasedlogin.service.ChatSendService;
+
+/**
+ * STOMP send path: clients already holding the /ws connection send chat frames to
+ * /app/... instead of one HTTP POST per message. The sender is the principal
+ * authenticated at CONNECT (StompAuthInterceptor), never a field in the payload.
+ * The stored message is echoed back on /user/queue/chat.ack; errors on /user/queue/errors.
+ */
+@Controller
+public class ChatSocketController {
+
+    private final ChatSendService chatSendService;
+
+    public ChatSocketController(ChatSendService chatSendService) {
+        this.chatSendService = chatSendService;
+    }
+
+    private static StompPrincipal requireUser(Principal principal) {
+        if (principal instanceof StompPrincipal p) return p;
+        throw new IllegalStateException("Not authenticated: connect with an Authorization header to send messages");
+    }
+
+    // SEND /app/chat.send
+    @MessageMapping("/chat.send")
+    @SendToUser("/queue/chat.ack")
+    public ChatMessage send(@Payload ChatMessageRequest req, Principal principal) {
+        StompPrincipal me = requireUser(principal);
+        return chatSendService.send(me.getEmail(), me.getRole(), req);
+    }
+
+    // SEND /app/trip.{tripId}.send
+    @MessageMapping("/trip.{tripId}.send")
+    @SendToUser("/queue/chat.ack")
+    public ChatMessage sendTrip(@DestinationVariable Long tripId, @Payload ChatMessageRequest req, Principal principal) {
+        StompPrincipal me = requireUser(principal);
+        return chatSendService.sendTrip(tripId, me.getEmail(), me.getRole(), req);
+    }
+
+    @MessageExceptionHandler({IllegalArgumentException.class, IllegalStateException.class})
+    @SendToUser("/queue/errors")
+    public String handleError(RuntimeException e) {
+        return e.getMessage();
+    }
+}
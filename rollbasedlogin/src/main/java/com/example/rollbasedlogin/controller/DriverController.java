@@ -1,11 +1,14 @@
 package com.example.rollbasedlogin.controller;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -17,20 +20,23 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.rollbasedlogin.dto.TripEffectStatus;
 import com.example.rollbasedlogin.model.Booking;
-import com.example.rollbasedlogin.model.ChatMessage;
 import com.example.rollbasedlogin.model.Driver;
-import com.example.rollbasedlogin.model.Notification;
 import com.example.rollbasedlogin.model.OtpTrip;
 import com.example.rollbasedlogin.model.User;
 import com.example.rollbasedlogin.repository.BookingRepository;
-import com.example.rollbasedlogin.repository.ChatMessageRepository;
 import com.example.rollbasedlogin.repository.DriverRepository;
-import com.example.rollbasedlogin.repository.NotificationRepository;
 import com.example.rollbasedlogin.repository.UserRepository;
+import com.example.rollbasedlogin.service.AutoDispatchService;
 import com.example.rollbasedlogin.service.OtpService;
-import com.example.rollbasedlogin.service.TwilioService;
+import com.example.rollbasedlogin.service.OutboxService;
+import com.example.rollbasedlogin.service.RideRequestIndex;
+import com.example.rollbasedlogin.service.TripAcceptanceService;
+import com.example.rollbasedlogin.service.TripEffectsService;
+import com.example.rollbasedlogin.util.Geo;
 import com.example.rollbasedlogin.util.JwtUtil;
+import com.example.rollbasedlogin.util.TimeWindow;
 
 @RestController
 @RequestMapping("/api/driver")
@@ -41,13 +47,19 @@ public class DriverController {
     private BookingRepository bookingRepo;
 
     @Autowired
-    private ChatMessageRepository chatMessageRepo;
+    private DriverRepository driverRepo;
 
     @Autowired
-    private DriverRepository driverRepo;
+    private RideRequestIndex rideRequests;
+
+    @Autowired
+    private TripAcceptanceService tripAcceptanceService;
 
     @Autowired
-    private NotificationRepository notificationRepo;
+    private AutoDispatchService autoDispatch;
+
+    @Autowired
+    private TripEffectsService tripEffects;
 
     @Autowired
     private UserRepository userRepo;
@@ -56,7 +68,7 @@ public class DriverController {
     private OtpService otpService;
 
     @Autowired
-    private TwilioService twilioService;
+    private OutboxService outbox;
 
     @Autowired
     private JwtUtil jwtUtil;
@@ -72,9 +84,22 @@ public class DriverController {
         return null;
     }
 
+    // since/until (optional) on the list endpoints: ISO date or date-time window over bookingDate, see TimeWindow
     @GetMapping("/mytrips")
-    public List<Booking> getDriverBookings(@RequestParam String email) {
-        return bookingRepo.findByDriverEmail(email);
+    public ResponseEntity<?> getDriverBookings(@RequestParam String email,
+                                               @RequestParam(required = false) String since,
+                                               @RequestParam(required = false) String until) {
+        try {
+            return ResponseEntity.ok(driverTrips(email, TimeWindow.parse(since, until)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private List<Booking> driverTrips(String email, TimeWindow window) {
+        return window.isUnbounded()
+                ? bookingRepo.findByDriverEmail(email)
+                : bookingRepo.findForDriverBetween(email, window.fromDate(), window.toDate());
     }
 
     /**
@@ -82,14 +107,22 @@ public class DriverController {
      * Returns trips with status ASSIGNED or REQUESTED
      */
     @GetMapping("/assigned-trips")
-    public ResponseEntity<?> getAssignedTrips(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getAssignedTrips(@RequestHeader("Authorization") String authHeader,
+                                              @RequestParam(required = false) String since,
+                                              @RequestParam(required = false) String until) {
         String driverEmail = getEmailFromAuthHeader(authHeader);
         if (driverEmail == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
         }
+        TimeWindow window;
+        try {
+            window = TimeWindow.parse(since, until);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
 
         // Get trips assigned to this driver with status ASSIGNED
-        List<Booking> assignedTrips = bookingRepo.findByDriverEmail(driverEmail).stream()
+        List<Booking> assignedTrips = driverTrips(driverEmail, window).stream()
                 .filter(b -> "ASSIGNED".equalsIgnoreCase(b.getStatus()))
                 .toList();
 
@@ -97,7 +130,15 @@ public class DriverController {
     }
 
     @GetMapping("/ride-requests")
-    public ResponseEntity<?> getRideRequests(@RequestParam String email) {
+    public ResponseEntity<?> getRideRequests(@RequestParam String email,
+                                             @RequestParam(required = false) String since,
+                                             @RequestParam(required = false) String until) {
+        TimeWindow window;
+        try {
+            window = TimeWindow.parse(since, until);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
         Optional<Driver> driverOpt = driverRepo.findByEmail(email);
         if (driverOpt.isEmpty()) {
             return ResponseEntity.status(404).body("Driver not found");
@@ -111,202 +152,64 @@ public class DriverController {
 
         // Show all pending requests for this driver's cab type.
         // (UI can decide whether to allow accepting based on availability.)
-        List<Booking> requests = bookingRepo.findByStatusAndCabTypeOrderByIdDesc("REQUESTED", cabType);
-        return ResponseEntity.ok(requests);
+        if (window.isUnbounded()) {
+            return ResponseEntity.ok(rideRequests.snapshot(cabType));
+        }
+        return ResponseEntity.ok(
+                bookingRepo.findByStatusAndCabTypeBetween("REQUESTED", cabType, window.fromDate(), window.toDate()));
     }
 
-    @PutMapping("/accept-trip/{bookingId}")
-    public ResponseEntity<?> acceptTrip(@PathVariable Long bookingId, @RequestParam String email) {
-        Optional<Driver> driverOpt = driverRepo.findByEmail(email);
+    /**
+     * GET open ride requests for the current driver's cab type, served from memory,
+     * together with the STOMP topic that pushes later changes (RideRequestEvent).
+     * Clients subscribe to the topic first, then load this snapshot.
+     */
+    @GetMapping("/ride-requests/snapshot")
+    public ResponseEntity<?> getRideRequestSnapshot(@RequestHeader("Authorization") String authHeader) {
+        String driverEmail = getEmailFromAuthHeader(authHeader);
+        if (driverEmail == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
+        }
+        Optional<Driver> driverOpt = driverRepo.findByEmail(driverEmail);
         if (driverOpt.isEmpty()) {
             return ResponseEntity.status(404).body("Driver not found");
         }
 
-        Driver driver = driverOpt.get();
-        if (!driver.isAvailable()) {
-            return ResponseEntity.status(409).body("Driver is not available");
-        }
-
-        if (bookingRepo.existsByDriverEmailAndStatus(email, "ASSIGNED")) {
-            return ResponseEntity.status(409).body("Driver already has an assigned trip");
-        }
-
-        Optional<Booking> bookingOpt = bookingRepo.findById(bookingId);
-        if (bookingOpt.isEmpty()) {
-            return ResponseEntity.status(404).body("Booking not found");
-        }
-
-        Booking booking = bookingOpt.get();
-        if (!"REQUESTED".equalsIgnoreCase(booking.getStatus())) {
-            return ResponseEntity.status(409).body("Booking is not available for acceptance");
-        }
-
-        String bookingCabType = booking.getCabType() == null ? "" : booking.getCabType();
-        String driverCabType = driver.getCabType() == null ? "" : driver.getCabType();
-        if (!bookingCabType.equalsIgnoreCase(driverCabType)) {
-            return ResponseEntity.status(409).body("Cab type mismatch");
-        }
-
-        // Assign booking to this driver
-        booking.setDriverEmail(email);
-        booking.setStatus("ASSIGNED");
-        bookingRepo.save(booking);
-
-        // Mark driver as unavailable and sync phone number from User table
-        driver.setAvailable(false);
-        Optional<User> userOpt = userRepo.findByEmail(email);
-        if (userOpt.isPresent()) {
-            driver.setPhoneNumber(userOpt.get().getPhoneNumber());
+        String cabTypeKey = RideRequestIndex.cabTypeKey(driverOpt.get().getCabType());
+        if (cabTypeKey == null) {
+            return ResponseEntity.ok(java.util.Map.of("requests", java.util.List.of()));
         }
-        driverRepo.save(driver);
+        return ResponseEntity.ok(java.util.Map.of(
+            "cabType", cabTypeKey,
+            "topic", RideRequestIndex.TOPIC_PREFIX + cabTypeKey,
+            "requests", rideRequests.snapshot(cabTypeKey)
+        ));
+    }
 
-        // Generate and send OTP to BOTH employee and driver
+    @PutMapping("/accept-trip/{bookingId}")
+    public ResponseEntity<?> acceptTrip(@PathVariable Long bookingId, @RequestParam String email) {
+        // Atomic claim: of several drivers accepting the same booking exactly one gets past this
+        Booking booking;
+        List<TripEffectStatus> effects;
         try {
-            Optional<User> driverUserOpt = userRepo.findByEmail(email);
-            Optional<User> employeeUserOpt = userRepo.findByEmail(booking.getEmployeeEmail());
-            
-            if (driverUserOpt.isEmpty()) {
-                String errorMsg = "[ERROR] Driver not found in user records: " + email;
-                System.out.println(errorMsg);
-                return ResponseEntity.status(404).body(java.util.Map.of(
-                    "success", false,
-                    "message", "Driver not found in system",
-                    "error", "DRIVER_NOT_FOUND"
-                ));
-            }
-            
-            if (employeeUserOpt.isEmpty()) {
-                String errorMsg = "[ERROR] Employee not found in user records: " + booking.getEmployeeEmail();
-                System.out.println(errorMsg);
-                return ResponseEntity.status(404).body(java.util.Map.of(
-                    "success", false,
-                    "message", "Employee not found in system",
-                    "error", "EMPLOYEE_NOT_FOUND"
-                ));
-            }
-            
-            User driverUser = driverUserOpt.get();
-            User employeeUser = employeeUserOpt.get();
-            String driverPhoneNumber = driverUser.getPhoneNumber();
-            String employeePhoneNumber = employeeUser.getPhoneNumber();
-            
-            if (driverPhoneNumber == null || driverPhoneNumber.isBlank()) {
-                String errorMsg = "[ERROR] Phone number not found for driver: " + email;
-                System.out.println(errorMsg);
-                return ResponseEntity.status(422).body(java.util.Map.of(
-                    "success", false,
-                    "message", "Cannot send OTP: Driver phone number is not configured.",
-                    "error", "DRIVER_MISSING_PHONE"
-                ));
-            }
-            
-            if (employeePhoneNumber == null || employeePhoneNumber.isBlank()) {
-                String errorMsg = "[ERROR] Phone number not found for employee: " + booking.getEmployeeEmail();
-                System.out.println(errorMsg);
-                return ResponseEntity.status(422).body(java.util.Map.of(
-                    "success", false,
-                    "message", "Cannot send OTP: Employee phone number is not configured.",
-                    "error", "EMPLOYEE_MISSING_PHONE"
-                ));
-            }
-
-            try {
-                @SuppressWarnings("unused")
-                OtpTrip otpTrip = otpService.generateAndSendOtpToEmployeeOnly(
-                    bookingId,
-                    booking.getEmployeeEmail(),
-                    booking.getEmployeeName(),
-                    employeePhoneNumber,
-                    email
-                );
-                System.out.println("[SUCCESS] OTP sent to employee (" + booking.getEmployeeEmail() + ") for booking " + bookingId);
-                
-                // Send trip assignment notification to DRIVER
-                try {
-                    twilioService.sendTripAssignmentNotification(
-                        driverPhoneNumber,
-                        driver.getName(),
-                        booking.getEmployeeName(),
-                        booking.getPickupLocation(),
-                        booking.getDestination()
-                    );
-                    System.out.println("[SUCCESS] Trip assignment notification sent to driver (" + email + ") for booking " + bookingId);
-                } catch (Exception tripNotifyError) {
-                    // Log error but don't fail the entire request (trip is already assigned)
-                    System.err.println("[WARNING] Failed to send trip notification to driver: " + tripNotifyError.getMessage());
-                }
-            } catch (IllegalStateException e) {
-                String errorMsg = "[ERROR] Twilio misconfiguration or disabled: " + e.getMessage();
-                System.out.println(errorMsg);
-                return ResponseEntity.status(503).body(java.util.Map.of(
-                    "success", false,
-                    "message", "OTP service is not properly configured. Please contact administrator.",
-                    "error", "OTP_SERVICE_UNAVAILABLE",
-                    "details", e.getMessage()
-                ));
-            } catch (Exception e) {
-                String errorMsg = "[ERROR] Failed to send OTP: " + e.getMessage();
-                System.out.println(errorMsg);
-                return ResponseEntity.status(503).body(java.util.Map.of(
-                    "success", false,
-                    "message", "Failed to send OTP. Please try again.",
-                    "error", "OTP_SEND_FAILED",
-                    "details", e.getMessage()
-                ));
-            }
-        } catch (Exception e) {
-            String errorMsg = "[ERROR] Unexpected error while sending OTP: " + e.getMessage();
-            System.out.println(errorMsg);
-            return ResponseEntity.status(500).body(java.util.Map.of(
-                "success", false,
-                "message", "Unexpected error while processing OTP",
-                "error", "INTERNAL_ERROR",
-                "details", e.getMessage()
-            ));
-        }
-
-        // Notify HR that a driver accepted
-        if (booking.getHrEmail() != null && !booking.getHrEmail().isBlank()) {
-            Notification n = new Notification();
-            n.setHrEmail(booking.getHrEmail());
-            n.setCreatedAt(java.time.LocalDateTime.now().toString());
-            n.setMessage("Driver " + email + " accepted booking #" + bookingId + ". OTP sent to driver for verification.");
-            n.setReadFlag(false);
-            notificationRepo.save(n);
+            TripAcceptanceService.Accepted accepted = tripAcceptanceService.accept(bookingId, email);
+            booking = accepted.booking();
+            effects = accepted.effects();
+            autoDispatch.driverBusy(email);
+        } catch (TripAcceptanceService.Rejected e) {
+            return ResponseEntity.status(e.getStatus()).body(e.getMessage());
         }
 
+        // OTP and driver SMS, HR notification and assignment chat message were queued in the
+        // outbox with the claim; the driver polls /accept-trip/{bookingId}/effects for their status
         System.out.println("[TRIP-ASSIGNMENT] Driver " + email + " has been assigned to trip " + bookingId + 
                          " for employee " + booking.getEmployeeEmail());
 
-        // Send assignment message to driver
-        try {
-            ChatMessage assignmentMsg = new ChatMessage();
-            assignmentMsg.setSenderEmail("system@hr.internal");
-            assignmentMsg.setSenderRole("system");
-            assignmentMsg.setReceiverEmail(email);
-            assignmentMsg.setReceiverRole("driver");
-            assignmentMsg.setSubject("Trip Assignment Confirmation");
-            assignmentMsg.setContent("🎉 You've been assigned to complete the trip successfully! \n\n" +
-                                   "Employee: " + booking.getEmployeeName() + "\n" +
-                                   "Pickup: " + booking.getPickup() + "\n" +
-                                   "Drop: " + booking.getDropLocation() + "\n" +
-                                   "Pickup Time: " + booking.getPickupTime() + "\n\n" +
-                                   "Please verify your OTP to proceed with the trip.");
-            assignmentMsg.setMessageType("SYSTEM_ASSIGNMENT");
-            assignmentMsg.setTripId(bookingId);
-            assignmentMsg.setCreatedAt(java.time.LocalDateTime.now().toString());
-            assignmentMsg.setReadFlag(false);
-            chatMessageRepo.save(assignmentMsg);
-            System.out.println("[CHAT] Assignment message sent to driver: " + email);
-        } catch (Exception e) {
-            System.out.println("[CHAT-ERROR] Failed to send assignment message: " + e.getMessage());
-            // Continue even if message fails - it's not critical
-        }
-
         return ResponseEntity.ok(java.util.Map.of(
             "success", true,
-            "message", "Trip accepted. OTP sent to your phone.",
+            "message", "Trip accepted. Sending the OTP to the employee.",
             "bookingId", bookingId,
+            "effects", effects,
             "tripDetails", java.util.Map.of(
                 "employeeEmail", booking.getEmployeeEmail(),
                 "employeeName", booking.getEmployeeName(),
@@ -317,6 +220,26 @@ public class DriverController {
         ));
     }
 
+    /**
+     * GET /api/driver/accept-trip/{bookingId}/effects
+     * Status of the accepted trip's background side effects (OTP SMS, driver SMS, HR notification, chat)
+     */
+    @GetMapping("/accept-trip/{bookingId}/effects")
+    public ResponseEntity<?> getAcceptEffects(@PathVariable Long bookingId,
+                                              @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        String email = getEmailFromAuthHeader(authHeader);
+        if (email == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
+        }
+        return tripEffects.status(bookingId, email)
+                .<ResponseEntity<?>>map(effects -> ResponseEntity.ok(java.util.Map.of(
+                    "bookingId", bookingId,
+                    "finished", effects.stream().allMatch(TripEffectStatus::finished),
+                    "effects", effects
+                )))
+                .orElseGet(() -> ResponseEntity.status(404).body("No side-effect status for this booking"));
+    }
+
     @GetMapping("/profile")
     public ResponseEntity<?> getDriverProfile(@RequestParam String email) {
         return driverRepo.findByEmail(email)
@@ -324,6 +247,28 @@ public class DriverController {
                 .orElseGet(() -> ResponseEntity.status(404).body("Driver not found"));
     }
 
+    /**
+     * PUT /api/driver/position?lat=..&lon=..
+     * The driver's current position (WGS84); auto-dispatch prefers drivers near the pickup
+     */
+    @PutMapping("/position")
+    @Transactional
+    public ResponseEntity<?> updatePosition(@RequestParam double lat, @RequestParam double lon,
+                                            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        String email = getEmailFromAuthHeader(authHeader);
+        if (email == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
+        }
+        if (!Geo.isValid(lat, lon)) {
+            return ResponseEntity.badRequest().body("lat must be within [-90, 90] and lon within [-180, 180]");
+        }
+        if (driverRepo.updatePosition(email, lat, lon, LocalDateTime.now()) == 0) {
+            return ResponseEntity.status(404).body("Driver not found");
+        }
+        autoDispatch.driverMoved(email, lat, lon);
+        return ResponseEntity.ok(java.util.Map.of("lat", lat, "lon", lon));
+    }
+
     @PutMapping("/availability")
     public ResponseEntity<String> setAvailability(@RequestParam String email, @RequestParam boolean available) {
         Optional<Driver> driverOpt = driverRepo.findByEmail(email);
@@ -337,7 +282,13 @@ public class DriverController {
 
         Driver driver = driverOpt.get();
         driver.setAvailable(available);
-        driverRepo.save(driver);
+        try {
+            driverRepo.save(driver);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // e.g. a trip acceptance claimed the driver between our read and this save
+            return ResponseEntity.status(409).body("Driver was updated concurrently, please retry");
+        }
+        autoDispatch.driverAvailable(driver);
         return ResponseEntity.ok("Availability updated");
     }
 
@@ -347,6 +298,7 @@ public class DriverController {
      * Only starts the trip if OTP is verified
      */
     @PutMapping("/start-trip/{bookingId}")
+    @Transactional
     public ResponseEntity<?> startTrip(@PathVariable Long bookingId) {
         try {
             Optional<Booking> bookingOpt = bookingRepo.findById(bookingId);
@@ -379,15 +331,9 @@ public class DriverController {
             booking.setStatus("IN_PROGRESS");
             bookingRepo.save(booking);
 
-            // Notify HR
-            if (booking.getHrEmail() != null && !booking.getHrEmail().isBlank()) {
-                Notification n = new Notification();
-                n.setHrEmail(booking.getHrEmail());
-                n.setCreatedAt(java.time.LocalDateTime.now().toString());
-                n.setMessage("Trip booking #" + bookingId + " has started. Driver: " + booking.getDriverEmail());
-                n.setReadFlag(false);
-                notificationRepo.save(n);
-            }
+            // Notify HR (outbox, same transaction as the status change)
+            outbox.notifyHr(OutboxService.aggregate("booking", bookingId), "TRIP_STARTED", booking.getHrEmail(),
+                    "Trip booking #" + bookingId + " has started. Driver: " + booking.getDriverEmail());
 
             return ResponseEntity.ok(java.util.Map.of(
                 "success", true,
@@ -404,6 +350,7 @@ public class DriverController {
     }
 
     @PutMapping("/complete-trip/{bookingId}")
+    @Transactional
     public ResponseEntity<String> completeTrip(@PathVariable Long bookingId) {
         Optional<Booking> optional = bookingRepo.findById(bookingId);
         if (optional.isPresent()) {
@@ -417,17 +364,12 @@ public class DriverController {
                 driverRepo.findByEmail(driverEmail).ifPresent(driver -> {
                     driver.setAvailable(true);
                     driverRepo.save(driver);
+                    autoDispatch.driverAvailable(driver);
                 });
             }
 
-            if (booking.getHrEmail() != null && !booking.getHrEmail().isBlank()) {
-                Notification n = new Notification();
-                n.setHrEmail(booking.getHrEmail());
-                n.setCreatedAt(java.time.LocalDateTime.now().toString());
-                n.setMessage("Driver " + (driverEmail == null ? "(unknown)" : driverEmail) + " completed trip booking #" + bookingId);
-                n.setReadFlag(false);
-                notificationRepo.save(n);
-            }
+            outbox.notifyHr(OutboxService.aggregate("booking", bookingId), "TRIP_COMPLETED", booking.getHrEmail(),
+                    "Driver " + (driverEmail == null ? "(unknown)" : driverEmail) + " completed trip booking #" + bookingId);
 
             return ResponseEntity.ok("Trip marked as completed");
         } else {
@@ -1,8 +1,8 @@
 package com.example.rollbasedlogin.controller;
 
-import java.util.List;
-
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -10,12 +10,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.example.rollbasedlogin.model.Booking;
-import com.example.rollbasedlogin.model.Notification;
-import com.example.rollbasedlogin.model.WorkAssignment;
 import com.example.rollbasedlogin.repository.BookingRepository;
-import com.example.rollbasedlogin.repository.NotificationRepository;
 import com.example.rollbasedlogin.repository.WorkAssignmentRepository;
+import com.example.rollbasedlogin.service.OutboxService;
+import com.example.rollbasedlogin.util.TimeWindow;
 
 @RestController
 @RequestMapping("/api/employee")
@@ -29,19 +27,39 @@ public class EmployeeController {
     private BookingRepository bookingRepo;
 
     @Autowired
-    private NotificationRepository notificationRepo;
+    private OutboxService outbox;
 
+    // since/until (optional): ISO date or date-time window, see TimeWindow
     @GetMapping("/my-work")
-    public List<WorkAssignment> myWork(@RequestParam String email) {
-        return workRepo.findByEmployeeEmailOrderByIdDesc(email);
+    public ResponseEntity<?> myWork(@RequestParam String email,
+                                    @RequestParam(required = false) String since,
+                                    @RequestParam(required = false) String until) {
+        try {
+            TimeWindow window = TimeWindow.parse(since, until);
+            return ResponseEntity.ok(window.isUnbounded()
+                    ? workRepo.findByEmployeeEmailOrderByIdDesc(email)
+                    : workRepo.findForEmployeeBetween(email, window.fromDate(), window.toDate()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/my-bookings")
-    public List<Booking> myBookings(@RequestParam String email) {
-        return bookingRepo.findByEmployeeEmail(email);
+    public ResponseEntity<?> myBookings(@RequestParam String email,
+                                        @RequestParam(required = false) String since,
+                                        @RequestParam(required = false) String until) {
+        try {
+            TimeWindow window = TimeWindow.parse(since, until);
+            return ResponseEntity.ok(window.isUnbounded()
+                    ? bookingRepo.findByEmployeeEmail(email)
+                    : bookingRepo.findForEmployeeBetween(email, window.fromDate(), window.toDate()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @PutMapping("/complete-work")
+    @Transactional
     public org.springframework.http.ResponseEntity<String> completeWork(@RequestParam Long assignmentId, @RequestParam String employeeEmail) {
         return workRepo.findById(assignmentId)
                 .map(a -> {
@@ -51,12 +69,8 @@ public class EmployeeController {
                     a.setStatus("DONE");
                     workRepo.save(a);
 
-                    Notification n = new Notification();
-                    n.setHrEmail(a.getHrEmail());
-                    n.setCreatedAt(java.time.LocalDateTime.now().toString());
-                    n.setMessage("Employee " + employeeEmail + " completed work: " + (a.getTitle() == null ? "(no title)" : a.getTitle()));
-                    n.setReadFlag(false);
-                    notificationRepo.save(n);
+                    outbox.notifyHr(OutboxService.aggregate("assignment", a.getId()), "WORK_DONE", a.getHrEmail(),
+                            "Employee " + employeeEmail + " completed work: " + (a.getTitle() == null ? "(no title)" : a.getTitle()));
 
                     return org.springframework.http.ResponseEntity.ok("Work marked as completed");
                 })
@@ -10,6 +10,8 @@ import java.util.List;
 import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -22,14 +24,17 @@ import com.example.rollbasedlogin.dto.EmployeeSummary;
 import com.example.rollbasedlogin.model.Booking;
 import com.example.rollbasedlogin.model.ChatMessage;
 import com.example.rollbasedlogin.model.Driver;
-import com.example.rollbasedlogin.model.Notification;
 import com.example.rollbasedlogin.model.WorkAssignment;
 import com.example.rollbasedlogin.repository.BookingRepository;
-import com.example.rollbasedlogin.repository.ChatMessageRepository;
 import com.example.rollbasedlogin.repository.DriverRepository;
 import com.example.rollbasedlogin.repository.NotificationRepository;
 import com.example.rollbasedlogin.repository.UserRepository;
 import com.example.rollbasedlogin.repository.WorkAssignmentRepository;
+import com.example.rollbasedlogin.service.OutboxService;
+import com.example.rollbasedlogin.service.RideRequestIndex;
+import com.example.rollbasedlogin.service.UnreadCounterService;
+import com.example.rollbasedlogin.util.Geo;
+import com.example.rollbasedlogin.util.TimeWindow;
 
 @RestController
 @RequestMapping("/api/hr")
@@ -48,20 +53,38 @@ private WorkAssignmentRepository workRepo;
 @Autowired
 private NotificationRepository notificationRepo;
 
+@Autowired
+private UnreadCounterService unreadCounters;
+
+@Autowired
+private RideRequestIndex rideRequests;
+
 @Autowired
 private UserRepository userRepo;
 
 @Autowired
-private ChatMessageRepository chatRepo;
+private OutboxService outbox;
 
 @PostMapping("/book")
+@Transactional
 public String bookCab(@RequestBody Booking booking) {
-    booking.setBookingDate(LocalDate.now().toString());
+    booking.setBookingDate(LocalDate.now());
     // Driver should accept the ride (no auto assignment)
     booking.setStatus("REQUESTED");
     booking.setDriverEmail(null);
+    // Coordinates are optional; a half-set or out-of-range pair is dropped rather than stored
+    if (!Geo.isValid(booking.getPickupLat(), booking.getPickupLon())) {
+        booking.setPickupLat(null);
+        booking.setPickupLon(null);
+    }
+    if (!Geo.isValid(booking.getDropLat(), booking.getDropLon())) {
+        booking.setDropLat(null);
+        booking.setDropLon(null);
+    }
+    bookingRepo.save(booking);
 
-    // Notify employee (optional): request created and pending driver acceptance
+    // Notify employee (optional): request created and pending driver acceptance.
+    // Queued in the outbox, so it is sent only if the booking commits
     if (booking.getEmployeeEmail() != null && !booking.getEmployeeEmail().isBlank()) {
         ChatMessage msg = new ChatMessage();
         msg.setSenderEmail(booking.getHrEmail() == null ? "hr" : booking.getHrEmail());
@@ -70,18 +93,17 @@ public String bookCab(@RequestBody Booking booking) {
         msg.setReceiverRole("employee");
         msg.setSubject("Cab requested");
         String pickup = booking.getPickup() == null ? "(pickup not set)" : booking.getPickup();
-        String time = booking.getPickupTime() == null ? "(time not set)" : booking.getPickupTime();
+        String time = booking.getPickupTime() == null ? "(time not set)" : booking.getPickupTime().toString();
         msg.setContent(
             "A cab has been requested for you. Waiting for a driver to accept. " +
             "Pickup: " + pickup + ", Time: " + time + ", Cab Type: " + booking.getCabType()
         );
         msg.setMessageType("CAB_REQUESTED");
-        msg.setCreatedAt(java.time.LocalDateTime.now().toString());
-        msg.setReadFlag(false);
-        chatRepo.save(msg);
+        msg.setCreatedAt(java.time.LocalDateTime.now());
+        outbox.chat(OutboxService.aggregate("booking", booking.getId()), "EMPLOYEE_CHAT", msg);
     }
 
-    bookingRepo.save(booking);
+    rideRequests.opened(booking);
     if (booking.getDriverEmail() != null && !booking.getDriverEmail().isBlank()) {
         return "Booking Successful! Driver assigned: " + booking.getDriverEmail();
     }
@@ -90,7 +112,7 @@ public String bookCab(@RequestBody Booking booking) {
 
 @PostMapping("/assign-work")
 public String assignWork(@RequestBody WorkAssignment assignment) {
-    assignment.setAssignedDate(LocalDate.now().toString());
+    assignment.setAssignedDate(LocalDate.now());
     if (assignment.getStatus() == null || assignment.getStatus().isBlank()) {
         assignment.setStatus("ASSIGNED");
     }
@@ -98,27 +120,49 @@ public String assignWork(@RequestBody WorkAssignment assignment) {
     return "Work assigned successfully";
 }
 
+// since/until (optional): ISO date or date-time window, see TimeWindow
 @GetMapping("/my-assignments")
-public List<WorkAssignment> getAssignmentsByHr(@RequestParam String email) {
-    return workRepo.findByHrEmailOrderByIdDesc(email);
+public ResponseEntity<?> getAssignmentsByHr(@RequestParam String email,
+                                            @RequestParam(required = false) String since,
+                                            @RequestParam(required = false) String until) {
+    try {
+        TimeWindow window = TimeWindow.parse(since, until);
+        return ResponseEntity.ok(window.isUnbounded()
+                ? workRepo.findByHrEmailOrderByIdDesc(email)
+                : workRepo.findForHrBetween(email, window.fromDate(), window.toDate()));
+    } catch (IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
 }
 
 @GetMapping("/notifications")
-public List<Notification> getNotifications(@RequestParam String email) {
-    return notificationRepo.findByHrEmailOrderByIdDesc(email);
+public ResponseEntity<?> getNotifications(@RequestParam String email,
+                                          @RequestParam(required = false) String since,
+                                          @RequestParam(required = false) String until) {
+    try {
+        TimeWindow window = TimeWindow.parse(since, until);
+        return ResponseEntity.ok(window.isUnbounded()
+                ? notificationRepo.findByHrEmailOrderByIdDesc(email)
+                : notificationRepo.findForHrBetween(email, window.from(), window.to()));
+    } catch (IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
 }
 
 @GetMapping("/notifications/unread-count")
 public long unreadCount(@RequestParam String email) {
-    return notificationRepo.countByHrEmailAndReadFlagFalse(email);
+    return unreadCounters.notificationUnread(email);
 }
 
 @org.springframework.web.bind.annotation.PutMapping("/notifications/{id}/read")
 public org.springframework.http.ResponseEntity<String> markRead(@org.springframework.web.bind.annotation.PathVariable Long id) {
     return notificationRepo.findById(id)
             .map(n -> {
-                n.setReadFlag(true);
-                notificationRepo.save(n);
+                if (!n.isReadFlag()) {
+                    n.setReadFlag(true);
+                    notificationRepo.save(n);
+                    unreadCounters.notificationRead(n);
+                }
                 return org.springframework.http.ResponseEntity.ok("Marked as read");
             })
             .orElseGet(() -> org.springframework.http.ResponseEntity.status(404).body("Notification not found"));
@@ -127,8 +171,17 @@ public org.springframework.http.ResponseEntity<String> markRead(@org.springframe
 
 
     @GetMapping("/mybookings")
-    public java.util.List<Booking> getHRBookings(@RequestParam String email) {
-        return bookingRepo.findByHrEmail(email);
+    public ResponseEntity<?> getHRBookings(@RequestParam String email,
+                                           @RequestParam(required = false) String since,
+                                           @RequestParam(required = false) String until) {
+        try {
+            TimeWindow window = TimeWindow.parse(since, until);
+            return ResponseEntity.ok(window.isUnbounded()
+                    ? bookingRepo.findByHrEmail(email)
+                    : bookingRepo.findForHrBetween(email, window.fromDate(), window.toDate()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
 
@@ -0,0 +1,38 @@
+package com.example.rollbasedlogin.dto;
+
+import java.time.LocalDateTime;
+
+import com.example.rollbasedlogin.model.ChatMessage;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Live event for a new or updated chat message.
+ * An immutable copy of the fields clients show, taken once from the entity, so the
+ * publisher serializes a plain value (never a JPA entity) and reuses the bytes for
+ * every destination. Field names match the ChatMessage JSON of the HTTP endpoints;
+ * null fields are left out.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ChatMessageEvent(
+        String type,
+        Long id,
+        String senderEmail,
+        String senderRole,
+        String receiverEmail,
+        String receiverRole,
+        String conversationKey,
+        String subject,
+        String content,
+        String messageType,
+        Long tripId,
+        LocalDateTime createdAt,
+        boolean readFlag) {
+
+    public static final String TYPE = "MESSAGE";
+
+    public static ChatMessageEvent of(ChatMessage m) {
+        return new ChatMessageEvent(TYPE, m.getId(), m.getSenderEmail(), m.getSenderRole(),
+                m.getReceiverEmail(), m.getReceiverRole(), m.getConversationKey(), m.getSubject(),
+                m.getContent(), m.getMessageType(), m.getTripId(), m.getCreatedAt(), m.isReadFlag());
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.rollbasedlogin.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import com.example.rollbasedlogin.model.Booking;
+import com.example.rollbasedlogin.model.ChatMessage;
+
+/**
+ * One row of the driver dashboard: the booking (same field names as the Booking JSON of
+ * /api/driver/assigned-trips) plus the driver's unread trip messages and the newest
+ * message of the trip chat, or null when nobody has written yet.
+ */
+public record DriverTripSummary(
+        Long id,
+        String employeeName,
+        String employeeEmail,
+        String pickup,
+        String dropLocation,
+        LocalTime pickupTime,
+        LocalDate bookingDate,
+        String cabType,
+        String status,
+        long unreadCount,
+        ChatMessageEvent lastMessage) {
+
+    public static DriverTripSummary of(Booking b, long unreadCount, ChatMessage lastMessage) {
+        return new DriverTripSummary(b.getId(), b.getEmployeeName(), b.getEmployeeEmail(), b.getPickup(),
+                b.getDropLocation(), b.getPickupTime(), b.getBookingDate(), b.getCabType(), b.getStatus(),
+                unreadCount, lastMessage == null ? null : ChatMessageEvent.of(lastMessage));
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.rollbasedlogin.dto;
+
+/**
+ * Compact live event sent after a bulk "mark read up to id".
+ * Replaces republishing every updated message entity.
+ *
+ * - conversationKey: set for two-party threads
+ * - tripId: set for trip chats
+ * - upToId / count: highest id covered and how many messages flipped to read
+ */
+public class ReadReceiptEvent {
+    private final String type = "READ_RECEIPT";
+    private String readerEmail;
+    private String conversationKey;
+    private Long tripId;
+    private long upToId;
+    private int count;
+
+    public ReadReceiptEvent() {
+    }
+
+    public ReadReceiptEvent(String readerEmail, String conversationKey, Long tripId, long upToId, int count) {
+        this.readerEmail = readerEmail;
+        this.conversationKey = conversationKey;
+        this.tripId = tripId;
+        this.upToId = upToId;
+        this.count = count;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getReaderEmail() {
+        return readerEmail;
+    }
+
+    public void setReaderEmail(String readerEmail) {
+        this.readerEmail = readerEmail;
+    }
+
+    public String getConversationKey() {
+        return conversationKey;
+    }
+
+    public void setConversationKey(String conversationKey) {
+        this.conversationKey = conversationKey;
+    }
+
+    public Long getTripId() {
+        return tripId;
+    }
+
+    public void setTripId(Long tripId) {
+        this.tripId = tripId;
+    }
+
+    public long getUpToId() {
+        return upToId;
+    }
+
+    public void setUpToId(long upToId) {
+        this.upToId = upToId;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+}
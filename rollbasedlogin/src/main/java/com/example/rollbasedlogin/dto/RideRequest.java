@@ -0,0 +1,32 @@
+package com.example.rollbasedlogin.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import com.example.rollbasedlogin.model.Booking;
+
+/**
+ * An open (REQUESTED) booking as shown in the drivers' ride-request list.
+ * Immutable copy taken from the entity when the request is opened; fields keep
+ * their Booking JSON names, so existing ride-request screens render it unchanged.
+ */
+public record RideRequest(
+        Long id,
+        String employeeName,
+        String employeeEmail,
+        String pickup,
+        String dropLocation,
+        LocalTime pickupTime,
+        LocalDate bookingDate,
+        String cabType,
+        String status,
+        String hrEmail,
+        Double pickupLat,
+        Double pickupLon) {
+
+    public static RideRequest of(Booking b) {
+        return new RideRequest(b.getId(), b.getEmployeeName(), b.getEmployeeEmail(), b.getPickup(),
+                b.getDropLocation(), b.getPickupTime(), b.getBookingDate(), b.getCabType(), b.getStatus(),
+                b.getHrEmail(), b.getPickupLat(), b.getPickupLon());
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.rollbasedlogin.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Live change to the open ride requests of one cab type, sent on
+ * /topic/ride-requests.{cabType}.
+ *
+ * - RIDE_REQUEST_OPENED: {@code request} is the new booking
+ * - RIDE_REQUEST_CLOSED: the booking is no longer open (accepted by a driver);
+ *   only {@code bookingId} is set
+ *
+ * Applying an event is idempotent, so clients subscribe first, then load the
+ * snapshot, then apply whatever arrived in between.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record RideRequestEvent(String type, Long bookingId, String cabType, RideRequest request) {
+
+    public static final String OPENED = "RIDE_REQUEST_OPENED";
+    public static final String CLOSED = "RIDE_REQUEST_CLOSED";
+
+    public static RideRequestEvent opened(RideRequest request) {
+        return new RideRequestEvent(OPENED, request.id(), request.cabType(), request);
+    }
+
+    public static RideRequestEvent closed(Long bookingId, String cabType) {
+        return new RideRequestEvent(CLOSED, bookingId, cabType, null);
+    }
+}
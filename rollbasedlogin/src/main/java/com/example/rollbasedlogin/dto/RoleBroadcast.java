@@ -0,0 +1,53 @@
+package com.example.rollbasedlogin.dto;
+
+import java.time.LocalDateTime;
+
+import com.example.rollbasedlogin.model.ChatMessage;
+
+/**
+ * Immutable copy of a role broadcast (receiverRole set, no receiverEmail) as RoleBroadcastCache
+ * keeps it and forwards it to the other nodes. Unlike the ChatMessage JSON it includes the
+ * normalized columns and sent_at, so every node caches the same thing; {@link #toMessage}
+ * gives each reader its own entity instance.
+ */
+public record RoleBroadcast(
+        Long id,
+        String senderEmail,
+        String senderRole,
+        String receiverEmail,
+        String receiverRole,
+        String senderEmailNorm,
+        String receiverEmailNorm,
+        String receiverRoleNorm,
+        String conversationKey,
+        String subject,
+        String content,
+        String messageType,
+        Long tripId,
+        LocalDateTime createdAt,
+        LocalDateTime sentAt,
+        boolean readFlag) {
+
+    public static RoleBroadcast of(ChatMessage m) {
+        return new RoleBroadcast(m.getId(), m.getSenderEmail(), m.getSenderRole(), m.getReceiverEmail(),
+                m.getReceiverRole(), m.getSenderEmailNorm(), m.getReceiverEmailNorm(), m.getReceiverRoleNorm(),
+                m.getConversationKey(), m.getSubject(), m.getContent(), m.getMessageType(), m.getTripId(),
+                m.getCreatedAt(), m.getSentAt(), m.isReadFlag());
+    }
+
+    public ChatMessage toMessage() {
+        ChatMessage m = new ChatMessage();
+        m.setSenderEmail(senderEmail);
+        m.setSenderRole(senderRole);
+        m.setReceiverEmail(receiverEmail);
+        m.setReceiverRole(receiverRole);
+        m.setSubject(subject);
+        m.setContent(content);
+        m.setMessageType(messageType);
+        m.setTripId(tripId);
+        m.setCreatedAt(createdAt);
+        m.setReadFlag(readFlag);
+        m.restore(id, sentAt);
+        return m;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.rollbasedlogin.dto;
+
+import java.time.LocalDateTime;
+
+import com.example.rollbasedlogin.model.OutboxEvent;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Where one side effect of an accepted trip stands (OTP SMS, driver SMS, HR notification,
+ * assignment chat message), read from its outbox row. {@code state} is one of PENDING
+ * (not tried yet), RUNNING (being delivered), RETRYING (failed, will be tried again),
+ * DONE or FAILED (given up); {@code detail} is the last error.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TripEffectStatus(
+        String effect,
+        String state,
+        String detail,
+        int attempts,
+        LocalDateTime sentAt) {
+
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String RETRYING = "RETRYING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    public static TripEffectStatus pending(String effect) {
+        return new TripEffectStatus(effect, PENDING, null, 0, null);
+    }
+
+    public static TripEffectStatus of(OutboxEvent e) {
+        String state;
+        if (OutboxEvent.SENT.equals(e.getStatus())) state = DONE;
+        else if (OutboxEvent.DEAD.equals(e.getStatus())) state = FAILED;
+        else if (e.getAttempts() == 0) state = PENDING;
+        else state = e.getLastError() == null ? RUNNING : RETRYING;
+        return new TripEffectStatus(e.getEffect(), state, e.getLastError(), e.getAttempts(), e.getSentAt());
+    }
+
+    public boolean finished() {
+        return DONE.equals(state) || FAILED.equals(state);
+    }
+}
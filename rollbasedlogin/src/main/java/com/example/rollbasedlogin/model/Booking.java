@@ -1,12 +1,25 @@
 package com.example.rollbasedlogin.model;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import org.hibernate.annotations.ColumnDefault;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_booking_hr_date", columnList = "hr_email, booking_date"),
+        @Index(name = "idx_booking_employee_date", columnList = "employee_email, booking_date"),
+        @Index(name = "idx_booking_driver_date", columnList = "driver_email, booking_date"),
+        @Index(name = "idx_booking_driver_id", columnList = "driver_email, id")
+})
 public class Booking {
 
     @Id
@@ -17,15 +30,25 @@ public class Booking {
     private String employeeEmail;
     private String pickup;
     private String dropLocation;
-    private String pickupTime;
+    // Optional WGS84 coordinates of pickup and drop; auto-dispatch prefers drivers near the pickup
+    private Double pickupLat;
+    private Double pickupLon;
+    private Double dropLat;
+    private Double dropLon;
+    private LocalTime pickupTime;   // time of day on bookingDate
     private String cabType;
 
-    private String bookingDate;  // formatted string: yyyy-MM-dd
+    private LocalDate bookingDate;
     private String status;       // REQUESTED / ASSIGNED / COMPLETED / CANCELLED
 
     private String hrEmail;
     private String driverEmail; // Assigned driver (nullable)
 
+    // Optimistic lock; default 0 so ddl-auto can add it to existing rows. Not part of the JSON.
+    @Version
+    @ColumnDefault("0")
+    private long version;
+
     // --- Getters & Setters ---
 
     public Long getId() {
@@ -68,11 +91,43 @@ public class Booking {
         this.dropLocation = dropLocation;
     }
 
-    public String getPickupTime() {
+    public Double getPickupLat() {
+        return pickupLat;
+    }
+
+    public void setPickupLat(Double pickupLat) {
+        this.pickupLat = pickupLat;
+    }
+
+    public Double getPickupLon() {
+        return pickupLon;
+    }
+
+    public void setPickupLon(Double pickupLon) {
+        this.pickupLon = pickupLon;
+    }
+
+    public Double getDropLat() {
+        return dropLat;
+    }
+
+    public void setDropLat(Double dropLat) {
+        this.dropLat = dropLat;
+    }
+
+    public Double getDropLon() {
+        return dropLon;
+    }
+
+    public void setDropLon(Double dropLon) {
+        this.dropLon = dropLon;
+    }
+
+    public LocalTime getPickupTime() {
         return pickupTime;
     }
 
-    public void setPickupTime(String pickupTime) {
+    public void setPickupTime(LocalTime pickupTime) {
         this.pickupTime = pickupTime;
     }
 
@@ -84,11 +139,11 @@ public class Booking {
         this.cabType = cabType;
     }
 
-    public String getBookingDate() {
+    public LocalDate getBookingDate() {
         return bookingDate;
     }
 
-    public void setBookingDate(String bookingDate) {
+    public void setBookingDate(LocalDate bookingDate) {
         this.bookingDate = bookingDate;
     }
 
@@ -1,16 +1,36 @@
 package com.example.rollbasedlogin.model;
 
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 
 @Entity
+@Table(name = "chat_message", indexes = {
+        @Index(name = "idx_chat_receiver_email_norm_id", columnList = "receiver_email_norm, id"),
+        @Index(name = "idx_chat_receiver_role_norm_id", columnList = "receiver_role_norm, receiver_email_norm, id"),
+        @Index(name = "idx_chat_conversation_key_id", columnList = "conversation_key, id"),
+        @Index(name = "idx_chat_trip_id_id", columnList = "trip_id, id")
+})
 public class ChatMessage {
 
+    // Sequence (not IDENTITY) so inserts can be JDBC-batched; see ChatIngestService.
+    // One nextval per id, no pooled blocks: nodes must not hand out ids out of order, since
+    // delta sync (id > sinceId) and the keyset cursors assume ids grow as messages arrive.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_message_seq")
+    @SequenceGenerator(name = "chat_message_seq", sequenceName = "chat_message_seq", allocationSize = 1)
     private Long id;
 
     @Column(nullable = false)
@@ -22,6 +42,25 @@ public class ChatMessage {
 
     private String receiverRole;
 
+    // Lower-cased copies of senderEmail/receiverEmail/receiverRole, maintained on write so
+    // inbox and thread lookups are plain equality matches on an index instead of lower(...) scans.
+    @JsonIgnore
+    @Column(name = "sender_email_norm")
+    private String senderEmailNorm;
+
+    @JsonIgnore
+    @Column(name = "receiver_email_norm")
+    private String receiverEmailNorm;
+
+    @JsonIgnore
+    @Column(name = "receiver_role_norm")
+    private String receiverRoleNorm;
+
+    // Canonical two-party thread key: "a|b" with the normalized emails in sorted order,
+    // so both directions of a thread share one (conversation_key, id) index range.
+    @Column(name = "conversation_key", length = 512)
+    private String conversationKey;
+
     private String subject;
 
     @Column(length = 4000, nullable = false)
@@ -32,7 +71,13 @@ public class ChatMessage {
     private Long tripId; // Link to booking/trip ID for trip-specific messages
 
     @Column(nullable = false)
-    private String createdAt; // keep consistent with Notification.createdAt (String)
+    private LocalDateTime createdAt;
+
+    // Partition key of chat_message (monthly ranges, see ChatPartitionService); copied from createdAt on insert.
+    // Nullable in the mapping only so ddl-auto can add it to existing tables.
+    @JsonIgnore
+    @Column(name = "sent_at", updatable = false)
+    private LocalDateTime sentAt;
 
     @Column(nullable = false)
     private boolean readFlag;
@@ -97,14 +142,18 @@ public class ChatMessage {
         this.messageType = messageType;
     }
 
-    public String getCreatedAt() {
+    public LocalDateTime getCreatedAt() {
         return createdAt;
     }
 
-    public void setCreatedAt(String createdAt) {
+    public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
 
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
     public boolean isReadFlag() {
         return readFlag;
     }
@@ -120,4 +169,63 @@ public class ChatMessage {
     public void setTripId(Long tripId) {
         this.tripId = tripId;
     }
+
+    public String getSenderEmailNorm() {
+        return senderEmailNorm;
+    }
+
+    public String getReceiverEmailNorm() {
+        return receiverEmailNorm;
+    }
+
+    public String getReceiverRoleNorm() {
+        return receiverRoleNorm;
+    }
+
+    public String getConversationKey() {
+        return conversationKey;
+    }
+
+    /**
+     * Sets the generated columns of a copy built outside JPA (see RoleBroadcast): the id,
+     * sent_at and the normalized keys, which are derived from the raw fields as on persist.
+     */
+    public void restore(Long id, LocalDateTime sentAt) {
+        this.id = id;
+        this.sentAt = sentAt;
+        normalizeKeys();
+    }
+
+    /**
+     * Drops an id handed out by an insert that was rolled back, so saving this instance
+     * again inserts it instead of merging a row that does not exist.
+     */
+    public void clearId() {
+        this.id = null;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void normalizeKeys() {
+        if (this.createdAt == null) this.createdAt = LocalDateTime.now();
+        if (this.sentAt == null) this.sentAt = createdAt;
+        this.senderEmailNorm = normKey(senderEmail);
+        this.receiverEmailNorm = normKey(receiverEmail);
+        this.receiverRoleNorm = normKey(receiverRole);
+        this.conversationKey = conversationKey(senderEmail, receiverEmail);
+    }
+
+    public static String conversationKey(String a, String b) {
+        String x = normKey(a);
+        String y = normKey(b);
+        if (x == null || y == null) return null;
+        return x.compareTo(y) <= 0 ? x + "|" + y : y + "|" + x;
+    }
+
+    public static String normKey(String s) {
+        if (s == null) return null;
+        String t = s.trim();
+        if (t.isEmpty()) return null;
+        return t.toLowerCase(Locale.ROOT);
+    }
 }
@@ -0,0 +1,120 @@
+package com.example.rollbasedlogin.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * One row per (participant, two-party thread): the chat sidebar entry.
+ * Maintained incrementally by ChatMessageService on every send/read, so listing
+ * a user's conversations never aggregates over chat_message.
+ */
+@Entity
+@Table(name = "conversation_summary",
+        uniqueConstraints = @UniqueConstraint(name = "uk_conv_summary_owner_key", columnNames = {"owner_email", "conversation_key"}),
+        indexes = @Index(name = "idx_conv_summary_owner_last", columnList = "owner_email, last_message_id"))
+public class ConversationSummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "owner_email", nullable = false)
+    private String ownerEmail;      // normalized (ChatMessage.normKey)
+
+    @Column(name = "peer_email", nullable = false)
+    private String peerEmail;       // normalized (ChatMessage.normKey)
+
+    @Column(name = "conversation_key", nullable = false, length = 512)
+    private String conversationKey;
+
+    @Column(name = "last_message_id", nullable = false)
+    private Long lastMessageId;
+
+    @Column(name = "last_preview", length = 200)
+    private String lastPreview;
+
+    @Column(name = "last_sender_email")
+    private String lastSenderEmail;
+
+    @Column(name = "last_at")
+    private LocalDateTime lastAt;
+
+    @Column(name = "unread_count", nullable = false)
+    private int unreadCount;
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getOwnerEmail() {
+        return ownerEmail;
+    }
+
+    public void setOwnerEmail(String ownerEmail) {
+        this.ownerEmail = ownerEmail;
+    }
+
+    public String getPeerEmail() {
+        return peerEmail;
+    }
+
+    public void setPeerEmail(String peerEmail) {
+        this.peerEmail = peerEmail;
+    }
+
+    public String getConversationKey() {
+        return conversationKey;
+    }
+
+    public void setConversationKey(String conversationKey) {
+        this.conversationKey = conversationKey;
+    }
+
+    public Long getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public void setLastMessageId(Long lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+
+    public String getLastPreview() {
+        return lastPreview;
+    }
+
+    public void setLastPreview(String lastPreview) {
+        this.lastPreview = lastPreview;
+    }
+
+    public String getLastSenderEmail() {
+        return lastSenderEmail;
+    }
+
+    public void setLastSenderEmail(String lastSenderEmail) {
+        this.lastSenderEmail = lastSenderEmail;
+    }
+
+    public LocalDateTime getLastAt() {
+        return lastAt;
+    }
+
+    public void setLastAt(LocalDateTime lastAt) {
+        this.lastAt = lastAt;
+    }
+
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+
+    public void setUnreadCount(int unreadCount) {
+        this.unreadCount = unreadCount;
+    }
+}
@@ -1,10 +1,15 @@
 package com.example.rollbasedlogin.model;
 
 
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.ColumnDefault;
+
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
 
 @Entity
 public class Driver {
@@ -18,6 +23,16 @@ public class Driver {
     private String cabType; // "Cab" or "Van"
     private boolean available = true;
     private String phoneNumber; // Phone number for OTP delivery
+    private LocalDateTime lastAssignedAt; // set by the trip claim; auto-dispatch serves the longest-idle driver first
+    // Last reported position (PUT /api/driver/position), null until the driver sends one
+    private Double lat;
+    private Double lon;
+    private LocalDateTime positionUpdatedAt;
+
+    // Optimistic lock; default 0 so ddl-auto can add it to existing rows. Not part of the JSON.
+    @Version
+    @ColumnDefault("0")
+    private long version;
 
     // --- Getters & Setters ---
 
@@ -68,4 +83,36 @@ public class Driver {
     public void setPhoneNumber(String phoneNumber) {
         this.phoneNumber = phoneNumber;
     }
+
+    public LocalDateTime getLastAssignedAt() {
+        return lastAssignedAt;
+    }
+
+    public void setLastAssignedAt(LocalDateTime lastAssignedAt) {
+        this.lastAssignedAt = lastAssignedAt;
+    }
+
+    public Double getLat() {
+        return lat;
+    }
+
+    public void setLat(Double lat) {
+        this.lat = lat;
+    }
+
+    public Double getLon() {
+        return lon;
+    }
+
+    public void setLon(Double lon) {
+        this.lon = lon;
+    }
+
+    public LocalDateTime getPositionUpdatedAt() {
+        return positionUpdatedAt;
+    }
+
+    public void setPositionUpdatedAt(LocalDateTime positionUpdatedAt) {
+        this.positionUpdatedAt = positionUpdatedAt;
+    }
 }
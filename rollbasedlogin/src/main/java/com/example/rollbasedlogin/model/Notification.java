@@ -1,11 +1,19 @@
 package com.example.rollbasedlogin.model;
 
+import java.time.LocalDateTime;
+
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_notification_hr_created", columnList = "hr_email, created_at"),
+        @Index(name = "idx_notification_hr_unread", columnList = "hr_email, read_flag")
+})
 public class Notification {
 
     @Id
@@ -14,7 +22,7 @@ public class Notification {
 
     private String hrEmail;
     private String message;
-    private String createdAt; // yyyy-MM-ddTHH:mm:ss
+    private LocalDateTime createdAt;
     private boolean readFlag = false;
 
     public Long getId() {
@@ -41,11 +49,11 @@ public class Notification {
         this.message = message;
     }
 
-    public String getCreatedAt() {
+    public LocalDateTime getCreatedAt() {
         return createdAt;
     }
 
-    public void setCreatedAt(String createdAt) {
+    public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
 
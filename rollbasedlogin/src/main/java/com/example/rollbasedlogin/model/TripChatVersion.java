@@ -0,0 +1,39 @@
+package com.example.rollbasedlogin.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Change counter for one trip's chat. Bumped by ChatMessageService in the same
+ * transaction as every trip message insert or read-flag change, so trip chat polls
+ * can answer "nothing changed" (304) with a primary-key lookup.
+ */
+@Entity
+@Table(name = "trip_chat_version")
+public class TripChatVersion {
+
+    @Id
+    @Column(name = "trip_id")
+    private Long tripId;
+
+    @Column(nullable = false)
+    private long version;
+
+    public Long getTripId() {
+        return tripId;
+    }
+
+    public void setTripId(Long tripId) {
+        this.tripId = tripId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
@@ -1,11 +1,19 @@
 package com.example.rollbasedlogin.model;
 
+import java.time.LocalDate;
+
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_work_hr_assigned", columnList = "hr_email, assigned_date"),
+        @Index(name = "idx_work_employee_assigned", columnList = "employee_email, assigned_date")
+})
 public class WorkAssignment {
 
     @Id
@@ -19,7 +27,7 @@ public class WorkAssignment {
     private String description;
 
     private String status; // ASSIGNED / IN_PROGRESS / DONE
-    private String assignedDate; // yyyy-MM-dd
+    private LocalDate assignedDate;
 
     public Long getId() {
         return id;
@@ -69,11 +77,11 @@ public class WorkAssignment {
         this.status = status;
     }
 
-    public String getAssignedDate() {
+    public LocalDate getAssignedDate() {
         return assignedDate;
     }
 
-    public void setAssignedDate(String assignedDate) {
+    public void setAssignedDate(LocalDate assignedDate) {
         this.assignedDate = assignedDate;
     }
 }
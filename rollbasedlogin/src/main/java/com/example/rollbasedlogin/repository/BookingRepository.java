@@ -2,9 +2,14 @@ package com.example.rollbasedlogin.repository;
 
 
 
+import java.time.LocalDate;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.rollbasedlogin.model.Booking;
 
@@ -15,5 +20,54 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
 
     List<Booking> findByStatusAndCabTypeOrderByIdDesc(String status, String cabType);
 
+    List<Booking> findByStatus(String status);
+
     boolean existsByDriverEmailAndStatus(String driverEmail, String status);
+
+    // Atomic "REQUESTED -> ASSIGNED" for trip acceptance; 0 rows means another driver won.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Booking b set b.driverEmail = :driver, b.status = 'ASSIGNED', b.version = b.version + 1 " +
+            "where b.id = :id and b.status = 'REQUESTED'")
+    int claim(@Param("id") Long bookingId, @Param("driver") String driverEmail);
+
+    // Booking-date windows ("to" is exclusive), backed by the (…_email, booking_date) indexes.
+    @Query("select b from Booking b where b.hrEmail = :email " +
+            "and b.bookingDate >= :from and b.bookingDate < :to order by b.id desc")
+    List<Booking> findForHrBetween(@Param("email") String hrEmail,
+                                   @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("select b from Booking b where b.employeeEmail = :email " +
+            "and b.bookingDate >= :from and b.bookingDate < :to order by b.id desc")
+    List<Booking> findForEmployeeBetween(@Param("email") String employeeEmail,
+                                         @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("select b from Booking b where b.driverEmail = :email " +
+            "and b.bookingDate >= :from and b.bookingDate < :to order by b.id desc")
+    List<Booking> findForDriverBetween(@Param("email") String driverEmail,
+                                       @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("select b from Booking b where b.status = :status and b.cabType = :cabType " +
+            "and b.bookingDate >= :from and b.bookingDate < :to order by b.id desc")
+    List<Booking> findByStatusAndCabTypeBetween(@Param("status") String status, @Param("cabType") String cabType,
+                                                @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Driver dashboard in one round trip: rows of [Booking, unread count, latest ChatMessage or null]
+    // for the driver's bookings, newest first (keyset on id). Both chat lookups are per-trip
+    // range scans on (trip_id, id); status '' means any status.
+    @Query("select b, " +
+            "  (select count(u) from ChatMessage u " +
+            "   where u.tripId = b.id and u.receiverEmailNorm = :me and u.readFlag = false), " +
+            "  last " +
+            "from Booking b " +
+            "left join ChatMessage last on last.id = " +
+            "  (select max(m.id) from ChatMessage m " +
+            "   where m.tripId = b.id and (m.senderEmailNorm = :me or m.receiverEmailNorm = :me)) " +
+            "where b.driverEmail = :email and b.id < :beforeId " +
+            "  and (:status = '' or upper(b.status) = :status) " +
+            "order by b.id desc")
+    List<Object[]> driverTripsWithMessages(@Param("email") String driverEmail,
+                                           @Param("me") String driverEmailNorm,
+                                           @Param("status") String status,
+                                           @Param("beforeId") long beforeId,
+                                           Pageable page);
 }
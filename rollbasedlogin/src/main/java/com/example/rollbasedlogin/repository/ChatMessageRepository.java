@@ -1,8 +1,12 @@
 package com.example.rollbasedlogin.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -10,28 +14,89 @@ import com.example.rollbasedlogin.model.ChatMessage;
 
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
 
+    // Inbox pages (keyset on id). Direct and role messages are read separately so each
+    // side is a single range scan on its (norm, id) index; ChatInboxService merges them.
+    // Keys must already be normalized with ChatMessage.normKey.
+    // The [from, to) sent_at window lets Postgres prune chat_message partitions (see ChatInboxService).
     @Query("select m from ChatMessage m " +
-            "where (lower(m.receiverEmail) = lower(:email)) " +
-            "   or (m.receiverEmail is null and m.receiverRole is not null and lower(m.receiverRole) = lower(:role)) " +
+            "where m.receiverEmailNorm = :email and m.id < :beforeId " +
+            "  and m.sentAt >= :from and m.sentAt < :to " +
             "order by m.id desc")
-    List<ChatMessage> inbox(@Param("email") String email, @Param("role") String role);
+    List<ChatMessage> directInboxPage(@Param("email") String email, @Param("beforeId") long beforeId,
+                                      @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable page);
 
     @Query("select m from ChatMessage m " +
-            "where (lower(m.senderEmail) = lower(:a) and lower(m.receiverEmail) = lower(:b)) " +
-            "   or (lower(m.senderEmail) = lower(:b) and lower(m.receiverEmail) = lower(:a)) " +
+            "where m.receiverRoleNorm = :role and m.receiverEmailNorm is null and m.id < :beforeId " +
+            "  and m.sentAt >= :from and m.sentAt < :to " +
+            "order by m.id desc")
+    List<ChatMessage> roleInboxPage(@Param("role") String role, @Param("beforeId") long beforeId,
+                                    @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable page);
+
+    // Two-party thread, newest first (keyset on id); one range scan on (conversation_key, id) per partition.
+    @Query("select m from ChatMessage m " +
+            "where m.conversationKey = :key and m.id < :beforeId " +
+            "  and m.sentAt >= :from and m.sentAt < :to " +
+            "order by m.id desc")
+    List<ChatMessage> conversationPage(@Param("key") String conversationKey, @Param("beforeId") long beforeId,
+                                       @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable page);
+
+    // Trip chat as seen by one participant, oldest first; sinceId > 0 returns only newer
+    // messages (delta polling). Range scan on (trip_id, id).
+    @Query("select m from ChatMessage m " +
+            "where m.tripId = :tripId and m.id > :sinceId " +
+            "  and (m.senderEmailNorm = :me or m.receiverEmailNorm = :me) " +
             "order by m.id asc")
-    List<ChatMessage> conversation(@Param("a") String a, @Param("b") String b);
+    List<ChatMessage> tripMessagesFor(@Param("tripId") Long tripId, @Param("me") String me, @Param("sinceId") long sinceId);
 
-    // Find all messages for a specific trip/booking
-    @Query("select m from ChatMessage m where m.tripId = :tripId order by m.id asc")
-    List<ChatMessage> findByTripId(@Param("tripId") Long tripId);
+    // Trips touched by a bulk conversation read (their trip chat versions must change)
+    @Query("select distinct m.tripId from ChatMessage m " +
+            "where m.conversationKey = :key and m.receiverEmailNorm = :reader and m.readFlag = false and m.id <= :upToId " +
+            "  and m.tripId is not null")
+    List<Long> unreadTripIdsInConversation(@Param("key") String conversationKey, @Param("reader") String reader, @Param("upToId") long upToId);
 
-    // Find messages between a driver and employee for a specific trip
+    // Find messages between a driver and employee for a specific trip (key from ChatMessage.conversationKey)
     @Query("select m from ChatMessage m " +
-            "where m.tripId = :tripId " +
-            "  and ((lower(m.senderEmail) = lower(:sender) and lower(m.receiverEmail) = lower(:receiver)) " +
-            "    or (lower(m.senderEmail) = lower(:receiver) and lower(m.receiverEmail) = lower(:sender))) " +
+            "where m.conversationKey = :key and m.tripId = :tripId " +
             "order by m.id asc")
-    List<ChatMessage> findTripConversation(@Param("tripId") Long tripId, @Param("sender") String sender, @Param("receiver") String receiver);
-}
+    List<ChatMessage> findTripConversation(@Param("tripId") Long tripId, @Param("key") String conversationKey);
+
+    // Bulk read receipts: one set-based UPDATE per thread/trip instead of findById+save per message.
+    @Modifying
+    @Query("update ChatMessage m set m.readFlag = true " +
+            "where m.conversationKey = :key and m.receiverEmailNorm = :reader and m.readFlag = false and m.id <= :upToId")
+    int markConversationReadUpTo(@Param("key") String conversationKey, @Param("reader") String reader, @Param("upToId") long upToId);
+
+    // Unread (id, conversation_key) of a trip for one reader, row-locked: a concurrent read receipt
+    // waits, then no longer sees them as unread, so each row is counted off the summaries once
+    @Query(value = "select id, conversation_key from chat_message " +
+            "where trip_id = :tripId and receiver_email_norm = :reader and read_flag = false and id <= :upToId " +
+            "order by id for update",
+            nativeQuery = true)
+    List<Object[]> lockUnreadForTrip(@Param("tripId") Long tripId, @Param("reader") String reader, @Param("upToId") long upToId);
 
+    @Modifying
+    @Query("update ChatMessage m set m.readFlag = true where m.id in :ids and m.readFlag = false")
+    int markReadByIds(@Param("ids") Collection<Long> ids);
+
+    // Full-text search over subject + content, restricted to messages the caller sent or
+    // received (directly or as a role broadcast). search_tsv is a stored generated column
+    // with a GIN index (ChatSchemaInitializer). Ranked, keyset-paginated on (rank, id).
+    // Returns [id, rank] rows; ChatSearchService loads the entities.
+    @Query(value = "select id, rank from ( " +
+            "  select m.id, ts_rank(m.search_tsv, q) as rank " +
+            "  from chat_message m, websearch_to_tsquery('simple', :query) q " +
+            "  where m.search_tsv @@ q " +
+            "    and (m.sender_email_norm = :me or m.receiver_email_norm = :me " +
+            "         or (m.receiver_role_norm = :role and m.receiver_email_norm is null)) " +
+            ") hits " +
+            "where rank < :beforeRank or (rank = :beforeRank and id < :beforeId) " +
+            "order by rank desc, id desc " +
+            "limit :limit",
+            nativeQuery = true)
+    List<Object[]> searchPage(@Param("query") String query,
+                              @Param("me") String me,
+                              @Param("role") String role,
+                              @Param("beforeRank") double beforeRank,
+                              @Param("beforeId") long beforeId,
+                              @Param("limit") int limit);
+}
@@ -0,0 +1,61 @@
+package com.example.rollbasedlogin.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.rollbasedlogin.model.ConversationSummary;
+
+public interface ConversationSummaryRepository extends JpaRepository<ConversationSummary, Long> {
+
+    // Sidebar page for one user, most recently active first (keyset on last_message_id).
+    @Query("select s from ConversationSummary s " +
+            "where s.ownerEmail = :owner and s.lastMessageId < :beforeId " +
+            "order by s.lastMessageId desc")
+    List<ConversationSummary> page(@Param("owner") String ownerEmail, @Param("beforeId") long beforeId, Pageable page);
+
+    // Atomic upsert so concurrent sends to the same thread can't lose updates.
+    // "last_*" only moves forward; unread is added as a delta.
+    @Modifying
+    @Query(value = "insert into conversation_summary " +
+            "  (owner_email, peer_email, conversation_key, last_message_id, last_preview, last_sender_email, last_at, unread_count) " +
+            "values (:owner, :peer, :key, :messageId, :preview, :sender, :at, :unreadDelta) " +
+            "on conflict (owner_email, conversation_key) do update set " +
+            "  last_preview = case when excluded.last_message_id > conversation_summary.last_message_id " +
+            "                      then excluded.last_preview else conversation_summary.last_preview end, " +
+            "  last_sender_email = case when excluded.last_message_id > conversation_summary.last_message_id " +
+            "                      then excluded.last_sender_email else conversation_summary.last_sender_email end, " +
+            "  last_at = case when excluded.last_message_id > conversation_summary.last_message_id " +
+            "                      then excluded.last_at else conversation_summary.last_at end, " +
+            "  last_message_id = greatest(conversation_summary.last_message_id, excluded.last_message_id), " +
+            "  unread_count = conversation_summary.unread_count + excluded.unread_count",
+            nativeQuery = true)
+    int upsert(@Param("owner") String ownerEmail,
+               @Param("peer") String peerEmail,
+               @Param("key") String conversationKey,
+               @Param("messageId") long messageId,
+               @Param("preview") String preview,
+               @Param("sender") String senderEmail,
+               @Param("at") LocalDateTime at,
+               @Param("unreadDelta") int unreadDelta);
+
+    @Modifying
+    @Query("update ConversationSummary s set s.unreadCount = case when s.unreadCount > :n then s.unreadCount - :n else 0 end " +
+            "where s.ownerEmail = :owner and s.conversationKey = :key")
+    int decrementUnread(@Param("owner") String ownerEmail, @Param("key") String conversationKey, @Param("n") int n);
+
+    // Total unread chat messages of one user across all threads.
+    @Query("select coalesce(sum(s.unreadCount), 0) from ConversationSummary s where s.ownerEmail = :owner")
+    long totalUnread(@Param("owner") String ownerEmail);
+
+    // Same for many users: rows of [ownerEmail, total].
+    @Query("select s.ownerEmail, sum(s.unreadCount) from ConversationSummary s " +
+            "where s.ownerEmail in :owners group by s.ownerEmail")
+    List<Object[]> totalUnreadByOwner(@Param("owners") Collection<String> ownerEmails);
+}
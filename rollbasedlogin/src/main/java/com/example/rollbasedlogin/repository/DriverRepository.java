@@ -1,12 +1,35 @@
 package com.example.rollbasedlogin.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.rollbasedlogin.model.Driver;
 
 public interface DriverRepository extends JpaRepository<Driver, Long> {
     List<Driver> findByCabTypeAndAvailable(String cabType, boolean available);
     java.util.Optional<Driver> findByEmail(String email);
+    List<Driver> findByAvailableTrue();
+
+    // Atomic "available -> busy" for trip acceptance; 0 rows means someone else got there first.
+    // Also stamps lastAssignedAt, which auto-dispatch uses to serve the longest-idle driver first.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Driver d set d.available = false, d.lastAssignedAt = local datetime, d.version = d.version + 1 " +
+            "where d.email = :email and d.available = true")
+    int claim(@Param("email") String email);
+
+    // Position pings are frequent and touch no state other writers check, so no version bump:
+    // they must not make a concurrent availability or claim update fail.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Driver d set d.lat = :lat, d.lon = :lon, d.positionUpdatedAt = :at where d.email = :email")
+    int updatePosition(@Param("email") String email, @Param("lat") double lat, @Param("lon") double lon,
+                       @Param("at") LocalDateTime at);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Driver d set d.phoneNumber = :phone, d.version = d.version + 1 where d.email = :email")
+    int updatePhoneNumber(@Param("email") String email, @Param("phone") String phoneNumber);
 }
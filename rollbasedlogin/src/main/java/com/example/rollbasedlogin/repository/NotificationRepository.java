@@ -1,12 +1,28 @@
 package com.example.rollbasedlogin.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.rollbasedlogin.model.Notification;
 
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
     List<Notification> findByHrEmailOrderByIdDesc(String hrEmail);
     long countByHrEmailAndReadFlagFalse(String hrEmail);
+
+    // Time-window variant of findByHrEmailOrderByIdDesc; "to" is exclusive.
+    @Query("select n from Notification n where n.hrEmail = :hrEmail " +
+            "and n.createdAt >= :from and n.createdAt < :to order by n.id desc")
+    List<Notification> findForHrBetween(@Param("hrEmail") String hrEmail,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to);
+
+    // Unread count per hrEmail for many users at once: rows of [hrEmail, count], zero counts omitted.
+    @Query("select n.hrEmail, count(n) from Notification n " +
+            "where n.readFlag = false and n.hrEmail in :emails group by n.hrEmail")
+    List<Object[]> countUnreadByHrEmail(@Param("emails") Collection<String> hrEmails);
 }
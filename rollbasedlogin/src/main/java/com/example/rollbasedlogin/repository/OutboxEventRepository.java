@@ -0,0 +1,72 @@
+package com.example.rollbasedlogin.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.rollbasedlogin.model.OutboxEvent;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Idempotent enqueue: a row with the same key is left alone (returns 0)
+    @Modifying
+    @Query(value = "insert into outbox_event (kind, aggregate, effect, idempotency_key, payload, status, attempts, " +
+            "next_attempt_at, created_at) " +
+            "values (:kind, :aggregate, :effect, :key, :payload, 'PENDING', 0, :now, :now) " +
+            "on conflict (idempotency_key) do nothing",
+            nativeQuery = true)
+    int insert(@Param("kind") String kind,
+               @Param("aggregate") String aggregate,
+               @Param("effect") String effect,
+               @Param("key") String idempotencyKey,
+               @Param("payload") String payload,
+               @Param("now") LocalDateTime now);
+
+    // Due rows, locked for the caller's transaction; rows another dispatcher holds are skipped
+    @Query(value = "select id from outbox_event " +
+            "where status = 'PENDING' and next_attempt_at <= :now " +
+            "order by next_attempt_at, id " +
+            "limit :limit " +
+            "for update skip locked",
+            nativeQuery = true)
+    List<Long> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Counts a delivery attempt and hides the rows from other dispatchers until leaseUntil
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update OutboxEvent e set e.attempts = e.attempts + 1, e.nextAttemptAt = :leaseUntil " +
+            "where e.id in :ids")
+    int lease(@Param("ids") Collection<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.status = 'SENT', e.sentAt = :sentAt, e.lastError = null " +
+            "where e.id = :id and e.status = 'PENDING'")
+    int markSent(@Param("id") Long id, @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.nextAttemptAt = :nextAttemptAt, e.lastError = :error " +
+            "where e.id = :id and e.status = 'PENDING'")
+    int markRetry(@Param("id") Long id, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                  @Param("error") String error);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.status = 'DEAD', e.lastError = :error " +
+            "where e.id = :id and e.status = 'PENDING'")
+    int markDead(@Param("id") Long id, @Param("error") String error);
+
+    List<OutboxEvent> findByAggregateOrderByIdAsc(String aggregate);
+
+    long countByStatus(String status);
+
+    // Age of the backlog: the oldest row still waiting for delivery
+    @Query("select min(e.createdAt) from OutboxEvent e where e.status = 'PENDING'")
+    LocalDateTime oldestPendingCreatedAt();
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.status = 'SENT' and e.sentAt < :cutoff")
+    int deleteSentBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,23 @@
+package com.example.rollbasedlogin.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.rollbasedlogin.model.TripChatVersion;
+
+public interface TripChatVersionRepository extends JpaRepository<TripChatVersion, Long> {
+
+    @Query("select v.version from TripChatVersion v where v.tripId = :tripId")
+    Optional<Long> findVersion(@Param("tripId") Long tripId);
+
+    // Atomic increment (creates the row on the first trip message)
+    @Modifying
+    @Query(value = "insert into trip_chat_version (trip_id, version) values (:tripId, 1) " +
+            "on conflict (trip_id) do update set version = trip_chat_version.version + 1",
+            nativeQuery = true)
+    int bump(@Param("tripId") Long tripId);
+}
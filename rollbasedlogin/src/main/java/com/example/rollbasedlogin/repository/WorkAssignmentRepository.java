@@ -1,8 +1,11 @@
 package com.example.rollbasedlogin.repository;
 
+import java.time.LocalDate;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.rollbasedlogin.model.WorkAssignment;
 
@@ -12,4 +15,15 @@ public interface WorkAssignmentRepository extends JpaRepository<WorkAssignment,
 
     List<WorkAssignment> findByHrEmailOrderByIdDesc(String hrEmail);
     List<WorkAssignment> findByEmployeeEmailOrderByIdDesc(String employeeEmail);
+
+    // Assigned-date windows ("to" is exclusive)
+    @Query("select w from WorkAssignment w where w.hrEmail = :email " +
+            "and w.assignedDate >= :from and w.assignedDate < :to order by w.id desc")
+    List<WorkAssignment> findForHrBetween(@Param("email") String hrEmail,
+                                          @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("select w from WorkAssignment w where w.employeeEmail = :email " +
+            "and w.assignedDate >= :from and w.assignedDate < :to order by w.id desc")
+    List<WorkAssignment> findForEmployeeBetween(@Param("email") String employeeEmail,
+                                                @Param("from") LocalDate from, @Param("to") LocalDate to);
 }
@@ -0,0 +1,309 @@
+package com.example.rollbasedlogin.service;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.rollbasedlogin.dto.RideRequest;
+import com.example.rollbasedlogin.model.Driver;
+import com.example.rollbasedlogin.repository.BookingRepository;
+import com.example.rollbasedlogin.repository.DriverRepository;
+import com.example.rollbasedlogin.util.Geo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Optional auto-dispatch (app.dispatch.auto.enabled): assigns REQUESTED bookings to
+ * available drivers without waiting for a driver to accept one from the ride-request list.
+ *
+ * Available drivers are kept per cab type in a {@link DriverPool}, loaded from the driver
+ * table on ApplicationReadyEvent and every reload-interval-ms, and kept current in between
+ * by {@link #driverAvailable} / {@link #driverBusy} (availability toggle, completed trip,
+ * manual accept). Open bookings come from RideRequestIndex.
+ *
+ * Every batch-interval-ms the dispatch thread plans one micro-batch of at most max-batch
+ * matches: per cab type, bookings in pickup order (date, time, id) each take the driver
+ * assigned longest ago. A booking with pickup coordinates first looks at the
+ * nearby-candidates drivers closest to it (haversine, within nearby-radius-km, from the
+ * pool's spatial grid) and takes the longest idle of those; drivers report their position
+ * through {@link #driverMoved}. Each match is then committed on its own through
+ * TripAcceptanceService.accept, i.e. the same conditional claims and outbox side effects
+ * as a manual accept, so a driver accepting by hand at the same moment simply wins or
+ * loses the claim. On a lost claim the driver goes back to the pool if still free.
+ *
+ * Enable it on one node: on several they stay correct (the claims decide) but compete
+ * for the same bookings and only learn about each other's assignments from lost claims
+ * and reloads.
+ *
+ * Metrics: dispatch.matches{outcome=assigned|conflict|error}, dispatch.assignment.latency
+ * (booking first seen open to assigned), dispatch.batch (one micro-batch),
+ * dispatch.drivers.available.
+ */
+@Service
+public class AutoDispatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(AutoDispatchService.class);
+
+    /** Earliest pickup first; bookings without a date or time go last. */
+    static final Comparator<RideRequest> PICKUP_ORDER = Comparator
+            .comparing(RideRequest::bookingDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(RideRequest::pickupTime, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(RideRequest::id);
+
+    /** One planned assignment; the driver has already been taken out of the pool. */
+    record Match(RideRequest request, DriverPool.Entry driver) {
+    }
+
+    private final RideRequestIndex rideRequests;
+    private final TripAcceptanceService acceptance;
+    private final DriverRepository driverRepo;
+    private final BookingRepository bookingRepo;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.dispatch.auto.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${app.dispatch.batch-interval-ms:1000}")
+    private long batchIntervalMs = 1000;
+
+    @Value("${app.dispatch.max-batch:100}")
+    private int maxBatch = 100;
+
+    @Value("${app.dispatch.reload-interval-ms:60000}")
+    private long reloadIntervalMs = 60_000;
+
+    @Value("${app.dispatch.nearby-candidates:5}")
+    private int nearbyCandidates = 5;
+
+    @Value("${app.dispatch.nearby-radius-km:10}")
+    private double nearbyRadiusKm = 10;
+
+    private final DriverPool pool = new DriverPool();
+    // booking id -> System.nanoTime() when a batch first saw it open
+    private final Map<Long, Long> firstSeen = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private ScheduledExecutorService dispatchThread;
+    private Timer latency;
+    private Timer batch;
+
+    public AutoDispatchService(RideRequestIndex rideRequests, TripAcceptanceService acceptance,
+                               DriverRepository driverRepo, BookingRepository bookingRepo,
+                               MeterRegistry meterRegistry) {
+        this.rideRequests = rideRequests;
+        this.acceptance = acceptance;
+        this.driverRepo = driverRepo;
+        this.bookingRepo = bookingRepo;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+        Gauge.builder("dispatch.drivers.available", pool, DriverPool::size)
+                .description("Drivers in the auto-dispatch pool").register(meterRegistry);
+        latency = Timer.builder("dispatch.assignment.latency")
+                .description("Booking first seen open to assigned by auto-dispatch").register(meterRegistry);
+        batch = Timer.builder("dispatch.batch").description("One auto-dispatch micro-batch").register(meterRegistry);
+        dispatchThread = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "auto-dispatch");
+            t.setDaemon(true);
+            return t;
+        });
+        dispatchThread.scheduleWithFixedDelay(this::dispatchSafely, batchIntervalMs, batchIntervalMs,
+                TimeUnit.MILLISECONDS);
+        dispatchThread.scheduleWithFixedDelay(this::reload, reloadIntervalMs, reloadIntervalMs,
+                TimeUnit.MILLISECONDS);
+        log.info("[DISPATCH] Auto-dispatch every {} ms, at most {} matches per batch", batchIntervalMs, maxBatch);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (dispatchThread != null) dispatchThread.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (enabled) reload();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** A driver may have become available (toggle, completed trip); applied after commit. */
+    public void driverAvailable(Driver d) {
+        if (!enabled || d == null || d.getEmail() == null) return;
+        afterCommit(() -> {
+            String key = RideRequestIndex.cabTypeKey(d.getCabType());
+            if (d.isAvailable() && key != null) pool.put(entry(d, key));
+            else pool.remove(d.getEmail());
+        });
+    }
+
+    /** An available driver reported a new position. */
+    public void driverMoved(String email, double lat, double lon) {
+        if (!enabled || email == null) return;
+        pool.move(email, lat, lon);
+    }
+
+    /** A driver took a trip or went off duty. */
+    public void driverBusy(String email) {
+        if (!enabled || email == null) return;
+        afterCommit(() -> pool.remove(email));
+    }
+
+    static List<Match> plan(Map<String, List<RideRequest>> openByCabType, DriverPool pool, int limit) {
+        return plan(openByCabType, pool, limit, 0, 0);
+    }
+
+    /**
+     * Plans up to {@code limit} matches from the open requests per cab type key, taking the
+     * matched drivers out of {@code pool}; with {@code nearbyCandidates} > 0, bookings with
+     * pickup coordinates prefer drivers within {@code nearbyMeters}. Pure in-memory; shared
+     * with the dispatch simulator.
+     */
+    static List<Match> plan(Map<String, List<RideRequest>> openByCabType, DriverPool pool, int limit,
+                            int nearbyCandidates, double nearbyMeters) {
+        List<Match> matches = new ArrayList<>();
+        for (Map.Entry<String, List<RideRequest>> e : openByCabType.entrySet()) {
+            if (pool.size(e.getKey()) == 0) continue;
+            List<RideRequest> open = new ArrayList<>(e.getValue());
+            open.sort(PICKUP_ORDER);
+            for (RideRequest request : open) {
+                if (matches.size() >= limit) return matches;
+                DriverPool.Entry driver = null;
+                if (nearbyCandidates > 0 && Geo.isValid(request.pickupLat(), request.pickupLon())) {
+                    driver = pool.pollNear(e.getKey(), request.pickupLat(), request.pickupLon(), nearbyCandidates,
+                            nearbyMeters);
+                }
+                if (driver == null) driver = pool.poll(e.getKey());
+                if (driver == null) break;
+                matches.add(new Match(request, driver));
+            }
+        }
+        return matches;
+    }
+
+    private void dispatchSafely() {
+        if (!loaded) return;
+        try {
+            batch.record(this::dispatchOnce);
+        } catch (RuntimeException e) {
+            log.warn("[DISPATCH] Batch failed: {}", e.getMessage());
+        }
+    }
+
+    void dispatchOnce() {
+        Map<String, List<RideRequest>> open = new HashMap<>();
+        Set<Long> openIds = new HashSet<>();
+        long now = System.nanoTime();
+        for (String key : rideRequests.cabTypes()) {
+            List<RideRequest> requests = rideRequests.snapshot(key);
+            for (RideRequest r : requests) {
+                openIds.add(r.id());
+                firstSeen.putIfAbsent(r.id(), now);
+            }
+            open.put(key, requests);
+        }
+        firstSeen.keySet().retainAll(openIds);
+
+        List<Match> matches = plan(open, pool, maxBatch, nearbyCandidates, nearbyRadiusKm * 1000);
+        for (Match m : matches) commit(m);
+        if (!matches.isEmpty()) {
+            log.debug("[DISPATCH] Batch of {} matches, {} drivers left", matches.size(), pool.size());
+        }
+    }
+
+    private void commit(Match m) {
+        Long bookingId = m.request().id();
+        String email = m.driver().email();
+        try {
+            acceptance.accept(bookingId, email);
+            count("assigned");
+            Long seen = firstSeen.remove(bookingId);
+            if (seen != null) latency.record(System.nanoTime() - seen, TimeUnit.NANOSECONDS);
+            log.info("[DISPATCH] Booking {} assigned to {}", bookingId, email);
+        } catch (TripAcceptanceService.Rejected e) {
+            // Lost to a manual accept, a cancellation or a stale pool entry
+            count("conflict");
+            log.debug("[DISPATCH] Booking {} / {}: {}", bookingId, email, e.getMessage());
+            returnIfStillFree(email);
+        } catch (RuntimeException e) {
+            count("error");
+            log.warn("[DISPATCH] Booking {} / {} failed: {}", bookingId, email, e.getMessage());
+        }
+    }
+
+    private void returnIfStillFree(String email) {
+        driverRepo.findByEmail(email)
+                .filter(Driver::isAvailable)
+                .filter(d -> !bookingRepo.existsByDriverEmailAndStatus(email, "ASSIGNED"))
+                .ifPresent(d -> {
+                    String key = RideRequestIndex.cabTypeKey(d.getCabType());
+                    if (key != null) pool.put(entry(d, key));
+                });
+    }
+
+    /** Rebuilds the pool from the available drivers in the database. */
+    synchronized void reload() {
+        try {
+            List<DriverPool.Entry> entries = new ArrayList<>();
+            for (Driver d : driverRepo.findByAvailableTrue()) {
+                String key = RideRequestIndex.cabTypeKey(d.getCabType());
+                if (key != null && d.getEmail() != null) entries.add(entry(d, key));
+            }
+            pool.replaceAll(entries);
+            if (!loaded) log.info("[DISPATCH] Loaded {} available drivers", pool.size());
+            loaded = true;
+        } catch (RuntimeException e) {
+            log.warn("[DISPATCH] Reload failed: {}", e.getMessage());
+        }
+    }
+
+    private static DriverPool.Entry entry(Driver d, String cabTypeKey) {
+        long lastAssigned = d.getLastAssignedAt() == null ? 0
+                : d.getLastAssignedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        DriverPool.Entry e = new DriverPool.Entry(d.getEmail(), cabTypeKey, lastAssigned);
+        return Geo.isValid(d.getLat(), d.getLon()) ? e.at(d.getLat(), d.getLon()) : e;
+    }
+
+    private void count(String outcome) {
+        Counter.builder("dispatch.matches").tag("outcome", outcome).register(meterRegistry).increment();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
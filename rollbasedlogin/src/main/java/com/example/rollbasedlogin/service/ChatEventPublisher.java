@@ -0,0 +1,148 @@
+package com.example.rollbasedlogin.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import com.example.rollbasedlogin.dto.ChatMessageEvent;
+import com.example.rollbasedlogin.model.ChatMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Live (STOMP) fan-out for chat events.
+ * Shared by the HTTP chat endpoints and the STOMP send handlers.
+ *
+ * Each event is serialized to JSON once, delivered to this node's broker, and
+ * handed to the ClusterRelay so subscribers connected to other nodes get it too.
+ * Chat messages go out as a ChatMessageEvent whose bytes are shared by every
+ * destination the message reaches (direct inbox, role topic, trip topic).
+ *
+ * Direct inbox events go to the recipient's user destination (/user/queue/inbox),
+ * and are dropped before serialization when LiveSessionRegistry has no live session
+ * for them; clients reload the inbox over HTTP when they connect anyway.
+ */
+@Service
+public class ChatEventPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatEventPublisher.class);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final ClusterRelay relay;
+    private final LiveSessionRegistry sessions;
+
+    public ChatEventPublisher(SimpMessagingTemplate messagingTemplate, ObjectMapper objectMapper,
+                              ClusterRelay relay, LiveSessionRegistry sessions) {
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.relay = relay;
+        this.sessions = sessions;
+    }
+
+    @PostConstruct
+    void listenToCluster() {
+        relay.onMessage((destination, json) -> {
+            if (!destination.startsWith(ClusterRelay.CONTROL_PREFIX)) deliverLocal(destination, json);
+        });
+    }
+
+    private static String key(String s) {
+        return s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** Direct inbox and role topic of the message's receiver. */
+    public void publishToLiveInbox(ChatMessage m) {
+        publishMessage(m, false);
+    }
+
+    /** Same as {@link #publishToLiveInbox}, plus the message's trip topic. */
+    public void publishTripMessage(ChatMessage m) {
+        publishMessage(m, true);
+    }
+
+    private void publishMessage(ChatMessage m, boolean toTrip) {
+        if (m == null) return;
+        List<String> destinations = new ArrayList<>(3);
+
+        // Direct inbox (email)
+        String email = m.getReceiverEmail();
+        if (email != null && !email.isBlank() && sessions.isOnline(email)) {
+            destinations.add(inboxDestination(email));
+        }
+
+        // Role-based inbox
+        if (m.getReceiverRole() != null && !m.getReceiverRole().isBlank()
+                && sessions.isRoleOnline(m.getReceiverRole())) {
+            destinations.add("/topic/inbox.role." + key(m.getReceiverRole()));
+        }
+
+        if (toTrip && m.getTripId() != null) {
+            destinations.add(tripDestination(m.getTripId()));
+        }
+        if (destinations.isEmpty()) return;
+
+        byte[] json = serialize(ChatMessageEvent.of(m), destinations.get(0));
+        if (json == null) return;
+        for (String destination : destinations) {
+            send(destination, json);
+        }
+    }
+
+    public void publishToInbox(String email, Object payload) {
+        if (email == null || email.isBlank() || !sessions.isOnline(email)) return;
+        publish(inboxDestination(email), payload);
+    }
+
+    public void publishToTrip(Long tripId, Object payload) {
+        if (tripId == null) return;
+        publish(tripDestination(tripId), payload);
+    }
+
+    public void publish(String destination, Object payload) {
+        byte[] json = serialize(payload, destination);
+        if (json != null) send(destination, json);
+    }
+
+    private static String inboxDestination(String email) {
+        return "/user/" + key(email) + "/queue/inbox";
+    }
+
+    private static String tripDestination(Long tripId) {
+        return "/topic/trip." + tripId;
+    }
+
+    private byte[] serialize(Object payload, String destination) {
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            log.warn("[CHAT-LIVE] Could not serialize event for {}: {}", destination, e.getMessage());
+            return null;
+        }
+    }
+
+    private void send(String destination, byte[] json) {
+        deliverLocal(destination, json);
+        relay.publish(destination, json);
+    }
+
+    /** Sends an already-serialized JSON frame to subscribers connected to this node. */
+    public void deliverLocal(String destination, byte[] json) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create();
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        headers.setLeaveMutable(true);
+        Message<byte[]> message = MessageBuilder.createMessage(json, headers.getMessageHeaders());
+        messagingTemplate.send(destination, message);
+    }
+}
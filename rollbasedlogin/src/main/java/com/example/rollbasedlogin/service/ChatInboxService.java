@@ -0,0 +1,149 @@
+package com.example.rollbasedlogin.service;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import com.example.rollbasedlogin.model.ChatMessage;
+import com.example.rollbasedlogin.model.ConversationSummary;
+import com.example.rollbasedlogin.repository.ChatMessageRepository;
+import com.example.rollbasedlogin.repository.ConversationSummaryRepository;
+
+/**
+ * Keyset-paginated chat reads (inbox and two-party threads).
+ * Each page is built from bounded index scans (newest first, id &lt; beforeId)
+ * that are merged in memory, so the cost of a page does not grow with the
+ * size of the user's history.
+ *
+ * chat_message is partitioned by month on sent_at (ChatPartitionService). Pages are
+ * first read from the recent window (this month and last month) so Postgres only
+ * touches those partitions; older partitions are read only when that window runs
+ * out. This relies on ids growing with sent_at: every node takes them one at a time
+ * from chat_message_seq (see ChatMessage).
+ *
+ * Role broadcasts come from RoleBroadcastCache; the database is only read for the
+ * part of a page that is older than what the cache holds.
+ */
+@Service
+public class ChatInboxService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int CONVERSATION_PAGE_SIZE = 200;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private final ChatMessageRepository chatRepo;
+    private final ConversationSummaryRepository summaryRepo;
+    private final RoleBroadcastCache roleCache;
+
+    public ChatInboxService(ChatMessageRepository chatRepo, ConversationSummaryRepository summaryRepo,
+                            RoleBroadcastCache roleCache) {
+        this.chatRepo = chatRepo;
+        this.summaryRepo = summaryRepo;
+        this.roleCache = roleCache;
+    }
+
+    public static int clampLimit(Integer limit) {
+        return clampLimit(limit, DEFAULT_PAGE_SIZE);
+    }
+
+    public static int clampLimit(Integer limit, int defaultSize) {
+        if (limit == null || limit <= 0) return defaultSize;
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    private static long cursor(Long beforeId) {
+        return (beforeId == null || beforeId <= 0) ? Long.MAX_VALUE : beforeId;
+    }
+
+    /** Start of the recent window: the first day of last month. */
+    static LocalDateTime recentFrom() {
+        return YearMonth.now().minusMonths(1).atDay(1).atStartOfDay();
+    }
+
+    private interface WindowQuery {
+        List<ChatMessage> page(LocalDateTime from, LocalDateTime to, Pageable page);
+    }
+
+    /** Newest {@code size} rows, reading older partitions only if the recent window can't fill the page. */
+    private static List<ChatMessage> recentFirst(WindowQuery query, int size) {
+        LocalDateTime split = recentFrom();
+        List<ChatMessage> recent = query.page(split, END, PageRequest.of(0, size));
+        if (recent.size() == size) return recent;
+        List<ChatMessage> older = query.page(BEGINNING, split, PageRequest.of(0, size));
+        return mergeNewestFirst(recent, older, size);
+    }
+
+    public List<ChatMessage> inboxPage(String email, String role, Long beforeId, Integer limit) {
+        String emailKey = ChatMessage.normKey(email);
+        String roleKey = ChatMessage.normKey(role);
+        long before = cursor(beforeId);
+        int size = clampLimit(limit);
+
+        List<ChatMessage> direct = emailKey == null ? List.of()
+                : recentFirst((from, to, p) -> chatRepo.directInboxPage(emailKey, before, from, to, p), size);
+        List<ChatMessage> byRole = roleKey == null ? List.of() : rolePage(roleKey, before, size);
+        return mergeNewestFirst(direct, byRole, size);
+    }
+
+    private List<ChatMessage> rolePage(String roleKey, long before, int size) {
+        RoleBroadcastCache.Slice cached = roleCache.slice(roleKey, before, size);
+        if (cached == null) {
+            return recentFirst((from, to, p) -> chatRepo.roleInboxPage(roleKey, before, from, to, p), size);
+        }
+        List<ChatMessage> hits = cached.messages();
+        if (hits.size() == size || cached.floor() == 0) return hits;
+
+        // The cache has every broadcast from floor up; the rest of the page is older than that
+        long below = hits.isEmpty() ? Math.min(before, cached.floor()) : hits.get(hits.size() - 1).getId();
+        List<ChatMessage> older = recentFirst(
+                (from, to, p) -> chatRepo.roleInboxPage(roleKey, below, from, to, p), size - hits.size());
+        List<ChatMessage> page = new ArrayList<>(hits);
+        page.addAll(older);
+        return page;
+    }
+
+    /**
+     * Newest {@code limit} messages of the thread between {@code me} and {@code other}
+     * that are older than {@code beforeId}, returned newest first.
+     */
+    public List<ChatMessage> conversationPage(String me, String other, Long beforeId, Integer limit) {
+        String key = ChatMessage.conversationKey(me, other);
+        if (key == null) return List.of();
+        long before = cursor(beforeId);
+        return recentFirst((from, to, p) -> chatRepo.conversationPage(key, before, from, to, p),
+                clampLimit(limit, CONVERSATION_PAGE_SIZE));
+    }
+
+    /**
+     * Sidebar entries for {@code email}, most recently active first.
+     * {@code beforeId} is the lastMessageId of the last entry already shown.
+     */
+    public List<ConversationSummary> conversationsPage(String email, Long beforeId, Integer limit) {
+        String owner = ChatMessage.normKey(email);
+        if (owner == null) return List.of();
+        return summaryRepo.page(owner, cursor(beforeId), PageRequest.of(0, clampLimit(limit)));
+    }
+
+    /** Merges two lists already sorted by id descending, keeping at most {@code limit} entries. */
+    static List<ChatMessage> mergeNewestFirst(List<ChatMessage> a, List<ChatMessage> b, int limit) {
+        List<ChatMessage> out = new ArrayList<>(Math.min(limit, a.size() + b.size()));
+        int i = 0;
+        int j = 0;
+        while (out.size() < limit && (i < a.size() || j < b.size())) {
+            if (j >= b.size() || (i < a.size() && a.get(i).getId() > b.get(j).getId())) {
+                out.add(a.get(i++));
+            } else {
+                out.add(b.get(j++));
+            }
+        }
+        return out;
+    }
+}
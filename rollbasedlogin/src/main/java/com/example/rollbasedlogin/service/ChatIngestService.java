@@ -0,0 +1,173 @@
+package com.example.rollbasedlogin.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.rollbasedlogin.model.ChatMessage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Entry point for writing chat messages.
+ *
+ * - direct (default): each message is written in its own transaction by the caller.
+ * - batched: messages are queued and a single writer thread commits them in groups
+ *   (up to batch-size, or whatever arrived within max-delay-ms). Callers still block
+ *   until their batch has committed, so a returned message is durable; the win is
+ *   one connection and one JDBC batch per group instead of one of each per message.
+ *
+ * One FIFO writer keeps per-conversation order: ids are assigned in queue order. Every
+ * message goes through the queue; when it is full the caller waits up to offer-timeout-ms
+ * for room and then gets {@link Busy} (retryable) rather than overtaking queued messages.
+ * A batch that fails is retried message by message, so only the messages that fail on
+ * their own are rejected.
+ */
+@Service
+public class ChatIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatIngestService.class);
+
+    private final ChatMessageService chatMessageService;
+
+    @Value("${app.chat.ingest.mode:direct}")
+    private String mode;
+
+    @Value("${app.chat.ingest.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.chat.ingest.max-delay-ms:10}")
+    private long maxDelayMs;
+
+    @Value("${app.chat.ingest.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.chat.ingest.offer-timeout-ms:1000}")
+    private long offerTimeoutMs = 1000;
+
+    private BlockingQueue<Pending> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    public ChatIngestService(ChatMessageService chatMessageService) {
+        this.chatMessageService = chatMessageService;
+    }
+
+    private record Pending(ChatMessage message, CompletableFuture<ChatMessage> ack) {
+    }
+
+    /** The ingest queue stayed full for offer-timeout-ms; nothing was written, the send can be retried. */
+    public static class Busy extends IllegalStateException {
+        public Busy(String message) {
+            super(message);
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (!"batched".equalsIgnoreCase(mode == null ? "" : mode.trim())) return;
+        queue = new ArrayBlockingQueue<>(Math.max(queueCapacity, batchSize));
+        running = true;
+        writer = new Thread(this::writeLoop, "chat-ingest-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("[CHAT-INGEST] Batched mode (batchSize={}, maxDelayMs={}, queueCapacity={})",
+                batchSize, maxDelayMs, queueCapacity);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer == null) return;
+        running = false;
+        writer.interrupt();
+        writer.join(5000);
+    }
+
+    /** Writes the message and returns it once it is committed. */
+    public ChatMessage send(ChatMessage m) {
+        try {
+            return submit(m).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    /** Async variant of {@link #send}; the future completes after commit. */
+    public CompletableFuture<ChatMessage> submit(ChatMessage m) {
+        if (queue == null || !running) {
+            return CompletableFuture.completedFuture(chatMessageService.send(m));
+        }
+        Pending p = new Pending(m, new CompletableFuture<>());
+        try {
+            // Queue full: hold the caller (backpressure) instead of writing ahead of queued messages
+            if (!queue.offer(p, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return CompletableFuture.failedFuture(new Busy("Chat is busy, please retry"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new Busy("Interrupted while waiting to send, please retry"));
+        }
+        return p.ack();
+    }
+
+    public int queueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+                while (batch.size() < batchSize) {
+                    long wait = deadline - System.nanoTime();
+                    Pending next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutting down: drain whatever is left without waiting
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+            if (!batch.isEmpty()) flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        List<ChatMessage> messages = new ArrayList<>(batch.size());
+        for (Pending p : batch) messages.add(p.message());
+        try {
+            List<ChatMessage> saved = chatMessageService.sendBatch(messages);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).ack().complete(saved.get(i));
+            }
+        } catch (RuntimeException e) {
+            // One bad message must not reject the rest: retry each on its own, in queue order
+            log.warn("[CHAT-INGEST] Batch of {} failed, retrying one by one: {}", batch.size(), e.getMessage());
+            for (Pending p : batch) {
+                try {
+                    // The rolled-back saveAll already gave it an id; with it, save() would merge
+                    p.message().clearId();
+                    p.ack().complete(chatMessageService.send(p.message()));
+                } catch (RuntimeException single) {
+                    p.ack().completeExceptionally(single);
+                }
+            }
+        }
+    }
+}
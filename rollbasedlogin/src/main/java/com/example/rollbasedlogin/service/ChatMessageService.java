@@ -0,0 +1,197 @@
+package com.example.rollbasedlogin.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.rollbasedlogin.model.ChatMessage;
+import com.example.rollbasedlogin.repository.ChatMessageRepository;
+import com.example.rollbasedlogin.repository.ConversationSummaryRepository;
+import com.example.rollbasedlogin.repository.TripChatVersionRepository;
+
+/**
+ * Single write path for chat messages.
+ * Persists the message and keeps the per-participant conversation summaries
+ * and the per-trip chat versions in step with it inside the same transaction.
+ * Role broadcasts are handed to RoleBroadcastCache once the transaction commits, and
+ * unread deltas to UnreadCounterService.
+ */
+@Service
+public class ChatMessageService {
+
+    private static final int PREVIEW_LENGTH = 140;
+
+    private final ChatMessageRepository chatRepo;
+    private final ConversationSummaryRepository summaryRepo;
+    private final TripChatVersionRepository tripVersionRepo;
+    private final RoleBroadcastCache roleCache;
+    private final UnreadCounterService unreadCounters;
+
+    public ChatMessageService(ChatMessageRepository chatRepo, ConversationSummaryRepository summaryRepo,
+                              TripChatVersionRepository tripVersionRepo, RoleBroadcastCache roleCache,
+                              UnreadCounterService unreadCounters) {
+        this.chatRepo = chatRepo;
+        this.summaryRepo = summaryRepo;
+        this.tripVersionRepo = tripVersionRepo;
+        this.roleCache = roleCache;
+        this.unreadCounters = unreadCounters;
+    }
+
+    @Transactional
+    public ChatMessage send(ChatMessage m) {
+        ChatMessage saved = chatRepo.save(m);
+        applySummaries(List.of(saved));
+        if (saved.getTripId() != null) tripVersionRepo.bump(saved.getTripId());
+        roleCache.afterCommit(saved);
+        return saved;
+    }
+
+    /**
+     * Persists a batch in one transaction. Ids come from chat_message_seq (not IDENTITY),
+     * so Hibernate sends the inserts as JDBC batches; summaries get one upsert per
+     * (participant, thread) touched rather than one per message.
+     * Messages are inserted in list order, so ids preserve per-conversation order.
+     */
+    @Transactional
+    public List<ChatMessage> sendBatch(List<ChatMessage> batch) {
+        List<ChatMessage> saved = chatRepo.saveAll(batch);
+        chatRepo.flush();
+        applySummaries(saved);
+        // One bump per trip, in id order so concurrent batches lock rows consistently
+        Set<Long> trips = new TreeSet<>();
+        for (ChatMessage m : saved) {
+            if (m.getTripId() != null) trips.add(m.getTripId());
+        }
+        trips.forEach(tripVersionRepo::bump);
+        saved.forEach(roleCache::afterCommit);
+        return saved;
+    }
+
+    /** Current change counter of a trip's chat (0 when it has no messages yet). */
+    @Transactional(readOnly = true)
+    public long tripVersion(Long tripId) {
+        return tripVersionRepo.findVersion(tripId).orElse(0L);
+    }
+
+    private void applySummaries(List<ChatMessage> messages) {
+        // one entry per (owner, thread): latest message + unread delta
+        Map<String, SummaryDelta> deltas = new LinkedHashMap<>();
+        for (ChatMessage m : messages) {
+            String key = m.getConversationKey();
+            if (key == null) {
+                // Role broadcasts have no two-party thread to summarize
+                continue;
+            }
+            String sender = m.getSenderEmailNorm();
+            String receiver = m.getReceiverEmailNorm();
+            deltas.computeIfAbsent(sender + "\n" + key, k -> new SummaryDelta(sender, receiver, key)).add(m, 0);
+            if (!receiver.equals(sender)) {
+                deltas.computeIfAbsent(receiver + "\n" + key, k -> new SummaryDelta(receiver, sender, key))
+                        .add(m, m.isReadFlag() ? 0 : 1);
+            }
+        }
+        for (SummaryDelta d : deltas.values()) {
+            ChatMessage last = d.last;
+            summaryRepo.upsert(d.owner, d.peer, d.key, last.getId(), preview(last), last.getSenderEmail(),
+                    last.getCreatedAt(), d.unread);
+            unreadCounters.chatUnreadChanged(d.owner, d.unread);
+        }
+    }
+
+    private static final class SummaryDelta {
+        final String owner;
+        final String peer;
+        final String key;
+        ChatMessage last;
+        int unread;
+
+        SummaryDelta(String owner, String peer, String key) {
+            this.owner = owner;
+            this.peer = peer;
+            this.key = key;
+        }
+
+        void add(ChatMessage m, int unreadDelta) {
+            if (last == null || m.getId() > last.getId()) last = m;
+            unread += unreadDelta;
+        }
+    }
+
+    /** Marks one message read; returns false if it already was (nothing changed). */
+    @Transactional
+    public boolean markRead(ChatMessage m) {
+        if (m.isReadFlag()) return false;
+        m.setReadFlag(true);
+        chatRepo.save(m);
+        if (m.getConversationKey() != null && m.getReceiverEmailNorm() != null) {
+            summaryRepo.decrementUnread(m.getReceiverEmailNorm(), m.getConversationKey(), 1);
+            unreadCounters.chatUnreadChanged(m.getReceiverEmailNorm(), -1);
+        }
+        if (m.getTripId() != null) tripVersionRepo.bump(m.getTripId());
+        roleCache.afterCommit(m);
+        return true;
+    }
+
+    /**
+     * Marks every message {@code reader} received in the thread with {@code other}
+     * up to {@code upToId} as read. Returns how many messages changed.
+     */
+    @Transactional
+    public int markConversationRead(String reader, String other, long upToId) {
+        String key = ChatMessage.conversationKey(reader, other);
+        String me = ChatMessage.normKey(reader);
+        if (key == null) return 0;
+        List<Long> trips = chatRepo.unreadTripIdsInConversation(key, me, upToId);
+        int n = chatRepo.markConversationReadUpTo(key, me, upToId);
+        if (n > 0) {
+            summaryRepo.decrementUnread(me, key, n);
+            unreadCounters.chatUnreadChanged(me, -n);
+        }
+        new TreeSet<>(trips).forEach(tripVersionRepo::bump);
+        return n;
+    }
+
+    /**
+     * Same as {@link #markConversationRead} but scoped to one trip's messages. A trip can span
+     * several threads, so the rows are locked and counted per thread first; the summaries
+     * are then decremented by exactly the rows this call flips, even when another read
+     * receipt for the same messages runs at the same time.
+     */
+    @Transactional
+    public int markTripRead(String reader, Long tripId, long upToId) {
+        String me = ChatMessage.normKey(reader);
+        if (me == null || tripId == null) return 0;
+        List<Object[]> rows = chatRepo.lockUnreadForTrip(tripId, me, upToId);
+        if (rows.isEmpty()) return 0;
+        List<Long> ids = new ArrayList<>(rows.size());
+        // sorted, so concurrent calls update summary rows in the same order
+        Map<String, Integer> unreadByThread = new TreeMap<>();
+        for (Object[] row : rows) {
+            ids.add(((Number) row[0]).longValue());
+            if (row[1] != null) unreadByThread.merge((String) row[1], 1, Integer::sum);
+        }
+        int n = chatRepo.markReadByIds(ids);
+        int unread = 0;
+        for (Map.Entry<String, Integer> e : unreadByThread.entrySet()) {
+            summaryRepo.decrementUnread(me, e.getKey(), e.getValue());
+            unread += e.getValue();
+        }
+        if (unread > 0) unreadCounters.chatUnreadChanged(me, -unread);
+        if (n > 0) tripVersionRepo.bump(tripId);
+        return n;
+    }
+
+    private static String preview(ChatMessage m) {
+        String text = m.getContent();
+        if (text == null) return null;
+        text = text.strip();
+        return text.length() <= PREVIEW_LENGTH ? text : text.substring(0, PREVIEW_LENGTH - 1) + "…";
+    }
+}
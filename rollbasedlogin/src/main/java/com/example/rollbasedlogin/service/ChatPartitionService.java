@@ -0,0 +1,323 @@
+package com.example.rollbasedlogin.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Monthly range partitioning of chat_message on sent_at, plus archival of old months.
+ *
+ * - On startup (ChatSchemaInitializer) a plain chat_message table is converted once:
+ *   renamed aside, recreated as a partitioned table with primary key (id, sent_at),
+ *   copied over in one transaction and its indexes recreated on the parent.
+ * - Maintenance (startup, then hourly) keeps partitions for the current month and
+ *   {@code months-ahead} months after it; a default partition catches anything else.
+ * - With {@code retention-months} &gt; 0, older partitions are detached, exported to
+ *   gzipped CSV in {@code archive.dir} (one file per month) and dropped. The chat_archive
+ *   table records what was archived; {@link #restore} attaches a month again.
+ *
+ * Only one node runs maintenance at a time (transaction-scoped advisory lock). Archive
+ * files are written on that node's disk, so restore on the node that holds the file.
+ */
+@Service
+public class ChatPartitionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatPartitionService.class);
+
+    private static final String PARENT = "chat_message";
+    private static final String DEFAULT_PARTITION = "chat_message_pdefault";
+    private static final Pattern PARTITION_NAME = Pattern.compile("chat_message_p(\\d{4})(\\d{2})");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final long MAINTENANCE_LOCK_KEY = 0x636861745F70L; // "chat_p"
+
+    // Rows written before sent_at existed: take it from created_at (a timestamp since TemporalColumnMigration)
+    public static final String SENT_AT_FROM_CREATED_AT = "coalesce(sent_at, created_at, localtimestamp)";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    @Value("${app.chat.partitioning.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.chat.partitioning.months-ahead:2}")
+    private int monthsAhead;
+
+    @Value("${app.chat.archive.retention-months:0}")
+    private int retentionMonths;
+
+    @Value("${app.chat.archive.dir:chat-archive}")
+    private String archiveDir;
+
+    @Value("${app.chat.archive.restore-days:7}")
+    private int restoreDays;
+
+    private ScheduledExecutorService maintenance;
+
+    public ChatPartitionService(JdbcTemplate jdbc, TransactionTemplate tx) {
+        this.jdbc = jdbc;
+        this.tx = tx;
+    }
+
+    /** Called once at startup, after the chat backfills. */
+    public void initialize() {
+        if (!enabled) return;
+        try {
+            if (!isPartitioned()) convertToPartitioned();
+            jdbc.execute("create table if not exists chat_archive (" +
+                    "month varchar(7) primary key, file_path text not null, row_count bigint not null, " +
+                    "archived_at timestamp not null, restored_at timestamp)");
+        } catch (Exception e) {
+            log.warn("[CHAT-PARTITION] Partitioning setup failed, chat_message left as is: {}", e.getMessage());
+            return;
+        }
+        runMaintenance();
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "chat-partition-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        maintenance.scheduleWithFixedDelay(this::runMaintenance, 1, 1, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (maintenance != null) maintenance.shutdownNow();
+    }
+
+    public boolean isPartitioned() {
+        List<String> kind = jdbc.queryForList(
+                "select c.relkind::text from pg_class c where c.oid = to_regclass(?)", String.class, PARENT);
+        return !kind.isEmpty() && "p".equals(kind.get(0));
+    }
+
+    private void convertToPartitioned() {
+        tx.executeWithoutResult(status -> {
+            jdbc.execute("lock table chat_message in access exclusive mode");
+
+            // Capture before the rename, so the definitions still name chat_message
+            List<String> indexDefs = jdbc.queryForList(
+                    "select pg_get_indexdef(i.indexrelid) from pg_index i " +
+                    "where i.indrelid = 'chat_message'::regclass and not i.indisprimary", String.class);
+            List<String> columns = storedColumns();
+            if (!columns.contains("sent_at")) {
+                throw new IllegalStateException("chat_message.sent_at is missing");
+            }
+            for (String pk : jdbc.queryForList(
+                    "select conname from pg_constraint where conrelid = 'chat_message'::regclass and contype = 'p'", String.class)) {
+                jdbc.execute("alter table chat_message rename constraint " + pk + " to chat_message_legacy_pkey");
+            }
+
+            jdbc.execute("alter table chat_message rename to chat_message_legacy");
+            jdbc.execute("create table chat_message (like chat_message_legacy including defaults including generated) " +
+                    "partition by range (sent_at)");
+            // ids come from chat_message_seq via Hibernate; drop any serial/identity leftover default
+            jdbc.execute("alter table chat_message alter column id drop default");
+            jdbc.execute("alter table chat_message alter column sent_at set not null");
+            jdbc.execute("alter table chat_message add primary key (id, sent_at)");
+
+            LocalDate oldest = jdbc.queryForObject(
+                    "select min(" + SENT_AT_FROM_CREATED_AT + ")::date from chat_message_legacy", LocalDate.class);
+            YearMonth from = oldest == null ? YearMonth.now() : YearMonth.from(oldest);
+            for (YearMonth m = from; !m.isAfter(YearMonth.now().plusMonths(monthsAhead)); m = m.plusMonths(1)) {
+                createPartition(m);
+            }
+            jdbc.execute("create table " + DEFAULT_PARTITION + " partition of chat_message default");
+
+            List<String> select = new ArrayList<>(columns.size());
+            for (String c : columns) select.add("sent_at".equals(c) ? SENT_AT_FROM_CREATED_AT : c);
+            int rows = jdbc.update("insert into chat_message (" + String.join(", ", columns) + ") " +
+                    "select " + String.join(", ", select) + " from chat_message_legacy");
+
+            jdbc.execute("drop table chat_message_legacy");
+            indexDefs.forEach(jdbc::execute);
+            log.info("[CHAT-PARTITION] Converted chat_message to monthly partitions ({} rows, from {})", rows, from);
+        });
+    }
+
+    public void runMaintenance() {
+        try {
+            tx.executeWithoutResult(status -> {
+                Boolean locked = jdbc.queryForObject("select pg_try_advisory_xact_lock(?)", Boolean.class, MAINTENANCE_LOCK_KEY);
+                if (!Boolean.TRUE.equals(locked)) return; // another node is on it
+
+                YearMonth now = YearMonth.now();
+                for (int i = 0; i <= monthsAhead; i++) createPartition(now.plusMonths(i));
+            });
+        } catch (Exception e) {
+            log.warn("[CHAT-PARTITION] Creating partitions failed: {}", e.getMessage());
+        }
+        if (retentionMonths <= 0) return;
+
+        YearMonth cutoff = YearMonth.now().minusMonths(retentionMonths);
+        for (YearMonth month : attachedMonths()) {
+            if (!month.isBefore(cutoff) || recentlyRestored(month)) continue;
+            try {
+                archive(month);
+            } catch (Exception e) {
+                log.warn("[CHAT-ARCHIVE] Archiving {} failed (partition kept): {}", month, e.getMessage());
+            }
+        }
+    }
+
+    private void createPartition(YearMonth month) {
+        jdbc.execute("create table if not exists " + partitionName(month) + " partition of chat_message " +
+                "for values from ('" + month.atDay(1) + "') to ('" + month.plusMonths(1).atDay(1) + "')");
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARENT + "_p" + month.format(SUFFIX);
+    }
+
+    private List<YearMonth> attachedMonths() {
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : jdbc.queryForList(
+                "select c.relname::text from pg_inherits i join pg_class c on c.oid = i.inhrelid " +
+                "where i.inhparent = 'chat_message'::regclass order by c.relname", String.class)) {
+            Matcher m = PARTITION_NAME.matcher(name);
+            if (m.matches()) months.add(YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2))));
+        }
+        return months;
+    }
+
+    private boolean recentlyRestored(YearMonth month) {
+        Boolean recent = jdbc.queryForObject(
+                "select exists(select 1 from chat_archive where month = ? and restored_at > localtimestamp - make_interval(days => ?))",
+                Boolean.class, month.toString(), restoreDays);
+        return Boolean.TRUE.equals(recent);
+    }
+
+    /**
+     * Detaches one month, writes it to &lt;archive.dir&gt;/chat_message_pYYYYMM.csv.gz and drops it.
+     * Runs in one transaction: if the export fails, the detach is rolled back.
+     */
+    public void archive(YearMonth month) {
+        String table = partitionName(month);
+        Path dir = Paths.get(archiveDir).toAbsolutePath();
+        Path file = dir.resolve(table + ".csv.gz");
+        Path tmp = dir.resolve(table + ".csv.gz.tmp");
+
+        tx.executeWithoutResult(status -> {
+            Boolean locked = jdbc.queryForObject("select pg_try_advisory_xact_lock(?)", Boolean.class, MAINTENANCE_LOCK_KEY);
+            if (!Boolean.TRUE.equals(locked)) return;
+
+            jdbc.execute("alter table chat_message detach partition " + table);
+            String columns = String.join(", ", storedColumns());
+            long rows = jdbc.execute((ConnectionCallback<Long>) con -> {
+                try {
+                    Files.createDirectories(dir);
+                    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+                        return con.unwrap(PGConnection.class).getCopyAPI().copyOut(
+                                "copy (select " + columns + " from " + table + " order by id) to stdout with (format csv, header)", out);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            jdbc.execute("drop table " + table);
+            jdbc.update("insert into chat_archive (month, file_path, row_count, archived_at) values (?, ?, ?, localtimestamp) " +
+                    "on conflict (month) do update set file_path = excluded.file_path, row_count = excluded.row_count, " +
+                    "  archived_at = excluded.archived_at, restored_at = null",
+                    month.toString(), file.toString(), rows);
+            log.info("[CHAT-ARCHIVE] Archived {} ({} messages) to {}", month, rows, file);
+        });
+    }
+
+    /**
+     * Loads an archived month back and attaches it as a partition again. It is kept for
+     * {@code restore-days} before the retention job may archive it again.
+     */
+    public long restore(String monthText) {
+        YearMonth month;
+        try {
+            month = YearMonth.parse(monthText);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("month must look like 2025-01");
+        }
+        List<String> files = jdbc.queryForList("select file_path from chat_archive where month = ?", String.class, month.toString());
+        if (files.isEmpty()) {
+            throw new NoSuchElementException("No archive for " + month);
+        }
+        if (attachedMonths().contains(month)) {
+            throw new IllegalStateException(month + " is already attached");
+        }
+        Path file = Paths.get(files.get(0));
+        if (!Files.isReadable(file)) {
+            throw new IllegalStateException("Archive file not found on this node: " + file);
+        }
+
+        String table = partitionName(month);
+        Long rows = tx.execute(status -> {
+            jdbc.execute("create table " + table + " (like chat_message including defaults including generated)");
+            long copied = jdbc.execute((ConnectionCallback<Long>) con -> {
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                        new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                    // The header line names the columns in file order
+                    String header = in.readLine();
+                    if (header == null) return 0L;
+                    return con.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                            "copy " + table + " (" + header + ") from stdin with (format csv)", in);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            jdbc.execute("alter table chat_message attach partition " + table +
+                    " for values from ('" + month.atDay(1) + "') to ('" + month.plusMonths(1).atDay(1) + "')");
+            jdbc.update("update chat_archive set restored_at = localtimestamp where month = ?", month.toString());
+            return copied;
+        });
+        log.info("[CHAT-ARCHIVE] Restored {} ({} messages)", month, rows);
+        return rows == null ? 0 : rows;
+    }
+
+    public List<Map<String, Object>> archives() {
+        return jdbc.queryForList(
+                "select month, row_count as \"rowCount\", archived_at as \"archivedAt\", restored_at as \"restoredAt\" " +
+                "from chat_archive order by month desc");
+    }
+
+    private List<String> storedColumns() {
+        return jdbc.queryForList(
+                "select column_name from information_schema.columns " +
+                "where table_schema = current_schema() and table_name = 'chat_message' and is_generated = 'NEVER' " +
+                "order by ordinal_position", String.class);
+    }
+}
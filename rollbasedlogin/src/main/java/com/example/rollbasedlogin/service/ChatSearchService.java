@@ -0,0 +1,85 @@
+package com.example.rollbasedlogin.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Service;
+
+import com.example.rollbasedlogin.model.ChatMessage;
+import com.example.rollbasedlogin.repository.ChatMessageRepository;
+
+/**
+ * Full-text search over the caller's chat history (subject + content).
+ * Results are ranked by ts_rank and paginated with an opaque "rank:id" cursor,
+ * so deep pages cost the same as the first one.
+ * Validation failures are reported as IllegalArgumentException.
+ */
+@Service
+public class ChatSearchService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_QUERY_LENGTH = 200;
+
+    private final ChatMessageRepository chatRepo;
+
+    public ChatSearchService(ChatMessageRepository chatRepo) {
+        this.chatRepo = chatRepo;
+    }
+
+    /** One page of hits, best first; nextCursor is null on the last page. */
+    public record SearchPage(List<ChatMessage> messages, String nextCursor) {
+    }
+
+    public SearchPage search(String email, String role, String query, String cursor, Integer limit) {
+        String me = ChatMessage.normKey(email);
+        String q = query == null ? "" : query.strip();
+        if (me == null) {
+            throw new IllegalArgumentException("email missing");
+        }
+        if (q.isEmpty()) {
+            throw new IllegalArgumentException("q is required");
+        }
+        if (q.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("q must be at most " + MAX_QUERY_LENGTH + " characters");
+        }
+
+        double beforeRank = Double.MAX_VALUE;
+        long beforeId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            int sep = cursor.indexOf(':');
+            try {
+                beforeRank = Float.parseFloat(cursor.substring(0, sep));
+                beforeId = Long.parseLong(cursor.substring(sep + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("invalid cursor");
+            }
+        }
+
+        int size = ChatInboxService.clampLimit(limit, DEFAULT_PAGE_SIZE);
+        String roleKey = ChatMessage.normKey(role);
+        List<Object[]> hits = chatRepo.searchPage(q, me, roleKey == null ? "" : roleKey, beforeRank, beforeId, size);
+        if (hits.isEmpty()) return new SearchPage(List.of(), null);
+
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (Object[] row : hits) ids.add(((Number) row[0]).longValue());
+        Map<Long, ChatMessage> byId = chatRepo.findAllById(ids).stream()
+                .collect(Collectors.toMap(ChatMessage::getId, Function.identity()));
+
+        List<ChatMessage> messages = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ChatMessage m = byId.get(id);
+            if (m != null) messages.add(m);
+        }
+
+        String next = null;
+        if (hits.size() == size) {
+            Object[] last = hits.get(hits.size() - 1);
+            // ts_rank is a float4; printing it as a float round-trips exactly
+            next = ((Number) last[1]).floatValue() + ":" + ((Number) last[0]).longValue();
+        }
+        return new SearchPage(messages, next);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.rollbasedlogin.service;
+
+import java.time.LocalDateTime;
+
+import org.springframework.stereotype.Service;
+
+import com.example.rollbasedlogin.dto.ChatMessageRequest;
+import com.example.rollbasedlogin.model.ChatMessage;
+
+/**
+ * Validates, stores and fans out a chat message.
+ * Used by both the HTTP endpoints (ChatController) and the STOMP handlers
+ * (ChatSocketController); the caller is responsible for authenticating the sender.
+ * Validation failures are reported as IllegalArgumentException.
+ */
+@Service
+public class ChatSendService {
+
+    private final ChatIngestService ingestService;
+    private final ChatEventPublisher publisher;
+
+    public ChatSendService(ChatIngestService ingestService, ChatEventPublisher publisher) {
+        this.ingestService = ingestService;
+        this.publisher = publisher;
+    }
+
+    private static String norm(String s) {
+        if (s == null) return null;
+        String t = s.trim();
+        return t.isEmpty() ? null : t;
+    }
+
+    public ChatMessage send(String senderEmail, String senderRole, ChatMessageRequest req) {
+        String receiverEmail = norm(req.getReceiverEmail());
+        String receiverRole = norm(req.getReceiverRole());
+        String content = norm(req.getContent());
+
+        if (norm(senderEmail) == null) {
+            throw new IllegalArgumentException("senderEmail missing");
+        }
+        if (content == null) {
+            throw new IllegalArgumentException("content is required");
+        }
+        if (receiverEmail == null && receiverRole == null) {
+            throw new IllegalArgumentException("receiverEmail or receiverRole is required");
+        }
+
+        ChatMessage m = new ChatMessage();
+        m.setSenderEmail(norm(senderEmail));
+        m.setSenderRole(norm(senderRole));
+        m.setReceiverEmail(receiverEmail);
+        m.setReceiverRole(receiverRole);
+        m.setSubject(norm(req.getSubject()));
+        m.setContent(content);
+        m.setMessageType(norm(req.getMessageType()));
+        m.setCreatedAt(LocalDateTime.now());
+        m.setReadFlag(false);
+
+        ChatMessage saved = ingestService.send(m);
+        publisher.publishToLiveInbox(saved);
+        return saved;
+    }
+
+    public ChatMessage sendTrip(Long tripId, String senderEmail, String senderRole, ChatMessageRequest req) {
+        if (norm(senderEmail) == null) {
+            throw new IllegalArgumentException("senderEmail missing");
+        }
+
+        ChatMessage msg = new ChatMessage();
+        msg.setSenderEmail(norm(senderEmail));
+        msg.setSenderRole(norm(senderRole));
+        msg.setReceiverEmail(norm(req.getReceiverEmail()));
+        msg.setReceiverRole(norm(req.getReceiverRole()));
+        msg.setSubject(norm(req.getSubject()));
+        msg.setContent(norm(req.getContent()));
+        msg.setMessageType("TRIP_DIRECTION"); // New message type for trip-specific messages
+        msg.setTripId(tripId);
+        msg.setCreatedAt(LocalDateTime.now());
+        msg.setReadFlag(false);
+
+        ChatMessage saved = ingestService.send(msg);
+
+        // Publish to WebSocket topics, and to the trip-specific topic (one serialized frame)
+        publisher.publishTripMessage(saved);
+        return saved;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.rollbasedlogin.service;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Cross-node fan-out for live (STOMP) events.
+ * Each node delivers to its own subscribers locally and hands the same
+ * serialized frame to the relay, which delivers it to every other node.
+ *
+ * Selected with app.cluster.relay:
+ * - none (default): single node, nothing leaves the process
+ * - postgres: LISTEN/NOTIFY on the application database
+ * - in-memory: nodes in the same JVM (tests / local multi-node runs)
+ */
+public interface ClusterRelay {
+
+    /**
+     * Destinations starting with this prefix are node-to-node control frames
+     * (e.g. presence) and are never delivered to STOMP subscribers.
+     */
+    String CONTROL_PREFIX = "cluster:";
+
+    /** Sends a frame (already-serialized JSON) to the other nodes. */
+    void publish(String destination, byte[] payload);
+
+    /** Adds a handler for frames published by other nodes. */
+    void onMessage(BiConsumer<String, byte[]> listener);
+
+    /**
+     * Adds a callback run after the relay re-established a lost connection. Frames sent
+     * while it was down are gone, so state kept in sync through frames should be reloaded.
+     */
+    default void onReconnect(Runnable listener) {
+    }
+
+    /** False when this node is the only one (nothing is relayed). */
+    default boolean isClustered() {
+        return true;
+    }
+}
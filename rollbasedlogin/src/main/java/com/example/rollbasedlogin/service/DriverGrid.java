@@ -0,0 +1,126 @@
+package com.example.rollbasedlogin.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.example.rollbasedlogin.util.Geo;
+
+/**
+ * Uniform latitude/longitude grid of driver positions for nearest-K lookups.
+ *
+ * Cells are cellDegrees on a side (0.01° is about 1.1 km north-south). A query scans
+ * rings of cells around the query point, keeping the K closest drivers by haversine
+ * distance, and stops once the next ring cannot hold anything closer than the K-th
+ * driver found (or lies beyond maxMeters). With drivers spread over a city that is a
+ * handful of cells, independent of how many drivers are indexed.
+ *
+ * Not thread-safe; DriverPool keeps one per cab type under its lock.
+ */
+class DriverGrid {
+
+    /** A driver found by {@link #nearest}, {@code meters} from the query point. */
+    record Neighbour(DriverPool.Entry driver, double meters) {
+    }
+
+    private final double cellDegrees;
+    private final int rows;
+    private final int cols;
+    private final Map<Long, List<DriverPool.Entry>> cells = new HashMap<>();
+    private final Map<String, Long> cellOf = new HashMap<>();
+
+    DriverGrid(double cellDegrees) {
+        if (!(cellDegrees > 0 && cellDegrees <= 10)) {
+            throw new IllegalArgumentException("cellDegrees must be in (0, 10]");
+        }
+        this.cellDegrees = cellDegrees;
+        this.rows = (int) Math.ceil(180 / cellDegrees) + 1;
+        this.cols = (int) Math.ceil(360 / cellDegrees);
+    }
+
+    /** Indexes (or moves) a driver; one without a position is only removed. */
+    void put(DriverPool.Entry e) {
+        remove(e.email());
+        if (!e.hasPosition()) return;
+        long cell = cell(row(e.lat()), col(e.lon()));
+        cells.computeIfAbsent(cell, k -> new ArrayList<>()).add(e);
+        cellOf.put(e.email(), cell);
+    }
+
+    void remove(String email) {
+        Long cell = cellOf.remove(email);
+        if (cell == null) return;
+        List<DriverPool.Entry> drivers = cells.get(cell);
+        drivers.removeIf(d -> d.email().equals(email));
+        if (drivers.isEmpty()) cells.remove(cell);
+    }
+
+    int size() {
+        return cellOf.size();
+    }
+
+    /** Up to {@code k} drivers within {@code maxMeters} of the point, closest first. */
+    List<Neighbour> nearest(double lat, double lon, int k, double maxMeters) {
+        if (k <= 0 || cellOf.isEmpty()) return List.of();
+        // Max-heap on distance: the head is the farthest of the best k so far
+        PriorityQueue<Neighbour> best = new PriorityQueue<>(k + 1,
+                (a, b) -> Double.compare(b.meters(), a.meters()));
+        int row0 = row(lat);
+        int col0 = col(lon);
+        int maxRing = (cols - 1) / 2;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (ring > 0) {
+                double bound = ringLowerBoundMeters(lat, ring);
+                if (bound > maxMeters) break;
+                if (best.size() == k && bound > best.peek().meters()) break;
+            }
+            for (int dr = -ring; dr <= ring; dr++) {
+                int r = row0 + dr;
+                if (r < 0 || r >= rows) continue;
+                // Whole rows on the top and bottom edge of the ring, only the two ends in between
+                int step = (dr == -ring || dr == ring) ? 1 : Math.max(1, 2 * ring);
+                for (int dc = -ring; dc <= ring; dc += step) {
+                    List<DriverPool.Entry> drivers = cells.get(cell(r, Math.floorMod(col0 + dc, cols)));
+                    if (drivers == null) continue;
+                    for (DriverPool.Entry d : drivers) {
+                        double meters = Geo.haversineMeters(lat, lon, d.lat(), d.lon());
+                        if (meters > maxMeters) continue;
+                        if (best.size() < k) {
+                            best.add(new Neighbour(d, meters));
+                        } else if (meters < best.peek().meters()) {
+                            best.poll();
+                            best.add(new Neighbour(d, meters));
+                        }
+                    }
+                }
+            }
+        }
+        List<Neighbour> out = new ArrayList<>(best);
+        out.sort((a, b) -> Double.compare(a.meters(), b.meters()));
+        return out;
+    }
+
+    /**
+     * No point in ring {@code ring} is closer than ring - 1 whole cells, measured along the
+     * narrower side: east-west, at the latitude farthest from the equator the ring reaches.
+     */
+    private double ringLowerBoundMeters(double lat, int ring) {
+        double farLat = Math.min(90, Math.abs(lat) + (ring + 1) * cellDegrees);
+        double cellMeters = cellDegrees * Geo.METERS_PER_DEGREE * Math.cos(Math.toRadians(farLat));
+        return (ring - 1) * Math.max(0, cellMeters);
+    }
+
+    private int row(double lat) {
+        return Math.min(rows - 1, (int) Math.floor((lat + 90) / cellDegrees));
+    }
+
+    private int col(double lon) {
+        return Math.floorMod((int) Math.floor((lon + 180) / cellDegrees), cols);
+    }
+
+    private long cell(int row, int col) {
+        return (long) row * cols + col;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.rollbasedlogin.service;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Available drivers per cab type, in the order auto-dispatch hands them out: the one
+ * assigned longest ago (or never) first, ties broken by email so the order is stable.
+ * Drivers with a known position are also in a DriverGrid per cab type, for
+ * {@link #nearest} and {@link #pollNear}.
+ *
+ * A driver is in the pool at most once; {@link #put} replaces an earlier entry, so a
+ * driver who changed cab type moves. Not a bean: AutoDispatchService owns one, the
+ * dispatch simulator another. All methods are synchronized; the pool is small and
+ * touched by the dispatch thread and the availability hooks only.
+ */
+class DriverPool {
+
+    /** {@code lastAssignedAt} is epoch millis, 0 if never assigned; lat/lon are NaN when unknown. */
+    record Entry(String email, String cabTypeKey, long lastAssignedAt, double lat, double lon) {
+
+        Entry(String email, String cabTypeKey, long lastAssignedAt) {
+            this(email, cabTypeKey, lastAssignedAt, Double.NaN, Double.NaN);
+        }
+
+        boolean hasPosition() {
+            return !Double.isNaN(lat) && !Double.isNaN(lon);
+        }
+
+        Entry at(double lat, double lon) {
+            return new Entry(email, cabTypeKey, lastAssignedAt, lat, lon);
+        }
+    }
+
+    static final Comparator<Entry> LEAST_RECENTLY_ASSIGNED =
+            Comparator.comparingLong(Entry::lastAssignedAt).thenComparing(Entry::email);
+
+    private final double cellDegrees;
+    private final Map<String, Entry> byEmail = new HashMap<>();
+    private final Map<String, TreeSet<Entry>> byCabType = new HashMap<>();
+    private final Map<String, DriverGrid> gridByCabType = new HashMap<>();
+
+    DriverPool() {
+        this(0.01);
+    }
+
+    /** {@code cellDegrees}: grid cell size of the spatial index (see DriverGrid). */
+    DriverPool(double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+    }
+
+    synchronized void put(Entry e) {
+        remove(e.email());
+        byEmail.put(e.email(), e);
+        byCabType.computeIfAbsent(e.cabTypeKey(), k -> new TreeSet<>(LEAST_RECENTLY_ASSIGNED)).add(e);
+        if (e.hasPosition()) gridByCabType.computeIfAbsent(e.cabTypeKey(), k -> new DriverGrid(cellDegrees)).put(e);
+    }
+
+    /** Updates the position of a pooled driver; false if the driver is not in the pool. */
+    synchronized boolean move(String email, double lat, double lon) {
+        Entry e = byEmail.get(email);
+        if (e == null) return false;
+        put(e.at(lat, lon));
+        return true;
+    }
+
+    synchronized Entry remove(String email) {
+        Entry e = byEmail.remove(email);
+        if (e != null) {
+            TreeSet<Entry> drivers = byCabType.get(e.cabTypeKey());
+            if (drivers != null) drivers.remove(e);
+            DriverGrid grid = gridByCabType.get(e.cabTypeKey());
+            if (grid != null) grid.remove(email);
+        }
+        return e;
+    }
+
+    /** Takes the next driver of a cab type out of the pool, null if none is left. */
+    synchronized Entry poll(String cabTypeKey) {
+        TreeSet<Entry> drivers = byCabType.get(cabTypeKey);
+        if (drivers == null || drivers.isEmpty()) return null;
+        return remove(drivers.first().email());
+    }
+
+    /** Up to {@code k} pooled drivers of a cab type within {@code maxMeters}, closest first. */
+    synchronized List<DriverGrid.Neighbour> nearest(String cabTypeKey, double lat, double lon, int k,
+                                                    double maxMeters) {
+        DriverGrid grid = gridByCabType.get(cabTypeKey);
+        return grid == null ? List.of() : grid.nearest(lat, lon, k, maxMeters);
+    }
+
+    /**
+     * Takes the least recently assigned of the {@code k} drivers nearest to the point (within
+     * {@code maxMeters}) out of the pool; null if there is none nearby.
+     */
+    synchronized Entry pollNear(String cabTypeKey, double lat, double lon, int k, double maxMeters) {
+        Entry pick = null;
+        for (DriverGrid.Neighbour n : nearest(cabTypeKey, lat, lon, k, maxMeters)) {
+            if (pick == null || LEAST_RECENTLY_ASSIGNED.compare(n.driver(), pick) < 0) pick = n.driver();
+        }
+        return pick == null ? null : remove(pick.email());
+    }
+
+    /** Replaces the whole pool, e.g. after reloading available drivers from the database. */
+    synchronized void replaceAll(Collection<Entry> entries) {
+        byEmail.clear();
+        byCabType.clear();
+        gridByCabType.clear();
+        for (Entry e : entries) put(e);
+    }
+
+    synchronized int size() {
+        return byEmail.size();
+    }
+
+    synchronized int size(String cabTypeKey) {
+        TreeSet<Entry> drivers = byCabType.get(cabTypeKey);
+        return drivers == null ? 0 : drivers.size();
+    }
+
+    synchronized List<String> cabTypes() {
+        return byCabType.entrySet().stream().filter(e -> !e.getValue().isEmpty()).map(Map.Entry::getKey).toList();
+    }
+}
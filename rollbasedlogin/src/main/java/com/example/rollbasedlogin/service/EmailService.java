@@ -49,10 +49,14 @@ public class EmailService {
             return;
         }
 
+        sendText(toEmail, "Your verification code",
+                "Your verification code is: " + code + "\n\nThis code expires in " + (codeTtlSeconds / 60) + " minutes.");
+    }
+
+    /** Plain-text email through the configured provider (Resend or SMTP); used by OutboxDispatcher too. */
+    public void sendText(String toEmail, String subject, String text) {
         String provider = (mailProvider == null ? "smtp" : mailProvider.trim().toLowerCase());
         if ("resend".equals(provider)) {
-            String subject = "Your verification code";
-            String text = "Your verification code is: " + code + "\n\nThis code expires in " + (codeTtlSeconds / 60) + " minutes.";
             resendEmailSender.sendTextEmail(from, toEmail, subject, text);
             return;
         }
@@ -75,8 +79,8 @@ public class EmailService {
             message.setFrom(from);
         }
         message.setTo(toEmail);
-        message.setSubject("Your verification code");
-        message.setText("Your verification code is: " + code + "\n\nThis code expires in " + (codeTtlSeconds / 60) + " minutes.");
+        message.setSubject(subject);
+        message.setText(text);
 
         try {
             mailSender.send(message);
@@ -95,7 +99,7 @@ public class EmailService {
                     combined.contains("connection timed out") ||
                     combined.contains("connectexception");
 
-            log.warn("Failed to send 2FA email to {} via SMTP host '{}'.", toEmail, mailHost, ex);
+            log.warn("Failed to send email to {} via SMTP host '{}'.", toEmail, mailHost, ex);
 
             if (looksLikeGmailAuthIssue) {
                 throw new IllegalStateException(
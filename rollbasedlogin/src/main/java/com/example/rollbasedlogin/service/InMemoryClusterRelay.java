@@ -0,0 +1,59 @@
+package com.example.rollbasedlogin.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Embedded stand-in for a real broker: connects every node (application context)
+ * running in the same JVM. Delivery is asynchronous and ordered per receiving node,
+ * like a network relay would be. Intended for tests and local multi-node runs.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cluster.relay", havingValue = "in-memory")
+public class InMemoryClusterRelay implements ClusterRelay {
+
+    private static final List<InMemoryClusterRelay> NODES = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService inbound = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "cluster-relay-in-memory");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final List<BiConsumer<String, byte[]>> listeners = new CopyOnWriteArrayList<>();
+
+    public InMemoryClusterRelay() {
+        NODES.add(this);
+    }
+
+    @Override
+    public void publish(String destination, byte[] payload) {
+        for (InMemoryClusterRelay node : NODES) {
+            if (node != this) node.deliver(destination, payload);
+        }
+    }
+
+    @Override
+    public void onMessage(BiConsumer<String, byte[]> listener) {
+        listeners.add(listener);
+    }
+
+    private void deliver(String destination, byte[] payload) {
+        if (listeners.isEmpty()) return;
+        inbound.execute(() -> listeners.forEach(l -> l.accept(destination, payload)));
+    }
+
+    @PreDestroy
+    public void close() {
+        NODES.remove(this);
+        inbound.shutdownNow();
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.rollbasedlogin.service;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.example.rollbasedlogin.config.StompPrincipal;
+import com.example.rollbasedlogin.model.ChatMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Tracks live STOMP sessions by authenticated principal (normalized email) and role,
+ * so ChatEventPublisher can skip events for users who are not connected anywhere.
+ *
+ * Local sessions come from the connect/disconnect events of this node's broker.
+ * When a ClusterRelay is active, each node also shares which users it holds:
+ * online/offline deltas on change, plus a full snapshot every SNAPSHOT_INTERVAL_MS
+ * that repairs anything missed. Nodes not heard from for NODE_TTL_MS are dropped.
+ *
+ * Metrics: chat.ws.sessions (this node), chat.ws.users{scope=local|cluster}.
+ */
+@Component
+public class LiveSessionRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveSessionRegistry.class);
+
+    static final String PRESENCE_DESTINATION = ClusterRelay.CONTROL_PREFIX + "presence";
+    private static final long SNAPSHOT_INTERVAL_MS = 30_000;
+    private static final long NODE_TTL_MS = 3 * SNAPSHOT_INTERVAL_MS;
+
+    private final ClusterRelay relay;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // sessionId -> principal, so disconnects can be matched even without a user header
+    private final Map<String, StompPrincipal> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Integer> userSessions = new ConcurrentHashMap<>();
+    private final Map<String, Integer> roleSessions = new ConcurrentHashMap<>();
+    private final Map<String, RemoteNode> remoteNodes = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService snapshotter;
+
+    public LiveSessionRegistry(ClusterRelay relay, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.relay = relay;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** Presence frame exchanged between nodes; kind is online, offline or snapshot. */
+    record PresenceFrame(String node, String kind, List<String> users) {
+    }
+
+    private record RemoteNode(Set<String> users, long lastSeen) {
+    }
+
+    @PostConstruct
+    void start() {
+        Gauge.builder("chat.ws.sessions", sessions, Map::size)
+                .description("Live STOMP sessions on this node")
+                .register(meterRegistry);
+        Gauge.builder("chat.ws.users", userSessions, Map::size)
+                .description("Distinct connected users")
+                .tag("scope", "local")
+                .register(meterRegistry);
+        Gauge.builder("chat.ws.users", this, LiveSessionRegistry::clusterUserCount)
+                .description("Distinct connected users")
+                .tag("scope", "cluster")
+                .register(meterRegistry);
+
+        if (!relay.isClustered()) return;
+        relay.onMessage(this::onClusterFrame);
+        snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "presence-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshotter.scheduleAtFixedRate(this::publishSnapshot, 0, SNAPSHOT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (snapshotter != null) snapshotter.shutdownNow();
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (!(user instanceof StompPrincipal p) || p.getName() == null || sessionId == null) return;
+        if (sessions.putIfAbsent(sessionId, p) != null) return;
+
+        String role = ChatMessage.normKey(p.getRole());
+        if (role != null) increment(roleSessions, role);
+        if (increment(userSessions, p.getName()) == 1) {
+            publishPresence("online", p.getName());
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        StompPrincipal p = sessions.remove(event.getSessionId());
+        if (p == null) return;
+
+        String role = ChatMessage.normKey(p.getRole());
+        if (role != null) decrement(roleSessions, role);
+        if (decrement(userSessions, p.getName()) == 0) {
+            publishPresence("offline", p.getName());
+        }
+    }
+
+    /** True when the user has a live session on this node or (clustered) any other node. */
+    public boolean isOnline(String email) {
+        String key = ChatMessage.normKey(email);
+        if (key == null) return false;
+        if (userSessions.containsKey(key)) return true;
+        long now = System.currentTimeMillis();
+        for (RemoteNode node : remoteNodes.values()) {
+            if (now - node.lastSeen() <= NODE_TTL_MS && node.users().contains(key)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * True when some session with this role may be listening. Role presence is only
+     * tracked locally, so when clustered this errs on the side of publishing.
+     */
+    public boolean isRoleOnline(String role) {
+        String key = ChatMessage.normKey(role);
+        if (key == null) return false;
+        return relay.isClustered() || roleSessions.containsKey(key);
+    }
+
+    public int localSessionCount() {
+        return sessions.size();
+    }
+
+    public int localUserCount() {
+        return userSessions.size();
+    }
+
+    public int clusterUserCount() {
+        long now = System.currentTimeMillis();
+        Set<String> all = new HashSet<>(userSessions.keySet());
+        for (RemoteNode node : remoteNodes.values()) {
+            if (now - node.lastSeen() <= NODE_TTL_MS) all.addAll(node.users());
+        }
+        return all.size();
+    }
+
+    private static int increment(Map<String, Integer> counts, String key) {
+        return counts.merge(key, 1, Integer::sum);
+    }
+
+    private static int decrement(Map<String, Integer> counts, String key) {
+        Integer left = counts.computeIfPresent(key, (k, n) -> n <= 1 ? null : n - 1);
+        return left == null ? 0 : left;
+    }
+
+    private void publishPresence(String kind, String user) {
+        if (!relay.isClustered()) return;
+        send(new PresenceFrame(nodeId, kind, List.of(user)));
+    }
+
+    private void publishSnapshot() {
+        try {
+            send(new PresenceFrame(nodeId, "snapshot", new ArrayList<>(userSessions.keySet())));
+            long now = System.currentTimeMillis();
+            remoteNodes.values().removeIf(n -> now - n.lastSeen() > NODE_TTL_MS);
+        } catch (RuntimeException e) {
+            log.warn("[PRESENCE] Snapshot failed: {}", e.getMessage());
+        }
+    }
+
+    private void send(PresenceFrame frame) {
+        try {
+            relay.publish(PRESENCE_DESTINATION, objectMapper.writeValueAsBytes(frame));
+        } catch (Exception e) {
+            log.warn("[PRESENCE] Could not publish {}: {}", frame.kind(), e.getMessage());
+        }
+    }
+
+    void onClusterFrame(String destination, byte[] payload) {
+        if (!PRESENCE_DESTINATION.equals(destination)) return;
+        PresenceFrame frame;
+        try {
+            frame = objectMapper.readValue(payload, PresenceFrame.class);
+        } catch (Exception e) {
+            log.warn("[PRESENCE] Unreadable frame: {}", e.getMessage());
+            return;
+        }
+        if (frame.node() == null || frame.node().equals(nodeId) || frame.users() == null) return;
+
+        long now = System.currentTimeMillis();
+        remoteNodes.compute(frame.node(), (id, current) -> {
+            Set<String> users = current == null || "snapshot".equals(frame.kind())
+                    ? ConcurrentHashMap.newKeySet()
+                    : current.users();
+            if ("offline".equals(frame.kind())) {
+                frame.users().forEach(users::remove);
+            } else {
+                users.addAll(frame.users());
+            }
+            return new RemoteNode(users, now);
+        });
+    }
+}
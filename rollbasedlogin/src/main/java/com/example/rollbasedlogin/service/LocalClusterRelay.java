@@ -0,0 +1,27 @@
+package com.example.rollbasedlogin.service;
+
+import java.util.function.BiConsumer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/** Single-node default: nothing is relayed. */
+@Component
+@ConditionalOnProperty(name = "app.cluster.relay", havingValue = "none", matchIfMissing = true)
+public class LocalClusterRelay implements ClusterRelay {
+
+    @Override
+    public void publish(String destination, byte[] payload) {
+        // no other nodes
+    }
+
+    @Override
+    public void onMessage(BiConsumer<String, byte[]> listener) {
+        // nothing will ever arrive
+    }
+
+    @Override
+    public boolean isClustered() {
+        return false;
+    }
+}
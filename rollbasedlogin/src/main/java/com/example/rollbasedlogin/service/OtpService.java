@@ -5,6 +5,7 @@ import com.example.rollbasedlogin.repository.OtpTripRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.time.LocalDateTime;
@@ -21,6 +22,9 @@ public class OtpService {
     @Autowired
     private TwilioService twilioService;
 
+    @Autowired
+    private OutboxService outbox;
+
     @Value("${app.otp.ttl-seconds:600}")
     private long otpTtlSeconds;
 
@@ -142,6 +146,25 @@ public class OtpService {
         return otpTrip;
     }
 
+    /**
+     * Create the trip OTP and queue the SMS to the employee (OTP_SMS outbox row, effect OTP_SMS
+     * of "booking:{id}"), both in the caller's transaction. The employee's phone is looked up
+     * when the SMS is sent. An unverified OTP that already exists is kept.
+     */
+    @Transactional
+    public OtpTrip issueOtp(Long bookingId, String employeeEmail, String employeeName, String driverEmail) {
+        OtpTrip otpTrip = otpTripRepo.findByBookingIdAndVerifiedFalse(bookingId).orElseGet(() -> {
+            OtpTrip created = new OtpTrip(bookingId, employeeEmail, driverEmail, generateSixDigitOtp(),
+                    LocalDateTime.now().plusSeconds(otpTtlSeconds));
+            created.setCreatedAt(LocalDateTime.now());
+            return otpTripRepo.save(created);
+        });
+        outbox.enqueue(OutboxService.OTP_SMS, OutboxService.aggregate("booking", bookingId), OutboxService.OTP_SMS,
+                new OutboxService.OtpSms(bookingId, employeeEmail, employeeName, null));
+        log.info("[OTP] OTP created for booking {}, SMS to employee {} queued", bookingId, employeeEmail);
+        return otpTrip;
+    }
+
     /**
      * Generate and send OTP for a ride
      */
@@ -228,6 +251,7 @@ public class OtpService {
     /**
      * Resend OTP for a trip
      */
+    @Transactional
     public OtpTrip resendOtp(Long bookingId, String phoneNumber, String employeeName) {
         OtpTrip existingOtp = otpTripRepo.findByBookingIdAndVerifiedFalse(bookingId)
                 .orElseThrow(() -> new IllegalArgumentException("No pending OTP for this trip"));
@@ -239,13 +263,12 @@ public class OtpService {
         existingOtp.setAttempts(0); // Reset attempts
         otpTripRepo.save(existingOtp);
 
-        // Send new OTP via SMS
-        try {
-            twilioService.sendOtpSmsWithName(phoneNumber, newOtpCode, employeeName);
-            log.info("[OTP] OTP resent for booking {}", bookingId);
-        } catch (Exception e) {
-            log.error("[OTP] Failed to resend SMS for booking {}: {}", bookingId, e.getMessage());
-        }
+        // Send new OTP via SMS (outbox, committed together with the new code)
+        String aggregate = OutboxService.aggregate("booking", bookingId);
+        outbox.enqueue(OutboxService.OTP_SMS, aggregate, OutboxService.OTP_SMS,
+                aggregate + ":OTP_SMS:" + existingOtp.getExpiresAt(),
+                new OutboxService.OtpSms(bookingId, existingOtp.getEmployeeEmail(), employeeName, phoneNumber));
+        log.info("[OTP] OTP resend queued for booking {}", bookingId);
 
         return existingOtp;
     }
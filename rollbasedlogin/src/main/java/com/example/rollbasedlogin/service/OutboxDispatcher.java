@@ -0,0 +1,375 @@
+package com.example.rollbasedlogin.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.rollbasedlogin.model.Notification;
+import com.example.rollbasedlogin.model.OtpTrip;
+import com.example.rollbasedlogin.model.OutboxEvent;
+import com.example.rollbasedlogin.model.User;
+import com.example.rollbasedlogin.repository.NotificationRepository;
+import com.example.rollbasedlogin.repository.OtpTripRepository;
+import com.example.rollbasedlogin.repository.OutboxEventRepository;
+import com.example.rollbasedlogin.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Delivers outbox_event rows (see OutboxService) to Twilio, email, the notification table,
+ * chat and STOMP.
+ *
+ * Every poll-interval-ms, and right after a transaction that enqueued something commits,
+ * the dispatch thread claims up to batch-size due rows: SELECT ... FOR UPDATE SKIP LOCKED,
+ * then the rows are leased (attempts + 1, hidden for lease-ms) and the claim commits. So
+ * several nodes can dispatch at once without taking the same row, and a row whose node
+ * died mid-delivery comes back after the lease. Rows of one aggregate are delivered in
+ * id order; different aggregates run in parallel on a bounded pool (threads).
+ *
+ * Outcomes:
+ * - delivered: SENT. NOTIFICATION and CHAT_MESSAGE write their row in the same transaction
+ *   as the SENT mark, so they happen exactly once. SMS, email and STOMP are at-least-once:
+ *   a crash between the send and the mark repeats them after the lease.
+ * - failed: retried after backoff-initial-ms, doubling up to backoff-max-ms (+-20% jitter).
+ * - IllegalArgumentException (nothing to retry: missing phone, expired OTP) or max-attempts
+ *   reached: DEAD, with the error kept in last_error.
+ * SENT rows are deleted after retention-days.
+ *
+ * Metrics: outbox.dispatched{kind,outcome=sent|retry|dead}, outbox.delivery{kind} (send time),
+ * outbox.lag{kind} (enqueue to delivered), outbox.pending and outbox.oldest.age (seconds,
+ * refreshed every metrics-interval-ms), executor.* with name=outbox.
+ */
+@Service
+public class OutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private final OutboxEventRepository repo;
+    private final TransactionTemplate tx;
+    private final ObjectMapper objectMapper;
+    private final TwilioService twilioService;
+    private final EmailService emailService;
+    private final NotificationRepository notificationRepo;
+    private final UnreadCounterService unreadCounters;
+    private final ChatMessageService chatMessageService;
+    private final ChatEventPublisher publisher;
+    private final OtpTripRepository otpTripRepo;
+    private final UserRepository userRepo;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.outbox.dispatcher.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs = 1000;
+
+    @Value("${app.outbox.batch-size:50}")
+    private int batchSize = 50;
+
+    @Value("${app.outbox.threads:4}")
+    private int threads = 4;
+
+    @Value("${app.outbox.lease-ms:60000}")
+    private long leaseMs = 60_000;
+
+    @Value("${app.outbox.max-attempts:8}")
+    private int maxAttempts = 8;
+
+    @Value("${app.outbox.backoff-initial-ms:2000}")
+    private long backoffInitialMs = 2000;
+
+    @Value("${app.outbox.backoff-max-ms:300000}")
+    private long backoffMaxMs = 300_000;
+
+    @Value("${app.outbox.retention-days:7}")
+    private int retentionDays = 7;
+
+    @Value("${app.outbox.metrics-interval-ms:10000}")
+    private long metricsIntervalMs = 10_000;
+
+    private ScheduledExecutorService dispatchThread;
+    private ThreadPoolExecutor deliveryPool;
+    private final AtomicBoolean wakeUpQueued = new AtomicBoolean();
+    private volatile long pending;
+    private volatile double oldestAgeSeconds;
+
+    public OutboxDispatcher(OutboxEventRepository repo, TransactionTemplate tx, ObjectMapper objectMapper,
+                            TwilioService twilioService, EmailService emailService,
+                            NotificationRepository notificationRepo, UnreadCounterService unreadCounters,
+                            ChatMessageService chatMessageService, ChatEventPublisher publisher,
+                            OtpTripRepository otpTripRepo, UserRepository userRepo, MeterRegistry meterRegistry) {
+        this.repo = repo;
+        this.tx = tx;
+        this.objectMapper = objectMapper;
+        this.twilioService = twilioService;
+        this.emailService = emailService;
+        this.notificationRepo = notificationRepo;
+        this.unreadCounters = unreadCounters;
+        this.chatMessageService = chatMessageService;
+        this.publisher = publisher;
+        this.otpTripRepo = otpTripRepo;
+        this.userRepo = userRepo;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void start() {
+        Gauge.builder("outbox.pending", this, d -> d.pending)
+                .description("Outbox rows waiting for delivery").register(meterRegistry);
+        Gauge.builder("outbox.oldest.age", this, d -> d.oldestAgeSeconds).baseUnit("seconds")
+                .description("Age of the oldest undelivered outbox row").register(meterRegistry);
+        if (!enabled) {
+            log.info("[OUTBOX] Dispatcher disabled on this node");
+            return;
+        }
+        AtomicInteger n = new AtomicInteger();
+        deliveryPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(batchSize), r -> {
+                    Thread t = new Thread(r, "outbox-deliver-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        deliveryPool.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(deliveryPool, "outbox", Tags.empty()).bindTo(meterRegistry);
+
+        dispatchThread = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "outbox-dispatch");
+            t.setDaemon(true);
+            return t;
+        });
+        dispatchThread.scheduleWithFixedDelay(this::drain, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        dispatchThread.scheduleWithFixedDelay(this::refreshBacklog, 0, metricsIntervalMs, TimeUnit.MILLISECONDS);
+        dispatchThread.scheduleWithFixedDelay(this::deleteDelivered, 1, 60, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (dispatchThread != null) dispatchThread.shutdownNow();
+        if (deliveryPool != null) {
+            deliveryPool.shutdown();
+            // Whatever is still running is redelivered after its lease
+            deliveryPool.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /** Runs a drain soon (coalesced); called after a transaction that enqueued rows commits. */
+    public void wakeUp() {
+        if (dispatchThread == null || dispatchThread.isShutdown()) return;
+        if (wakeUpQueued.compareAndSet(false, true)) {
+            try {
+                dispatchThread.execute(this::drain);
+            } catch (RuntimeException e) {
+                wakeUpQueued.set(false);
+            }
+        }
+    }
+
+    /** Claims and delivers batches until no due rows are left. */
+    void drain() {
+        wakeUpQueued.set(false);
+        try {
+            List<OutboxEvent> batch;
+            do {
+                batch = claim();
+                if (!batch.isEmpty()) deliver(batch);
+            } while (batch.size() >= batchSize);
+        } catch (Exception e) {
+            // Keep the schedule alive (a thrown exception would cancel it); the next poll retries
+            log.warn("[OUTBOX] Dispatch failed: {}", e.getMessage());
+        }
+    }
+
+    private List<OutboxEvent> claim() {
+        List<OutboxEvent> claimed = tx.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> ids = repo.lockDue(now, batchSize);
+            if (ids.isEmpty()) return List.<OutboxEvent>of();
+            repo.lease(ids, now.plus(Duration.ofMillis(leaseMs)));
+            return repo.findAllById(ids);
+        });
+        if (claimed == null || claimed.isEmpty()) return List.of();
+        List<OutboxEvent> sorted = new ArrayList<>(claimed);
+        sorted.sort(Comparator.comparing(OutboxEvent::getId));
+        return sorted;
+    }
+
+    private void deliver(List<OutboxEvent> batch) throws InterruptedException {
+        // One task per aggregate keeps e.g. a trip's messages in the order they were enqueued
+        Map<String, List<OutboxEvent>> byAggregate = new LinkedHashMap<>();
+        for (OutboxEvent e : batch) {
+            String key = e.getAggregate() == null ? "#" + e.getId() : e.getAggregate();
+            byAggregate.computeIfAbsent(key, k -> new ArrayList<>()).add(e);
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (List<OutboxEvent> events : byAggregate.values()) {
+            tasks.add(() -> {
+                events.forEach(this::deliver);
+                return null;
+            });
+        }
+        deliveryPool.invokeAll(tasks);
+    }
+
+    private void deliver(OutboxEvent e) {
+        long t0 = System.nanoTime();
+        try {
+            handle(e);
+            Timer.builder("outbox.delivery").tag("kind", e.getKind()).register(meterRegistry)
+                    .record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+            Timer.builder("outbox.lag").tag("kind", e.getKind()).register(meterRegistry)
+                    .record(Duration.between(e.getCreatedAt(), LocalDateTime.now()));
+            count(e, "sent");
+        } catch (Exception ex) {
+            failed(e, ex);
+        }
+    }
+
+    private void handle(OutboxEvent e) throws Exception {
+        switch (e.getKind()) {
+            case OutboxService.NOTIFICATION -> {
+                OutboxService.Notify p = read(e, OutboxService.Notify.class);
+                tx.executeWithoutResult(status -> {
+                    Notification n = new Notification();
+                    n.setHrEmail(p.hrEmail());
+                    n.setMessage(p.message());
+                    n.setCreatedAt(e.getCreatedAt());
+                    n.setReadFlag(false);
+                    notificationRepo.save(n);
+                    unreadCounters.notificationCreated(n);
+                    repo.markSent(e.getId(), LocalDateTime.now());
+                });
+                return;
+            }
+            case OutboxService.CHAT_MESSAGE -> {
+                OutboxService.Chat p = read(e, OutboxService.Chat.class);
+                tx.executeWithoutResult(status -> {
+                    chatMessageService.send(p.toMessage());
+                    repo.markSent(e.getId(), LocalDateTime.now());
+                });
+                return;
+            }
+            case OutboxService.OTP_SMS -> sendOtp(read(e, OutboxService.OtpSms.class));
+            case OutboxService.TRIP_SMS -> {
+                OutboxService.TripSms p = read(e, OutboxService.TripSms.class);
+                twilioService.sendTripAssignmentNotification(phoneOf(p.driverEmail(), "Driver"), p.driverName(),
+                        p.employeeName(), p.pickup(), p.destination());
+            }
+            case OutboxService.EMAIL -> {
+                OutboxService.Email p = read(e, OutboxService.Email.class);
+                emailService.sendText(p.to(), p.subject(), p.text());
+            }
+            case OutboxService.STOMP -> {
+                JsonNode p = objectMapper.readTree(e.getPayload());
+                publisher.publish(p.path("destination").asText(), p.get("payload"));
+            }
+            default -> throw new IllegalArgumentException("Unknown outbox kind " + e.getKind());
+        }
+        tx.executeWithoutResult(status -> repo.markSent(e.getId(), LocalDateTime.now()));
+    }
+
+    private void sendOtp(OutboxService.OtpSms p) {
+        // Always the booking's current code, so a resend that raced ahead is not undone
+        OtpTrip otp = otpTripRepo.findByBookingIdAndVerifiedFalse(p.bookingId()).orElse(null);
+        if (otp == null) {
+            log.info("[OUTBOX] No pending OTP for booking {} any more, nothing to send", p.bookingId());
+            return;
+        }
+        if (LocalDateTime.now().isAfter(otp.getExpiresAt())) {
+            throw new IllegalArgumentException("OTP expired before it could be sent");
+        }
+        String phone = p.phone() != null && !p.phone().isBlank() ? p.phone() : phoneOf(p.employeeEmail(), "Employee");
+        twilioService.sendOtpSmsWithName(phone, otp.getOtpCode(), p.employeeName());
+    }
+
+    private String phoneOf(String email, String who) {
+        String phone = userRepo.findByEmail(email).map(User::getPhoneNumber).orElse(null);
+        if (phone == null || phone.isBlank()) {
+            throw new IllegalArgumentException(who + " phone number is not configured");
+        }
+        return phone;
+    }
+
+    private <T> T read(OutboxEvent e, Class<T> type) throws Exception {
+        return objectMapper.readValue(e.getPayload(), type);
+    }
+
+    private void failed(OutboxEvent e, Exception ex) {
+        String error = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+        if (error.length() > 1000) error = error.substring(0, 1000);
+        String message = error;
+        try {
+            if (ex instanceof IllegalArgumentException || e.getAttempts() >= maxAttempts) {
+                tx.executeWithoutResult(status -> repo.markDead(e.getId(), message));
+                count(e, "dead");
+                log.warn("[OUTBOX] Giving up on {} #{} ({}) after {} attempts: {}", e.getKind(), e.getId(),
+                        e.getIdempotencyKey(), e.getAttempts(), message);
+            } else {
+                LocalDateTime next = LocalDateTime.now().plus(Duration.ofMillis(backoffMs(e.getAttempts())));
+                tx.executeWithoutResult(status -> repo.markRetry(e.getId(), next, message));
+                count(e, "retry");
+                log.info("[OUTBOX] {} #{} failed (attempt {}), retrying at {}: {}", e.getKind(), e.getId(),
+                        e.getAttempts(), next, message);
+            }
+        } catch (RuntimeException markError) {
+            // The lease runs out and the row is retried as if this node had died
+            log.warn("[OUTBOX] Could not record failure of #{}: {}", e.getId(), markError.getMessage());
+        }
+    }
+
+    long backoffMs(int attempts) {
+        double exp = backoffInitialMs * Math.pow(2, Math.max(0, attempts - 1));
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return (long) (Math.min(backoffMaxMs, exp) * jitter);
+    }
+
+    private void count(OutboxEvent e, String outcome) {
+        meterRegistry.counter("outbox.dispatched", "kind", e.getKind(), "outcome", outcome).increment();
+    }
+
+    private void refreshBacklog() {
+        try {
+            pending = repo.countByStatus(OutboxEvent.PENDING);
+            LocalDateTime oldest = repo.oldestPendingCreatedAt();
+            oldestAgeSeconds = oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toMillis() / 1000.0;
+        } catch (RuntimeException e) {
+            log.warn("[OUTBOX] Could not read backlog: {}", e.getMessage());
+        }
+    }
+
+    private void deleteDelivered() {
+        try {
+            Integer deleted = tx.execute(status ->
+                    repo.deleteSentBefore(LocalDateTime.now().minusDays(retentionDays)));
+            if (deleted != null && deleted > 0) log.info("[OUTBOX] Deleted {} delivered rows", deleted);
+        } catch (RuntimeException e) {
+            log.warn("[OUTBOX] Cleanup failed: {}", e.getMessage());
+        }
+    }
+}
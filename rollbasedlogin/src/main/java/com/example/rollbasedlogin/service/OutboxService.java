@@ -0,0 +1,141 @@
+package com.example.rollbasedlogin.service;
+
+import java.time.LocalDateTime;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.rollbasedlogin.model.ChatMessage;
+import com.example.rollbasedlogin.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Records side effects in the outbox_event table as part of the caller's transaction,
+ * so they are stored if and only if the state change that caused them commits.
+ * OutboxDispatcher delivers them afterwards; a commit wakes it up right away.
+ *
+ * Every row has an idempotency key, by default "{aggregate}:{effect}" (e.g.
+ * "booking:42:HR_NOTIFICATION"). Enqueuing the same key again is a no-op, so a retried
+ * request does not notify twice.
+ *
+ * The payload records below are the JSON written for each kind.
+ */
+@Service
+public class OutboxService {
+
+    public static final String NOTIFICATION = "NOTIFICATION";
+    public static final String OTP_SMS = "OTP_SMS";
+    public static final String TRIP_SMS = "TRIP_SMS";
+    public static final String EMAIL = "EMAIL";
+    public static final String CHAT_MESSAGE = "CHAT_MESSAGE";
+    public static final String STOMP = "STOMP";
+
+    private final OutboxEventRepository repo;
+    private final OutboxDispatcher dispatcher;
+    private final ObjectMapper objectMapper;
+
+    public OutboxService(OutboxEventRepository repo, OutboxDispatcher dispatcher, ObjectMapper objectMapper) {
+        this.repo = repo;
+        this.dispatcher = dispatcher;
+        this.objectMapper = objectMapper;
+    }
+
+    /** HR notification (Notification row). */
+    public record Notify(String hrEmail, String message) {
+    }
+
+    /** Current OTP of a booking, texted to the employee; phone is looked up when null. */
+    public record OtpSms(Long bookingId, String employeeEmail, String employeeName, String phone) {
+    }
+
+    /** Trip details texted to the driver (phone looked up from the driver's user record). */
+    public record TripSms(String driverEmail, String driverName, String employeeName, String pickup,
+                          String destination) {
+    }
+
+    public record Email(String to, String subject, String text) {
+    }
+
+    /** A chat message, written through ChatMessageService (and so published to its live topics). */
+    public record Chat(String senderEmail, String senderRole, String receiverEmail, String receiverRole,
+                       String subject, String content, String messageType, Long tripId,
+                       LocalDateTime createdAt) {
+
+        public static Chat of(ChatMessage m) {
+            return new Chat(m.getSenderEmail(), m.getSenderRole(), m.getReceiverEmail(), m.getReceiverRole(),
+                    m.getSubject(), m.getContent(), m.getMessageType(), m.getTripId(),
+                    m.getCreatedAt() == null ? LocalDateTime.now() : m.getCreatedAt());
+        }
+
+        public ChatMessage toMessage() {
+            ChatMessage m = new ChatMessage();
+            m.setSenderEmail(senderEmail);
+            m.setSenderRole(senderRole);
+            m.setReceiverEmail(receiverEmail);
+            m.setReceiverRole(receiverRole);
+            m.setSubject(subject);
+            m.setContent(content);
+            m.setMessageType(messageType);
+            m.setTripId(tripId);
+            m.setCreatedAt(createdAt);
+            m.setReadFlag(false);
+            return m;
+        }
+    }
+
+    /** A STOMP frame for ChatEventPublisher.publish. */
+    public record Stomp(String destination, Object payload) {
+    }
+
+    public static String aggregate(String type, Long id) {
+        return type + ":" + id;
+    }
+
+    /** Enqueues with the default key "{aggregate}:{effect}"; false if that key was already there. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean enqueue(String kind, String aggregate, String effect, Object payload) {
+        return enqueue(kind, aggregate, effect, aggregate + ":" + effect, payload);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean enqueue(String kind, String aggregate, String effect, String idempotencyKey, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload is not serializable: " + e.getMessage(), e);
+        }
+        boolean inserted = repo.insert(kind, aggregate, effect, idempotencyKey, json, LocalDateTime.now()) > 0;
+        if (inserted) wakeDispatcherAfterCommit();
+        return inserted;
+    }
+
+    /** HR notification for an aggregate; skipped (false) when the HR email is unknown. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean notifyHr(String aggregate, String effect, String hrEmail, String message) {
+        if (hrEmail == null || hrEmail.isBlank()) return false;
+        return enqueue(NOTIFICATION, aggregate, effect, new Notify(hrEmail, message));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean chat(String aggregate, String effect, ChatMessage m) {
+        return enqueue(CHAT_MESSAGE, aggregate, effect, Chat.of(m));
+    }
+
+    private void wakeDispatcherAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            dispatcher.wakeUp();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatcher.wakeUp();
+            }
+        });
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.rollbasedlogin.service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Cross-node fan-out over Postgres LISTEN/NOTIFY, so running several backend
+ * instances needs no infrastructure beyond the database we already have.
+ *
+ * Frames are sent as "originNodeId\ndestination\npayload". NOTIFY payloads are
+ * limited to 8000 bytes, so larger frames are written to cluster_fanout_spill and
+ * only their id is notified ("@spill:&lt;id&gt;"); spilled rows are pruned after a few minutes.
+ *
+ * The listener holds one dedicated connection outside the Hikari pool (the pool is
+ * small) and reconnects with backoff if it drops.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cluster.relay", havingValue = "postgres")
+public class PostgresClusterRelay implements ClusterRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresClusterRelay.class);
+
+    private static final String CHANNEL = "chat_fanout";
+    private static final int MAX_NOTIFY_BYTES = 7900;
+    private static final String SPILL_PREFIX = "@spill:";
+
+    private final JdbcTemplate jdbc;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username:}")
+    private String username;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    private final List<BiConsumer<String, byte[]>> listeners = new CopyOnWriteArrayList<>();
+    private final List<Runnable> reconnectListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+    private Thread listenerThread;
+    private long lastPrune;
+
+    public PostgresClusterRelay(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @PostConstruct
+    void start() {
+        try {
+            jdbc.execute("create table if not exists cluster_fanout_spill (" +
+                    "id bigserial primary key, payload text not null, created_at timestamptz not null default now())");
+        } catch (Exception e) {
+            log.warn("[CLUSTER-RELAY] Could not create spill table: {}", e.getMessage());
+        }
+        running = true;
+        listenerThread = new Thread(this::listenLoop, "cluster-relay-postgres");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+        log.info("[CLUSTER-RELAY] Postgres LISTEN/NOTIFY relay started (node {})", nodeId);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (listenerThread != null) listenerThread.interrupt();
+    }
+
+    @Override
+    public void publish(String destination, byte[] payload) {
+        String body = new String(payload, StandardCharsets.UTF_8);
+        String frame = nodeId + "\n" + destination + "\n" + body;
+        try {
+            if (frame.getBytes(StandardCharsets.UTF_8).length > MAX_NOTIFY_BYTES) {
+                Long spillId = jdbc.queryForObject(
+                        "insert into cluster_fanout_spill (payload) values (?) returning id", Long.class, body);
+                frame = nodeId + "\n" + destination + "\n" + SPILL_PREFIX + spillId;
+            }
+            jdbc.queryForObject("select pg_notify(?, ?)", Object.class, CHANNEL, frame);
+        } catch (Exception e) {
+            // Local subscribers already got it; other nodes miss this one frame.
+            log.warn("[CLUSTER-RELAY] Failed to relay {}: {}", destination, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(BiConsumer<String, byte[]> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void onReconnect(Runnable listener) {
+        reconnectListeners.add(listener);
+    }
+
+    private void listenLoop() {
+        long backoffMs = 1000;
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection conn = DriverManager.getConnection(url, username, password)) {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                backoffMs = 1000;
+                if (reconnecting) {
+                    log.info("[CLUSTER-RELAY] Listener reconnected");
+                    for (Runnable l : reconnectListeners) {
+                        try {
+                            l.run();
+                        } catch (RuntimeException e) {
+                            log.warn("[CLUSTER-RELAY] Reconnect listener failed: {}", e.getMessage());
+                        }
+                    }
+                }
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(500);
+                    if (notifications != null) {
+                        for (PGNotification n : notifications) handle(n.getParameter());
+                    }
+                    pruneSpill();
+                }
+            } catch (Exception e) {
+                if (!running) return;
+                reconnecting = true;
+                log.warn("[CLUSTER-RELAY] Listener connection lost: {} (retrying in {} ms)", e.getMessage(), backoffMs);
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, 30_000);
+            }
+        }
+    }
+
+    private void handle(String frame) {
+        int first = frame.indexOf('\n');
+        int second = first < 0 ? -1 : frame.indexOf('\n', first + 1);
+        if (second < 0) return;
+        if (frame.substring(0, first).equals(nodeId)) return; // our own frame
+
+        String destination = frame.substring(first + 1, second);
+        String body = frame.substring(second + 1);
+        try {
+            if (body.startsWith(SPILL_PREFIX)) {
+                long id = Long.parseLong(body.substring(SPILL_PREFIX.length()));
+                body = jdbc.queryForObject("select payload from cluster_fanout_spill where id = ?", String.class, id);
+            }
+            if (body == null) return;
+            byte[] payload = body.getBytes(StandardCharsets.UTF_8);
+            for (BiConsumer<String, byte[]> l : listeners) l.accept(destination, payload);
+        } catch (Exception e) {
+            log.warn("[CLUSTER-RELAY] Dropped frame for {}: {}", destination, e.getMessage());
+        }
+    }
+
+    private void pruneSpill() {
+        long now = System.currentTimeMillis();
+        if (now - lastPrune < 60_000) return;
+        lastPrune = now;
+        try {
+            jdbc.update("delete from cluster_fanout_spill where created_at < now() - interval '5 minutes'");
+        } catch (Exception e) {
+            log.debug("[CLUSTER-RELAY] Spill prune failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.rollbasedlogin.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.rollbasedlogin.dto.RideRequest;
+import com.example.rollbasedlogin.dto.RideRequestEvent;
+import com.example.rollbasedlogin.model.Booking;
+import com.example.rollbasedlogin.repository.BookingRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Open (REQUESTED) bookings per cab type, kept in memory so drivers looking for work
+ * are served without querying the booking table.
+ *
+ * The index is loaded on ApplicationReadyEvent and then kept current by the booking
+ * endpoints: {@link #opened} when HR books a cab, {@link #closed} when a driver claims
+ * it. Changes are applied after the transaction commits, pushed to drivers on
+ * /topic/ride-requests.{cabType} (RideRequestEvent) and forwarded to the other nodes
+ * as "cluster:ride-requests" frames. Every reconcile-interval-ms the index is rebuilt
+ * from the database, which repairs anything a lost frame or an out-of-band status
+ * change left behind. Changes that arrive while the rebuild reads the database are
+ * replayed onto the rebuilt index before it is swapped in.
+ *
+ * Cab types are matched case-insensitively, as acceptTrip does.
+ *
+ * Metrics: ride_requests.open (bookings currently in the index).
+ */
+@Service
+public class RideRequestIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(RideRequestIndex.class);
+
+    static final String INDEX_DESTINATION = ClusterRelay.CONTROL_PREFIX + "ride-requests";
+    public static final String TOPIC_PREFIX = "/topic/ride-requests.";
+    private static final String OPEN_STATUS = "REQUESTED";
+
+    private final BookingRepository bookingRepo;
+    private final ChatEventPublisher publisher;
+    private final ClusterRelay relay;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    // cab type key -> open requests, newest first
+    private volatile Map<String, ConcurrentSkipListMap<Long, RideRequest>> byCabType = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    // Guards byCabType swaps and pending; events seen while reload() queries, null otherwise
+    private final Object swapLock = new Object();
+    private List<RideRequestEvent> pending;
+
+    @Value("${app.ride-requests.reconcile-interval-ms:300000}")
+    private long reconcileIntervalMs = 300_000;
+
+    private ScheduledExecutorService reconciler;
+
+    public RideRequestIndex(BookingRepository bookingRepo, ChatEventPublisher publisher, ClusterRelay relay,
+                            ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.bookingRepo = bookingRepo;
+        this.publisher = publisher;
+        this.relay = relay;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** Normalized cab type used for index keys and topic names, or null when unset. */
+    public static String cabTypeKey(String cabType) {
+        if (cabType == null || cabType.isBlank()) return null;
+        return cabType.trim().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_-]", "-");
+    }
+
+    @PostConstruct
+    void start() {
+        Gauge.builder("ride_requests.open", this, RideRequestIndex::size)
+                .description("Open ride requests held in memory").register(meterRegistry);
+        relay.onMessage(this::onClusterFrame);
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ride-requests-reconcile");
+            t.setDaemon(true);
+            return t;
+        });
+        reconciler.scheduleWithFixedDelay(this::reload, reconcileIntervalMs, reconcileIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (reconciler != null) reconciler.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reload();
+    }
+
+    /** Open requests for a cab type, newest first. */
+    public List<RideRequest> snapshot(String cabType) {
+        String key = cabTypeKey(cabType);
+        if (key == null) return List.of();
+        if (!loaded) reload();
+        ConcurrentSkipListMap<Long, RideRequest> open = byCabType.get(key);
+        return open == null ? List.of() : new ArrayList<>(open.values());
+    }
+
+    /** Cab type keys that currently have open requests. */
+    public List<String> cabTypes() {
+        if (!loaded) reload();
+        List<String> keys = new ArrayList<>();
+        byCabType.forEach((key, open) -> {
+            if (!open.isEmpty()) keys.add(key);
+        });
+        return keys;
+    }
+
+    /** A booking was created as REQUESTED. */
+    public void opened(Booking b) {
+        if (b == null || b.getId() == null || !OPEN_STATUS.equalsIgnoreCase(b.getStatus())) return;
+        if (cabTypeKey(b.getCabType()) == null) return;
+        afterCommit(RideRequestEvent.opened(RideRequest.of(b)));
+    }
+
+    /** A booking left REQUESTED (claimed by a driver). */
+    public void closed(Booking b) {
+        if (b == null || b.getId() == null || cabTypeKey(b.getCabType()) == null) return;
+        afterCommit(RideRequestEvent.closed(b.getId(), b.getCabType()));
+    }
+
+    private void afterCommit(RideRequestEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(event);
+            }
+        });
+    }
+
+    private void publish(RideRequestEvent event) {
+        apply(event);
+        publisher.publish(TOPIC_PREFIX + cabTypeKey(event.cabType()), event);
+        if (!relay.isClustered()) return;
+        try {
+            relay.publish(INDEX_DESTINATION, objectMapper.writeValueAsBytes(event));
+        } catch (Exception e) {
+            log.warn("[RIDE-REQUESTS] Could not forward booking {}: {}", event.bookingId(), e.getMessage());
+        }
+    }
+
+    private void apply(RideRequestEvent event) {
+        synchronized (swapLock) {
+            if (pending != null) pending.add(event);
+            apply(byCabType, event);
+        }
+    }
+
+    private static void apply(Map<String, ConcurrentSkipListMap<Long, RideRequest>> byCabType,
+                              RideRequestEvent event) {
+        String key = cabTypeKey(event.cabType());
+        if (RideRequestEvent.OPENED.equals(event.type()) && event.request() != null) {
+            byCabType.computeIfAbsent(key, k -> new ConcurrentSkipListMap<>(Comparator.reverseOrder()))
+                    .put(event.bookingId(), event.request());
+        } else if (RideRequestEvent.CLOSED.equals(event.type())) {
+            ConcurrentSkipListMap<Long, RideRequest> open = byCabType.get(key);
+            if (open != null) open.remove(event.bookingId());
+        }
+    }
+
+    void onClusterFrame(String destination, byte[] payload) {
+        if (!INDEX_DESTINATION.equals(destination)) return;
+        try {
+            apply(objectMapper.readValue(payload, RideRequestEvent.class));
+        } catch (Exception e) {
+            log.warn("[RIDE-REQUESTS] Unreadable frame: {}", e.getMessage());
+        }
+    }
+
+    /** Rebuilds the index from the database and swaps it in. */
+    synchronized void reload() {
+        synchronized (swapLock) {
+            pending = new ArrayList<>();
+        }
+        try {
+            Map<String, ConcurrentSkipListMap<Long, RideRequest>> fresh = new ConcurrentHashMap<>();
+            for (Booking b : bookingRepo.findByStatus(OPEN_STATUS)) {
+                String key = cabTypeKey(b.getCabType());
+                if (key == null) continue;
+                fresh.computeIfAbsent(key, k -> new ConcurrentSkipListMap<>(Comparator.reverseOrder()))
+                        .put(b.getId(), RideRequest.of(b));
+            }
+            synchronized (swapLock) {
+                // Opened/closed after the query started: the snapshot may predate them
+                for (RideRequestEvent event : pending) apply(fresh, event);
+                byCabType = fresh;
+            }
+            if (!loaded) log.info("[RIDE-REQUESTS] Loaded {} open requests", size());
+            loaded = true;
+        } catch (RuntimeException e) {
+            log.warn("[RIDE-REQUESTS] Reload failed: {}", e.getMessage());
+        } finally {
+            synchronized (swapLock) {
+                pending = null;
+            }
+        }
+    }
+
+    private int size() {
+        int n = 0;
+        for (ConcurrentSkipListMap<Long, RideRequest> open : byCabType.values()) n += open.size();
+        return n;
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.rollbasedlogin.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.rollbasedlogin.dto.RoleBroadcast;
+import com.example.rollbasedlogin.model.ChatMessage;
+import com.example.rollbasedlogin.repository.ChatMessageRepository;
+import com.example.rollbasedlogin.util.TimeWindow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * The newest role broadcasts (receiverRole set, no receiverEmail) per role, kept in memory
+ * so the role half of ChatInboxService.inboxPage does not hit the database for every user
+ * of that role who opens the inbox.
+ *
+ * Each role holds at most {@code capacity} messages by id. Everything with id &gt;= floor is
+ * guaranteed to be present (floor is 0 while nothing was ever evicted); older pages are
+ * read from the database. Buffers are loaded on ApplicationReadyEvent for the configured
+ * roles, and lazily on first read for any other role.
+ *
+ * Writes (new broadcasts, read-flag changes) are applied after their transaction commits
+ * and forwarded to the other nodes over the ClusterRelay as "cluster:role-broadcast" frames.
+ * Buffers hold immutable RoleBroadcast copies (also what the frames carry); every read gets
+ * fresh ChatMessage instances.
+ *
+ * Frames are best-effort, so every reconcile-interval-ms each loaded buffer is reloaded from
+ * the database, and all of them right away when the relay reports a reconnect. Writes that
+ * land while a reload runs are kept on top of the reloaded snapshot.
+ *
+ * Metrics: chat.role_cache.reads{result=memory|db}.
+ */
+@Service
+public class RoleBroadcastCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RoleBroadcastCache.class);
+
+    static final String BROADCAST_DESTINATION = ClusterRelay.CONTROL_PREFIX + "role-broadcast";
+
+    private final ChatMessageRepository chatRepo;
+    private final ClusterRelay relay;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Buffer> buffers = new ConcurrentHashMap<>();
+
+    @Value("${app.chat.role-cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.chat.role-cache.size:500}")
+    private int capacity = 500;
+
+    @Value("${app.chat.role-cache.roles:hr,employee,driver,admin}")
+    private List<String> warmRoles = List.of();
+
+    @Value("${app.chat.role-cache.reconcile-interval-ms:60000}")
+    private long reconcileIntervalMs = 60_000;
+
+    private ScheduledExecutorService reconciler;
+    private Counter memoryReads;
+    private Counter dbReads;
+
+    public RoleBroadcastCache(ChatMessageRepository chatRepo, ClusterRelay relay, ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry) {
+        this.chatRepo = chatRepo;
+        this.relay = relay;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** Broadcast forwarded to the other nodes; role is the normalized key. */
+    record BroadcastFrame(String role, RoleBroadcast message) {
+    }
+
+    /**
+     * Cached page for one role: messages newest first, all with id &lt; beforeId.
+     * Nothing between floor and the last returned id is missing; ids below floor
+     * may exist in the database.
+     */
+    public record Slice(List<ChatMessage> messages, long floor) {
+    }
+
+    private static final class Buffer {
+        TreeMap<Long, RoleBroadcast> byId = new TreeMap<>();
+        boolean loaded;
+        long floor = Long.MAX_VALUE;
+        // Writes seen while a reconcile reads the database; null when none is running
+        TreeMap<Long, RoleBroadcast> pending;
+    }
+
+    @PostConstruct
+    void start() {
+        memoryReads = Counter.builder("chat.role_cache.reads").tag("result", "memory")
+                .description("Role inbox reads by source").register(meterRegistry);
+        dbReads = Counter.builder("chat.role_cache.reads").tag("result", "db")
+                .description("Role inbox reads by source").register(meterRegistry);
+        if (!enabled) return;
+        relay.onMessage(this::onClusterFrame);
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "role-cache-reconcile");
+            t.setDaemon(true);
+            return t;
+        });
+        reconciler.scheduleWithFixedDelay(this::reconcile, reconcileIntervalMs, reconcileIntervalMs,
+                TimeUnit.MILLISECONDS);
+        relay.onReconnect(() -> reconciler.execute(this::reconcile));
+    }
+
+    @PreDestroy
+    void stop() {
+        if (reconciler != null) reconciler.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) return;
+        for (String role : warmRoles) {
+            String key = ChatMessage.normKey(role);
+            if (key == null) continue;
+            try {
+                Buffer b = buffer(key);
+                synchronized (b) {
+                    install(b, newest(key));
+                }
+                log.info("[ROLE-CACHE] Warmed '{}' with {} broadcasts", key, b.byId.size());
+            } catch (RuntimeException e) {
+                log.warn("[ROLE-CACHE] Warm-up for '{}' failed: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Newest cached broadcasts for {@code role} with id &lt; beforeId (at most {@code limit}),
+     * or null when caching is disabled.
+     */
+    public Slice slice(String role, long beforeId, int limit) {
+        if (!enabled || role == null) return null;
+        Buffer b = buffer(role);
+        synchronized (b) {
+            if (!b.loaded) install(b, newest(role));
+            List<ChatMessage> out = new ArrayList<>(Math.min(limit, b.byId.size()));
+            for (RoleBroadcast m : b.byId.headMap(beforeId, false).descendingMap().values()) {
+                if (out.size() == limit) break;
+                out.add(m.toMessage());
+            }
+            Slice slice = new Slice(out, b.floor);
+            (out.size() == limit || b.floor == 0 ? memoryReads : dbReads).increment();
+            return slice;
+        }
+    }
+
+    /**
+     * Records a saved role broadcast (new, or with a changed read flag) once the current
+     * transaction commits. Direct messages are ignored.
+     */
+    public void afterCommit(ChatMessage m) {
+        if (!enabled || !isBroadcast(m)) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(RoleBroadcast.of(m));
+            return;
+        }
+        // Copied now: the entity may still change before (or after) the commit
+        RoleBroadcast copy = RoleBroadcast.of(m);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(copy);
+            }
+        });
+    }
+
+    private void apply(RoleBroadcast m) {
+        put(m.receiverRoleNorm(), m);
+        try {
+            relay.publish(BROADCAST_DESTINATION,
+                    objectMapper.writeValueAsBytes(new BroadcastFrame(m.receiverRoleNorm(), m)));
+        } catch (Exception e) {
+            log.warn("[ROLE-CACHE] Could not forward broadcast {}: {}", m.id(), e.getMessage());
+        }
+    }
+
+    void onClusterFrame(String destination, byte[] payload) {
+        if (!BROADCAST_DESTINATION.equals(destination)) return;
+        try {
+            BroadcastFrame frame = objectMapper.readValue(payload, BroadcastFrame.class);
+            if (frame.role() != null && frame.message() != null && frame.message().id() != null) {
+                put(frame.role(), frame.message());
+            }
+        } catch (Exception e) {
+            log.warn("[ROLE-CACHE] Unreadable frame: {}", e.getMessage());
+        }
+    }
+
+    private void put(String role, RoleBroadcast m) {
+        Buffer b = buffer(role);
+        synchronized (b) {
+            if (b.pending != null) b.pending.put(m.id(), m);
+            // Below floor means it was already evicted (or never fit): the database serves it
+            if (m.id() < b.floor && b.loaded) return;
+            b.byId.put(m.id(), m);
+            trim(b);
+        }
+    }
+
+    /** Reloads every loaded buffer from the database, dropping whatever frames were missed. */
+    void reconcile() {
+        int reloaded = 0;
+        for (Map.Entry<String, Buffer> e : buffers.entrySet()) {
+            Buffer b = e.getValue();
+            synchronized (b) {
+                if (!b.loaded || b.pending != null) continue;
+                b.pending = new TreeMap<>();
+            }
+            try {
+                // Outside the lock: readers keep using the current buffer meanwhile
+                List<ChatMessage> newest = newest(e.getKey());
+                synchronized (b) {
+                    b.byId = new TreeMap<>();
+                    install(b, newest);
+                    // Below the new floor they would look like a gap-free page; the database has them
+                    b.byId.putAll(b.pending.tailMap(b.floor, true));
+                    trim(b);
+                }
+                reloaded++;
+            } catch (RuntimeException ex) {
+                log.warn("[ROLE-CACHE] Reconcile of '{}' failed: {}", e.getKey(), ex.getMessage());
+            } finally {
+                synchronized (b) {
+                    b.pending = null;
+                }
+            }
+        }
+        if (reloaded > 0) log.debug("[ROLE-CACHE] Reconciled {} role buffers", reloaded);
+    }
+
+    private Buffer buffer(String role) {
+        return buffers.computeIfAbsent(role, k -> new Buffer());
+    }
+
+    private List<ChatMessage> newest(String role) {
+        return chatRepo.roleInboxPage(role, Long.MAX_VALUE, TimeWindow.BEGINNING, TimeWindow.END,
+                PageRequest.of(0, capacity));
+    }
+
+    // Caller holds the buffer's lock.
+    private void install(Buffer b, List<ChatMessage> newest) {
+        for (ChatMessage m : newest) b.byId.putIfAbsent(m.getId(), RoleBroadcast.of(m));
+        b.floor = newest.size() < capacity ? 0 : newest.get(newest.size() - 1).getId();
+        b.loaded = true;
+        trim(b);
+    }
+
+    private void trim(Buffer b) {
+        while (b.byId.size() > capacity) {
+            Map.Entry<Long, RoleBroadcast> evicted = b.byId.pollFirstEntry();
+            b.floor = Math.max(b.floor == Long.MAX_VALUE ? 0 : b.floor, evicted.getKey() + 1);
+        }
+    }
+
+    private static boolean isBroadcast(ChatMessage m) {
+        return m != null && m.getId() != null
+                && m.getReceiverEmailNorm() == null && m.getReceiverRoleNorm() != null;
+    }
+
+}
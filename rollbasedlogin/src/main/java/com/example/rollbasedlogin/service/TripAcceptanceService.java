@@ -0,0 +1,111 @@
+package com.example.rollbasedlogin.service;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.rollbasedlogin.dto.TripEffectStatus;
+import com.example.rollbasedlogin.model.Booking;
+import com.example.rollbasedlogin.model.Driver;
+import com.example.rollbasedlogin.model.User;
+import com.example.rollbasedlogin.repository.BookingRepository;
+import com.example.rollbasedlogin.repository.DriverRepository;
+import com.example.rollbasedlogin.repository.UserRepository;
+
+/**
+ * Assigns a REQUESTED booking to a driver without a read-check-write race.
+ *
+ * The reads up front only pick the error message. The claim itself is two conditional
+ * UPDATEs in one transaction: the driver goes from available to busy, then the booking
+ * from REQUESTED to ASSIGNED. Whichever concurrent request runs second matches no row and
+ * gets a {@link Rejected} with 409; if the booking was lost, the rollback makes the driver
+ * available again. No lock is held beyond the two rows. Both entities also carry @Version,
+ * so a stale load-modify-save elsewhere fails instead of overwriting a claim.
+ *
+ * The trip's side effects (OTP, SMS, HR notification, chat) go to the outbox in the same
+ * transaction (TripEffectsService), so they exist exactly when the claim does.
+ */
+@Service
+public class TripAcceptanceService {
+
+    private final BookingRepository bookingRepo;
+    private final DriverRepository driverRepo;
+    private final UserRepository userRepo;
+    private final RideRequestIndex rideRequests;
+    private final TripEffectsService tripEffects;
+
+    public TripAcceptanceService(BookingRepository bookingRepo, DriverRepository driverRepo,
+                                 UserRepository userRepo, RideRequestIndex rideRequests,
+                                 TripEffectsService tripEffects) {
+        this.bookingRepo = bookingRepo;
+        this.driverRepo = driverRepo;
+        this.userRepo = userRepo;
+        this.rideRequests = rideRequests;
+        this.tripEffects = tripEffects;
+    }
+
+    /** Why an acceptance was refused; {@code status} is the HTTP status to answer with. */
+    public static class Rejected extends RuntimeException {
+        private final int status;
+
+        public Rejected(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    /** The accepted booking and the driver who took it (both as of the claim), and the queued side effects. */
+    public record Accepted(Booking booking, Driver driver, List<TripEffectStatus> effects) {
+    }
+
+    @Transactional
+    public Accepted accept(Long bookingId, String email) {
+        Driver driver = driverRepo.findByEmail(email)
+                .orElseThrow(() -> new Rejected(404, "Driver not found"));
+        if (!driver.isAvailable()) {
+            throw new Rejected(409, "Driver is not available");
+        }
+        if (bookingRepo.existsByDriverEmailAndStatus(email, "ASSIGNED")) {
+            throw new Rejected(409, "Driver already has an assigned trip");
+        }
+
+        Booking booking = bookingRepo.findById(bookingId)
+                .orElseThrow(() -> new Rejected(404, "Booking not found"));
+        if (!"REQUESTED".equalsIgnoreCase(booking.getStatus())) {
+            throw new Rejected(409, "Booking is not available for acceptance");
+        }
+        String bookingCabType = booking.getCabType() == null ? "" : booking.getCabType();
+        String driverCabType = driver.getCabType() == null ? "" : driver.getCabType();
+        if (!bookingCabType.equalsIgnoreCase(driverCabType)) {
+            throw new Rejected(409, "Cab type mismatch");
+        }
+
+        // The claim: both updates match only while the row is still in the state checked above
+        if (driverRepo.claim(email) == 0) {
+            throw new Rejected(409, "Driver is not available");
+        }
+        if (bookingRepo.claim(bookingId, email) == 0) {
+            throw new Rejected(409, "Booking was already accepted by another driver");
+        }
+
+        // Sync the driver's phone number from the User table (used for OTP delivery)
+        Optional<User> user = userRepo.findByEmail(email);
+        if (user.isPresent()) {
+            driverRepo.updatePhoneNumber(email, user.get().getPhoneNumber());
+            driver.setPhoneNumber(user.get().getPhoneNumber());
+        }
+
+        // The claims cleared the persistence context, so these copies are detached
+        driver.setAvailable(false);
+        booking.setDriverEmail(email);
+        booking.setStatus("ASSIGNED");
+        rideRequests.closed(booking);
+        return new Accepted(booking, driver, tripEffects.enqueue(booking, driver));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.rollbasedlogin.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.rollbasedlogin.dto.TripEffectStatus;
+import com.example.rollbasedlogin.model.Booking;
+import com.example.rollbasedlogin.model.ChatMessage;
+import com.example.rollbasedlogin.model.Driver;
+import com.example.rollbasedlogin.model.OutboxEvent;
+import com.example.rollbasedlogin.repository.BookingRepository;
+import com.example.rollbasedlogin.repository.OutboxEventRepository;
+
+/**
+ * Side effects of an accepted trip, written to the outbox in the claim's transaction and
+ * delivered by OutboxDispatcher once it has committed:
+ * - OTP_SMS: the trip OTP (created here) texted to the employee
+ * - DRIVER_SMS: the trip details texted to the driver
+ * - HR_NOTIFICATION: tell the booking's HR that a driver accepted (only if it has one)
+ * - DRIVER_CHAT: the SYSTEM_ASSIGNMENT chat message to the driver
+ *
+ * The driver polls their progress through GET /api/driver/accept-trip/{bookingId}/effects,
+ * which reads the booking's outbox rows, so any node can answer and it survives restarts
+ * (until delivered rows are cleaned up after app.outbox.retention-days).
+ */
+@Service
+public class TripEffectsService {
+
+    public static final String OTP_SMS = "OTP_SMS";
+    public static final String DRIVER_SMS = "DRIVER_SMS";
+    public static final String HR_NOTIFICATION = "HR_NOTIFICATION";
+    public static final String DRIVER_CHAT = "DRIVER_CHAT";
+    private static final List<String> EFFECTS = List.of(OTP_SMS, DRIVER_SMS, HR_NOTIFICATION, DRIVER_CHAT);
+
+    private final OtpService otpService;
+    private final OutboxService outbox;
+    private final OutboxEventRepository outboxRepo;
+    private final BookingRepository bookingRepo;
+
+    public TripEffectsService(OtpService otpService, OutboxService outbox, OutboxEventRepository outboxRepo,
+                              BookingRepository bookingRepo) {
+        this.otpService = otpService;
+        this.outbox = outbox;
+        this.outboxRepo = outboxRepo;
+        this.bookingRepo = bookingRepo;
+    }
+
+    /**
+     * Queues the side effects of an accepted trip in the caller's transaction;
+     * returns the initial (PENDING) status of every effect queued.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<TripEffectStatus> enqueue(Booking booking, Driver driver) {
+        Long bookingId = booking.getId();
+        String aggregate = OutboxService.aggregate("booking", bookingId);
+        List<TripEffectStatus> queued = new ArrayList<>();
+
+        otpService.issueOtp(bookingId, booking.getEmployeeEmail(), booking.getEmployeeName(), driver.getEmail());
+        queued.add(TripEffectStatus.pending(OTP_SMS));
+
+        outbox.enqueue(OutboxService.TRIP_SMS, aggregate, DRIVER_SMS, new OutboxService.TripSms(driver.getEmail(),
+                driver.getName(), booking.getEmployeeName(), booking.getPickupLocation(), booking.getDestination()));
+        queued.add(TripEffectStatus.pending(DRIVER_SMS));
+
+        if (outbox.notifyHr(aggregate, HR_NOTIFICATION, booking.getHrEmail(),
+                "Driver " + driver.getEmail() + " accepted booking #" + bookingId
+                        + ". OTP sent to driver for verification.")) {
+            queued.add(TripEffectStatus.pending(HR_NOTIFICATION));
+        }
+
+        ChatMessage m = new ChatMessage();
+        m.setSenderEmail("system@hr.internal");
+        m.setSenderRole("system");
+        m.setReceiverEmail(driver.getEmail());
+        m.setReceiverRole("driver");
+        m.setSubject("Trip Assignment Confirmation");
+        m.setContent("🎉 You've been assigned to complete the trip successfully! \n\n" +
+                "Employee: " + booking.getEmployeeName() + "\n" +
+                "Pickup: " + booking.getPickup() + "\n" +
+                "Drop: " + booking.getDropLocation() + "\n" +
+                "Pickup Time: " + booking.getPickupTime() + "\n\n" +
+                "Please verify your OTP to proceed with the trip.");
+        m.setMessageType("SYSTEM_ASSIGNMENT");
+        m.setTripId(bookingId);
+        m.setCreatedAt(LocalDateTime.now());
+        outbox.chat(aggregate, DRIVER_CHAT, m);
+        queued.add(TripEffectStatus.pending(DRIVER_CHAT));
+        return queued;
+    }
+
+    /** Effect status for a booking assigned to {@code driverEmail}, empty if it is not theirs. */
+    public Optional<List<TripEffectStatus>> status(Long bookingId, String driverEmail) {
+        Optional<Booking> booking = bookingRepo.findById(bookingId);
+        if (booking.isEmpty() || driverEmail == null || !driverEmail.equalsIgnoreCase(booking.get().getDriverEmail())) {
+            return Optional.empty();
+        }
+        // Latest row per effect (an OTP resend adds another OTP_SMS row)
+        Map<String, TripEffectStatus> latest = new LinkedHashMap<>();
+        for (OutboxEvent e : outboxRepo.findByAggregateOrderByIdAsc(OutboxService.aggregate("booking", bookingId))) {
+            if (EFFECTS.contains(e.getEffect())) latest.put(e.getEffect(), TripEffectStatus.of(e));
+        }
+        List<TripEffectStatus> out = new ArrayList<>();
+        for (String effect : EFFECTS) {
+            if (latest.containsKey(effect)) out.add(latest.get(effect));
+        }
+        return Optional.of(out);
+    }
+}
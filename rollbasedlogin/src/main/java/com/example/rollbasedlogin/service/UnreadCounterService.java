@@ -0,0 +1,258 @@
+package com.example.rollbasedlogin.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.rollbasedlogin.model.ChatMessage;
+import com.example.rollbasedlogin.model.Notification;
+import com.example.rollbasedlogin.repository.ConversationSummaryRepository;
+import com.example.rollbasedlogin.repository.NotificationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Unread counts for the badge endpoints, kept in memory per user:
+ * - notifications: unread Notification rows per hrEmail (exact match, as stored)
+ * - chat: sum of the user's conversation_summary.unread_count (normalized email)
+ *
+ * A user's count is loaded from the database on first read. After that it only moves
+ * by the deltas of writes on this node, applied once their transaction commits. Other
+ * nodes drop their copy when they see the change over the ClusterRelay ("cluster:unread")
+ * and reload it on the next read.
+ *
+ * Every reconcile-interval-ms all cached counts are re-read in bulk from the database,
+ * which repairs any drift from races between a load and a concurrent commit. A counter
+ * that moved while its bulk count ran is left alone until the next round. Users
+ * nobody asked about for idle-ms are dropped from memory.
+ *
+ * Metrics: unread.counter.loads{kind=notification|chat}, unread.counter.users{kind}.
+ */
+@Service
+public class UnreadCounterService {
+
+    private static final Logger log = LoggerFactory.getLogger(UnreadCounterService.class);
+
+    static final String UNREAD_DESTINATION = ClusterRelay.CONTROL_PREFIX + "unread";
+    private static final String NOTIFICATION = "notification";
+    private static final String CHAT = "chat";
+    private static final int RECONCILE_CHUNK = 500;
+
+    private final NotificationRepository notificationRepo;
+    private final ConversationSummaryRepository summaryRepo;
+    private final ClusterRelay relay;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Entry> notificationCounts = new ConcurrentHashMap<>();
+    private final Map<String, Entry> chatCounts = new ConcurrentHashMap<>();
+
+    @Value("${app.unread.reconcile-interval-ms:60000}")
+    private long reconcileIntervalMs = 60_000;
+
+    @Value("${app.unread.idle-ms:600000}")
+    private long idleMs = 600_000;
+
+    private ScheduledExecutorService reconciler;
+    private Counter notificationLoads;
+    private Counter chatLoads;
+
+    public UnreadCounterService(NotificationRepository notificationRepo, ConversationSummaryRepository summaryRepo,
+                                ClusterRelay relay, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.notificationRepo = notificationRepo;
+        this.summaryRepo = summaryRepo;
+        this.relay = relay;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** Change notice sent to the other nodes; kind is notification or chat. */
+    record UnreadFrame(String kind, String key) {
+    }
+
+    private static final class Entry {
+        final AtomicLong count;
+        volatile long lastRead = System.currentTimeMillis();
+
+        Entry(long count) {
+            this.count = new AtomicLong(count);
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        notificationLoads = Counter.builder("unread.counter.loads").tag("kind", NOTIFICATION)
+                .description("Unread counts loaded from the database").register(meterRegistry);
+        chatLoads = Counter.builder("unread.counter.loads").tag("kind", CHAT)
+                .description("Unread counts loaded from the database").register(meterRegistry);
+        Gauge.builder("unread.counter.users", notificationCounts, Map::size).tag("kind", NOTIFICATION)
+                .description("Users with a cached unread count").register(meterRegistry);
+        Gauge.builder("unread.counter.users", chatCounts, Map::size).tag("kind", CHAT)
+                .description("Users with a cached unread count").register(meterRegistry);
+
+        relay.onMessage(this::onClusterFrame);
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "unread-reconcile");
+            t.setDaemon(true);
+            return t;
+        });
+        reconciler.scheduleWithFixedDelay(this::reconcile, reconcileIntervalMs, reconcileIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (reconciler != null) reconciler.shutdownNow();
+    }
+
+    // --- reads ---
+
+    public long notificationUnread(String hrEmail) {
+        if (hrEmail == null || hrEmail.isBlank()) return 0;
+        return read(notificationCounts, hrEmail, key -> {
+            notificationLoads.increment();
+            return notificationRepo.countByHrEmailAndReadFlagFalse(key);
+        });
+    }
+
+    public long chatUnread(String email) {
+        String key = ChatMessage.normKey(email);
+        if (key == null) return 0;
+        return read(chatCounts, key, k -> {
+            chatLoads.increment();
+            return summaryRepo.totalUnread(k);
+        });
+    }
+
+    private static long read(Map<String, Entry> counts, String key, ToLongFunction<String> load) {
+        Entry e = counts.get(key);
+        if (e == null) {
+            // Count outside the map: computeIfAbsent would hold the bin lock (and block writers
+            // of unrelated keys in that bin) for the whole query. Concurrent misses may both
+            // query; the first to publish wins, and a change committed in between is fixed by
+            // the next reconcile.
+            Entry loaded = new Entry(load.applyAsLong(key));
+            Entry raced = counts.putIfAbsent(key, loaded);
+            e = raced != null ? raced : loaded;
+        }
+        e.lastRead = System.currentTimeMillis();
+        return Math.max(0, e.count.get());
+    }
+
+    // --- writes (applied after commit) ---
+
+    public void notificationCreated(Notification n) {
+        if (n != null && !n.isReadFlag()) afterCommit(NOTIFICATION, notificationCounts, n.getHrEmail(), 1);
+    }
+
+    public void notificationRead(Notification n) {
+        if (n != null) afterCommit(NOTIFICATION, notificationCounts, n.getHrEmail(), -1);
+    }
+
+    /** {@code email} must already be normalized (ChatMessage.normKey). */
+    public void chatUnreadChanged(String email, long delta) {
+        if (delta != 0) afterCommit(CHAT, chatCounts, email, delta);
+    }
+
+    private void afterCommit(String kind, Map<String, Entry> counts, String key, long delta) {
+        if (key == null || key.isBlank()) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(kind, counts, key, delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(kind, counts, key, delta);
+            }
+        });
+    }
+
+    private void apply(String kind, Map<String, Entry> counts, String key, long delta) {
+        // Only users whose count is cached; anyone else is loaded fresh on their next read
+        counts.computeIfPresent(key, (k, e) -> {
+            e.count.addAndGet(delta);
+            return e;
+        });
+        if (!relay.isClustered()) return;
+        try {
+            relay.publish(UNREAD_DESTINATION, objectMapper.writeValueAsBytes(new UnreadFrame(kind, key)));
+        } catch (Exception e) {
+            log.warn("[UNREAD] Could not forward {} change: {}", kind, e.getMessage());
+        }
+    }
+
+    void onClusterFrame(String destination, byte[] payload) {
+        if (!UNREAD_DESTINATION.equals(destination)) return;
+        try {
+            UnreadFrame frame = objectMapper.readValue(payload, UnreadFrame.class);
+            if (frame.key() == null) return;
+            (CHAT.equals(frame.kind()) ? chatCounts : notificationCounts).remove(frame.key());
+        } catch (Exception e) {
+            log.warn("[UNREAD] Unreadable frame: {}", e.getMessage());
+        }
+    }
+
+    // --- reconciliation ---
+
+    void reconcile() {
+        try {
+            int fixed = reconcile(notificationCounts, notificationRepo::countUnreadByHrEmail)
+                    + reconcile(chatCounts, summaryRepo::totalUnreadByOwner);
+            if (fixed > 0) log.info("[UNREAD] Reconciliation corrected {} counters", fixed);
+        } catch (RuntimeException e) {
+            log.warn("[UNREAD] Reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    private int reconcile(Map<String, Entry> counts, Function<Collection<String>, List<Object[]>> bulkCount) {
+        long idleBefore = System.currentTimeMillis() - idleMs;
+        counts.values().removeIf(e -> e.lastRead < idleBefore);
+
+        List<String> keys = new ArrayList<>(counts.keySet());
+        int fixed = 0;
+        for (int i = 0; i < keys.size(); i += RECONCILE_CHUNK) {
+            List<String> chunk = keys.subList(i, Math.min(keys.size(), i + RECONCILE_CHUNK));
+            // Values before the query: a delta applied after this point is not overwritten
+            Map<String, Entry> entries = new HashMap<>();
+            Map<String, Long> seen = new HashMap<>();
+            for (String key : chunk) {
+                Entry e = counts.get(key);
+                if (e == null) continue;
+                entries.put(key, e);
+                seen.put(key, e.count.get());
+            }
+            Map<String, Long> actual = new HashMap<>();
+            for (Object[] row : bulkCount.apply(chunk)) {
+                actual.put((String) row[0], ((Number) row[1]).longValue());
+            }
+            for (Map.Entry<String, Entry> en : entries.entrySet()) {
+                long before = seen.get(en.getKey());
+                long expected = actual.getOrDefault(en.getKey(), 0L);
+                if (before != expected && en.getValue().count.compareAndSet(before, expected)) fixed++;
+            }
+        }
+        return fixed;
+    }
+}
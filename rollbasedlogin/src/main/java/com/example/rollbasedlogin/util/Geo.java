@@ -0,0 +1,30 @@
+package com.example.rollbasedlogin.util;
+
+/**
+ * Great-circle distance between WGS84 coordinates (haversine on a spherical earth, within
+ * about 0.5% of the ellipsoid), so nearest-driver lookups need no map service.
+ */
+public final class Geo {
+
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+    /** Length of one degree of latitude (and of longitude at the equator). */
+    public static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS_METERS / 180;
+
+    private Geo() {
+    }
+
+    public static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double sinLat = Math.sin(dLat / 2);
+        double sinLon = Math.sin(dLon / 2);
+        double a = sinLat * sinLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /** Both set and within [-90, 90] / [-180, 180]. */
+    public static boolean isValid(Double lat, Double lon) {
+        return lat != null && lon != null && lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.rollbasedlogin.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Half-open time range [from, to) built from the optional "since"/"until" query parameters
+ * of the list endpoints. Both accept an ISO date (2025-03-01) or date-time (2025-03-01T08:30).
+ * A bare "until" date includes that whole day. Invalid input is an IllegalArgumentException.
+ */
+public record TimeWindow(LocalDateTime from, LocalDateTime to) {
+
+    public static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+    public static final LocalDateTime END = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    public static TimeWindow parse(String since, String until) {
+        LocalDateTime from = isBlank(since) ? BEGINNING : parse("since", since, false);
+        LocalDateTime to = isBlank(until) ? END : parse("until", until, true);
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("since must be before until");
+        }
+        return new TimeWindow(from, to);
+    }
+
+    public boolean isUnbounded() {
+        return BEGINNING.equals(from) && END.equals(to);
+    }
+
+    /** First calendar day overlapping the window (for DATE columns). */
+    public LocalDate fromDate() {
+        return from.toLocalDate();
+    }
+
+    /** First calendar day after the window, exclusive (for DATE columns). */
+    public LocalDate toDate() {
+        LocalDate day = to.toLocalDate();
+        return LocalTime.MIDNIGHT.equals(to.toLocalTime()) ? day : day.plusDays(1);
+    }
+
+    private static LocalDateTime parse(String name, String value, boolean endOfDay) {
+        String v = value.strip();
+        try {
+            if (v.length() == 10) {
+                LocalDate day = LocalDate.parse(v);
+                return endOfDay ? day.plusDays(1).atStartOfDay() : day.atStartOfDay();
+            }
+            return LocalDateTime.parse(v);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must be an ISO date or date-time");
+        }
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
+    }
+}
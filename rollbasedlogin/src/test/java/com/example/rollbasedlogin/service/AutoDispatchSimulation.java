@@ -0,0 +1,196 @@
+package com.example.rollbasedlogin.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.example.rollbasedlogin.dto.RideRequest;
+import com.example.rollbasedlogin.util.Geo;
+
+/**
+ * Replays a synthetic day through the auto-dispatch planner (AutoDispatchService.plan with
+ * a DriverPool), on a virtual clock, without a database:
+ * - bench.bookings requests over 24h: a morning and an evening peak (09:00 and 18:00,
+ *   sd 90 min, 35% each) on top of a uniform base; pickup 5-45 min after the request;
+ *   80% "Cab", 20% "Van"
+ * - pickups and drops uniform over a 30 x 30 km city
+ * - bench.drivers drivers in the same split, spread over the city; a trip takes 15-45 min,
+ *   after which the driver is available again at the drop
+ * - a micro-batch every bench.tick-ms (virtual) of at most bench.max-batch matches, each
+ *   booking picking among its bench.nearby nearest drivers within 10 km (0: longest idle
+ *   driver of the cab type, ignoring distance); every match commits (the claim itself is
+ *   measured by TripAcceptanceBenchmark)
+ * Reports assignment latency (request to match, virtual time), driver-to-pickup distance,
+ * planner throughput (matches per second of real planning time) and trips per driver.
+ *
+ * Not part of the normal build:
+ *   mvn test -Dtest=AutoDispatchSimulation -Dbench.dispatch=true \
+ *       [-Dbench.bookings=20000] [-Dbench.drivers=1000] [-Dbench.tick-ms=1000] \
+ *       [-Dbench.max-batch=100] [-Dbench.nearby=5] [-Dbench.seed=42]
+ */
+@EnabledIfSystemProperty(named = "bench.dispatch", matches = "true")
+class AutoDispatchSimulation {
+
+    private static final long MINUTE = 60_000;
+    private static final long DAY = 24 * 60 * MINUTE;
+    private static final LocalDate DATE = LocalDate.of(2026, 1, 5);
+    private static final double LAT0 = 12.90;
+    private static final double LON0 = 77.50;
+    // 30 km north-south / east-west at LAT0
+    private static final double SPAN_LAT = 30_000 / Geo.METERS_PER_DEGREE;
+    private static final double SPAN_LON = SPAN_LAT / Math.cos(Math.toRadians(LAT0));
+
+    private final int bookings = Integer.getInteger("bench.bookings", 20000);
+    private final int drivers = Integer.getInteger("bench.drivers", 1000);
+    private final long tickMs = Long.getLong("bench.tick-ms", 1000);
+    private final int maxBatch = Integer.getInteger("bench.max-batch", 100);
+    private final int nearby = Integer.getInteger("bench.nearby", 5);
+    private final long seed = Long.getLong("bench.seed", 42);
+
+    /** A driver busy until {@code until} (virtual ms). */
+    private record Trip(long until, DriverPool.Entry driver) {
+    }
+
+    @Test
+    void replayOneDay() {
+        Random rnd = new Random(seed);
+        long[] requestedAt = new long[bookings];
+        for (int i = 0; i < bookings; i++) requestedAt[i] = arrival(rnd);
+        Arrays.sort(requestedAt);
+        List<RideRequest> requests = new ArrayList<>(bookings);
+        double[][] drops = new double[bookings][];
+        for (int i = 0; i < bookings; i++) {
+            long pickup = Math.min(DAY - 1, requestedAt[i] + (5 + rnd.nextInt(41)) * MINUTE);
+            double[] at = point(rnd);
+            drops[i] = point(rnd);
+            requests.add(new RideRequest((long) i, "Employee " + i, "employee" + i + "@sim", "Gate 1", "Campus",
+                    LocalTime.ofNanoOfDay(TimeUnit.MILLISECONDS.toNanos(pickup)), DATE, cabType(rnd), "REQUESTED",
+                    "hr@sim", at[0], at[1]));
+        }
+
+        DriverPool pool = new DriverPool();
+        for (int d = 0; d < drivers; d++) {
+            double[] at = point(rnd);
+            pool.put(new DriverPool.Entry("driver" + d + "@sim", RideRequestIndex.cabTypeKey(cabType(rnd)), 0,
+                    at[0], at[1]));
+        }
+
+        Map<String, LinkedHashMap<Long, RideRequest>> open = new HashMap<>();
+        PriorityQueue<Trip> onTrip = new PriorityQueue<>((a, b) -> Long.compare(a.until(), b.until()));
+        Map<String, Integer> tripsPerDriver = new HashMap<>();
+        List<Long> waits = new ArrayList<>(bookings);
+        List<Long> pickupMeters = new ArrayList<>(bookings);
+        List<Long> batchNanos = new ArrayList<>();
+        long planNanos = 0;
+        int next = 0;
+        int maxBacklog = 0;
+
+        for (long now = 0; waits.size() < bookings && now < 2 * DAY; now += tickMs) {
+            while (next < bookings && requestedAt[next] <= now) {
+                RideRequest r = requests.get(next++);
+                open.computeIfAbsent(RideRequestIndex.cabTypeKey(r.cabType()), k -> new LinkedHashMap<>())
+                        .put(r.id(), r);
+            }
+            while (!onTrip.isEmpty() && onTrip.peek().until() <= now) pool.put(onTrip.poll().driver());
+
+            Map<String, List<RideRequest>> snapshot = new HashMap<>();
+            int backlog = 0;
+            for (Map.Entry<String, LinkedHashMap<Long, RideRequest>> e : open.entrySet()) {
+                snapshot.put(e.getKey(), new ArrayList<>(e.getValue().values()));
+                backlog += e.getValue().size();
+            }
+            maxBacklog = Math.max(maxBacklog, backlog);
+            if (backlog == 0) continue;
+
+            long t0 = System.nanoTime();
+            List<AutoDispatchService.Match> matches = AutoDispatchService.plan(snapshot, pool, maxBatch, nearby,
+                    10_000);
+            long took = System.nanoTime() - t0;
+            planNanos += took;
+            batchNanos.add(took);
+
+            for (AutoDispatchService.Match m : matches) {
+                RideRequest r = m.request();
+                open.get(m.driver().cabTypeKey()).remove(r.id());
+                waits.add(now - requestedAt[r.id().intValue()]);
+                pickupMeters.add(Math.round(Geo.haversineMeters(m.driver().lat(), m.driver().lon(), r.pickupLat(),
+                        r.pickupLon())));
+                tripsPerDriver.merge(m.driver().email(), 1, Integer::sum);
+                double[] drop = drops[r.id().intValue()];
+                DriverPool.Entry busy = new DriverPool.Entry(m.driver().email(), m.driver().cabTypeKey(), now,
+                        drop[0], drop[1]);
+                onTrip.add(new Trip(now + (15 + rnd.nextInt(31)) * MINUTE, busy));
+            }
+        }
+
+        Collections.sort(waits);
+        Collections.sort(pickupMeters);
+        Collections.sort(batchNanos);
+        List<Integer> trips = new ArrayList<>(tripsPerDriver.values());
+        Collections.sort(trips);
+        double plannedPerSec = waits.size() / Math.max(1e-9, planNanos / 1e9);
+        System.out.printf("[dispatch] %d bookings, %d drivers, tick %d ms, max-batch %d: %d assigned, "
+                        + "max backlog %d%n",
+                bookings, drivers, tickMs, maxBatch, waits.size(), maxBacklog);
+        System.out.printf("[dispatch] driver to pickup (nearby=%d): p50=%dm p90=%dm p99=%dm%n", nearby,
+                quantile(pickupMeters, 0.50), quantile(pickupMeters, 0.90), quantile(pickupMeters, 0.99));
+        System.out.printf("[dispatch] wait p50=%ds p90=%ds p99=%ds max=%ds%n",
+                seconds(waits, 0.50), seconds(waits, 0.90), seconds(waits, 0.99), seconds(waits, 1.0));
+        System.out.printf("[dispatch] planner: %d batches in %d ms, batch p50=%dus p99=%dus, %.0f matches/s%n",
+                batchNanos.size(), TimeUnit.NANOSECONDS.toMillis(planNanos), micros(batchNanos, 0.50),
+                micros(batchNanos, 0.99), plannedPerSec);
+        System.out.printf("[dispatch] trips per driver: min=%d median=%d max=%d (%d drivers used)%n",
+                trips.isEmpty() ? 0 : trips.get(0), trips.isEmpty() ? 0 : trips.get(trips.size() / 2),
+                trips.isEmpty() ? 0 : trips.get(trips.size() - 1), trips.size());
+
+        assertEquals(bookings, waits.size(), "every booking of the day should be assigned");
+    }
+
+    /** Request time (virtual ms since midnight): two rush hours on a uniform base. */
+    private static long arrival(Random rnd) {
+        double p = rnd.nextDouble();
+        if (p < 0.30) return (long) (rnd.nextDouble() * DAY);
+        double peak = p < 0.65 ? 9 * 60 : 18 * 60;
+        double minute = peak + rnd.nextGaussian() * 90;
+        return (long) (Math.max(0, Math.min(24 * 60 - 1, minute)) * MINUTE);
+    }
+
+    /** {lat, lon} uniform over the simulated city. */
+    private static double[] point(Random rnd) {
+        return new double[] {LAT0 + rnd.nextDouble() * SPAN_LAT, LON0 + rnd.nextDouble() * SPAN_LON};
+    }
+
+    private static String cabType(Random rnd) {
+        return rnd.nextDouble() < 0.8 ? "Cab" : "Van";
+    }
+
+    private static long quantile(List<Long> sorted, double q) {
+        if (sorted.isEmpty()) return 0;
+        return sorted.get(Math.min(sorted.size() - 1, (int) (sorted.size() * q)));
+    }
+
+    private static long seconds(List<Long> sortedMillis, double q) {
+        if (sortedMillis.isEmpty()) return 0;
+        return TimeUnit.MILLISECONDS.toSeconds(
+                sortedMillis.get(Math.min(sortedMillis.size() - 1, (int) (sortedMillis.size() * q))));
+    }
+
+    private static long micros(List<Long> sorted, double q) {
+        if (sorted.isEmpty()) return 0;
+        return TimeUnit.NANOSECONDS.toMicros(sorted.get(Math.min(sorted.size() - 1, (int) (sorted.size() * q))));
+    }
+}
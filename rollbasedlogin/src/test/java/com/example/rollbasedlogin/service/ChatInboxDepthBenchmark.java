@@ -0,0 +1,144 @@
+package com.example.rollbasedlogin.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.rollbasedlogin.model.ChatMessage;
+
+/**
+ * Pages ChatInboxService.inboxPage from the newest message to the oldest through a large
+ * seeded history, with the application wired against a scratch Postgres database.
+ *
+ * bench.rows messages for one user are inserted into chat_message, spread evenly over the
+ * last bench.months months (so most of them sit in partitions outside the recent window);
+ * every fifth one is a broadcast to the user's role, the rest are direct. The whole inbox
+ * is then walked with the keyset cursor, bench.page-size at a time. Reports page latency
+ * p50/p99 per tenth of the history; with keyset pagination the deepest tenth should cost
+ * about what the first one does, which the test checks (within 5x + 2 ms, to absorb the
+ * role cache serving the newest pages from memory).
+ *
+ * Not part of the normal build (needs a database; Hibernate creates missing tables):
+ *   mvn test -Dtest=ChatInboxDepthBenchmark -Dbench.jdbc.url=jdbc:postgresql://localhost:5432/bench \
+ *       -Dbench.jdbc.user=postgres -Dbench.jdbc.password=... \
+ *       [-Dbench.rows=200000] [-Dbench.months=12] [-Dbench.page-size=50]
+ */
+@EnabledIfSystemProperty(named = "bench.jdbc.url", matches = ".+")
+@SpringBootTest(properties = {
+        "spring.datasource.url=${bench.jdbc.url}",
+        "spring.datasource.username=${bench.jdbc.user:postgres}",
+        "spring.datasource.password=${bench.jdbc.password:}",
+        "spring.jpa.show-sql=false"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ChatInboxDepthBenchmark {
+
+    private static final String EMAIL = "reader@inbox-bench";
+    private static final String ROLE = "inbox-bench";
+    private static final int TENTHS = 10;
+
+    private final int rows = Integer.getInteger("bench.rows", 200_000);
+    private final int months = Integer.getInteger("bench.months", 12);
+    private final int pageSize = Integer.getInteger("bench.page-size", 50);
+
+    @Autowired
+    private ChatInboxService inbox;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeAll
+    void seed() {
+        cleanUp();
+        long t0 = System.nanoTime();
+        // Oldest first, so ids grow with sent_at as they do for real traffic
+        jdbc.update("insert into chat_message (id, sender_email, sender_role, receiver_email, receiver_role, " +
+                "  sender_email_norm, receiver_email_norm, receiver_role_norm, conversation_key, subject, content, " +
+                "  message_type, created_at, sent_at, read_flag) " +
+                "select nextval('chat_message_seq'), s.sender, 'hr', " +
+                "  case when s.g % 5 = 0 then null else ? end, ?, s.sender, " +
+                "  case when s.g % 5 = 0 then null else ? end, ?, " +
+                "  case when s.g % 5 = 0 then null else s.sender || '|' || ? end, " +
+                "  'Update ' || s.g, 'Seeded inbox message ' || s.g, 'GENERAL', s.at, s.at, s.g % 3 = 0 " +
+                "from (select g, 'hr' || (g % 50) || '@inbox-bench' as sender, " +
+                "        localtimestamp - make_interval(secs => (? - g) * ?::double precision) as at " +
+                "      from generate_series(1, ?) g order by g) s",
+                EMAIL, ROLE, EMAIL, ROLE, EMAIL, rows, months * 30.0 * 86_400 / rows, rows);
+        jdbc.execute("analyze chat_message");
+        System.out.printf("[inbox-depth] seeded %d messages over %d months in %d ms%n",
+                rows, months, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+    }
+
+    @AfterAll
+    void cleanUp() {
+        jdbc.update("delete from chat_message where receiver_email_norm = ? " +
+                "or (receiver_role_norm = ? and receiver_email_norm is null)", EMAIL, ROLE);
+    }
+
+    @Test
+    void pageLatencyDoesNotGrowWithDepth() {
+        walk(); // warm-up: JIT, connection pool, plan cache, role cache
+
+        List<Long> nanos = new ArrayList<>();
+        int seen = walk(nanos);
+        assertEquals(rows, seen, "paging should visit every seeded message exactly once");
+
+        int perTenth = Math.max(1, nanos.size() / TENTHS);
+        long firstP50 = 0;
+        long lastP50 = 0;
+        for (int t = 0; t < TENTHS && t * perTenth < nanos.size(); t++) {
+            List<Long> tenth = new ArrayList<>(nanos.subList(t * perTenth,
+                    t == TENTHS - 1 ? nanos.size() : Math.min(nanos.size(), (t + 1) * perTenth)));
+            Collections.sort(tenth);
+            long p50 = micros(tenth, 0.50);
+            if (t == 0) firstP50 = p50;
+            lastP50 = p50;
+            System.out.printf("[inbox-depth] pages %5d-%5d: p50=%dus p99=%dus%n",
+                    t * perTenth + 1, t * perTenth + tenth.size(), p50, micros(tenth, 0.99));
+        }
+        System.out.printf("[inbox-depth] %d pages of %d, deepest/first p50: %.1fx%n",
+                nanos.size(), pageSize, lastP50 / (double) Math.max(1, firstP50));
+        assertTrue(lastP50 <= firstP50 * 5 + 2_000, "deep pages should cost about what the first ones do");
+    }
+
+    private int walk() {
+        return walk(null);
+    }
+
+    /** Reads the whole inbox newest first; returns the number of messages seen. */
+    private int walk(List<Long> nanos) {
+        int seen = 0;
+        Long before = null;
+        long last = Long.MAX_VALUE;
+        while (true) {
+            long t0 = System.nanoTime();
+            List<ChatMessage> page = inbox.inboxPage(EMAIL, ROLE, before, pageSize);
+            if (nanos != null && !page.isEmpty()) nanos.add(System.nanoTime() - t0);
+            if (page.isEmpty()) return seen;
+            for (ChatMessage m : page) {
+                assertTrue(m.getId() < last, "pages must be strictly newest first");
+                last = m.getId();
+            }
+            seen += page.size();
+            before = last;
+        }
+    }
+
+    private static long micros(List<Long> sorted, double q) {
+        if (sorted.isEmpty()) return 0;
+        return TimeUnit.NANOSECONDS.toMicros(sorted.get(Math.min(sorted.size() - 1, (int) (sorted.size() * q))));
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.rollbasedlogin.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.rollbasedlogin.model.ChatMessage;
+
+/**
+ * Chat write throughput with the application wired against a scratch Postgres database:
+ * bench.senders threads each send bench.messages direct messages to their own peer,
+ * - direct: ChatMessageService.send, one transaction per message
+ * - batched: ChatIngestService in batched mode (app.chat.ingest.* defaults), which groups
+ *   whatever the senders queue into one transaction per batch
+ * Both paths get a short unreported warm-up. Reports messages/s and per-send p50/p99, and
+ * checks every message landed. Rows are written under an "ingest-bench-" email prefix and
+ * deleted afterwards.
+ *
+ * Not part of the normal build (needs a database; Hibernate creates missing tables):
+ *   mvn test -Dtest=ChatIngestBenchmark -Dbench.jdbc.url=jdbc:postgresql://localhost:5432/bench \
+ *       -Dbench.jdbc.user=postgres -Dbench.jdbc.password=... \
+ *       [-Dbench.senders=32] [-Dbench.messages=500] [-Dbench.connections=10]
+ */
+@EnabledIfSystemProperty(named = "bench.jdbc.url", matches = ".+")
+@SpringBootTest(properties = {
+        "spring.datasource.url=${bench.jdbc.url}",
+        "spring.datasource.username=${bench.jdbc.user:postgres}",
+        "spring.datasource.password=${bench.jdbc.password:}",
+        "spring.datasource.hikari.maximum-pool-size=${bench.connections:10}",
+        "spring.jpa.show-sql=false",
+        "app.chat.ingest.mode=batched"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ChatIngestBenchmark {
+
+    private static final String PREFIX = "ingest-bench-";
+
+    private final int senders = Integer.getInteger("bench.senders", 32);
+    private final int messages = Integer.getInteger("bench.messages", 500);
+
+    @Autowired
+    private ChatMessageService chatMessageService;
+
+    @Autowired
+    private ChatIngestService chatIngestService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterAll
+    void cleanUp() {
+        jdbc.update("delete from chat_message where sender_email_norm like ?", PREFIX + "%");
+        jdbc.update("delete from conversation_summary where owner_email like ?", PREFIX + "%");
+    }
+
+    @Test
+    void batchedIngestVersusDirectSend() throws Exception {
+        run("warm-d", chatMessageService::send, Math.min(messages, 20));
+        run("warm-b", chatIngestService::send, Math.min(messages, 20));
+
+        Result direct = run("direct", chatMessageService::send, messages);
+        Result batched = run("batched", chatIngestService::send, messages);
+        report("direct ", direct);
+        report("batched", batched);
+        System.out.printf("[chat-ingest] batched/direct throughput: %.1fx%n",
+                batched.perSecond() / Math.max(1e-9, direct.perSecond()));
+
+        for (String run : List.of("direct", "batched")) {
+            Integer written = jdbc.queryForObject("select count(*) from chat_message where sender_email_norm like ?",
+                    Integer.class, PREFIX + run + "-%");
+            assertEquals(senders * messages, written, run + ": every message should be stored");
+        }
+    }
+
+    private record Result(List<Long> nanos, long wallNanos) {
+        double perSecond() {
+            return nanos.size() / Math.max(1e-9, wallNanos / 1e9);
+        }
+    }
+
+    private Result run(String run, UnaryOperator<ChatMessage> send, int perSender) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(senders);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int s = 0; s < senders; s++) {
+            int sender = s;
+            futures.add(pool.submit(() -> {
+                List<Long> nanos = new ArrayList<>(perSender);
+                for (int i = 0; i < perSender; i++) {
+                    ChatMessage m = message(run, sender, i);
+                    long t0 = System.nanoTime();
+                    send.apply(m);
+                    nanos.add(System.nanoTime() - t0);
+                }
+                return nanos;
+            }));
+        }
+        List<Long> all = new ArrayList<>(senders * perSender);
+        for (Future<List<Long>> f : futures) all.addAll(f.get());
+        long wall = System.nanoTime() - start;
+        pool.shutdown();
+        Collections.sort(all);
+        return new Result(all, wall);
+    }
+
+    private static ChatMessage message(String run, int sender, int i) {
+        ChatMessage m = new ChatMessage();
+        m.setSenderEmail(PREFIX + run + "-" + sender + "@bench");
+        m.setSenderRole("hr");
+        m.setReceiverEmail(PREFIX + run + "-peer" + sender + "@bench");
+        m.setReceiverRole("employee");
+        m.setContent("Benchmark message " + i);
+        m.setMessageType("CHAT");
+        m.setCreatedAt(LocalDateTime.now());
+        return m;
+    }
+
+    private void report(String label, Result r) {
+        System.out.printf("[chat-ingest] %s %d senders x %d: %.0f msg/s, send p50=%dus p99=%dus%n",
+                label, senders, messages, r.perSecond(), micros(r.nanos(), 0.50), micros(r.nanos(), 0.99));
+    }
+
+    private static long micros(List<Long> sorted, double q) {
+        if (sorted.isEmpty()) return 0;
+        return TimeUnit.NANOSECONDS.toMicros(sorted.get(Math.min(sorted.size() - 1, (int) (sorted.size() * q))));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.rollbasedlogin.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.rollbasedlogin.model.ChatMessage;
+
+/**
+ * Batched ingest against a ChatMessageService fake that behaves like JPA on the points that
+ * matter here: a batch gets its ids before the insert fails and rolls back, and saving a
+ * message that still carries an id is a merge, which fails when no such row exists.
+ */
+class ChatIngestServiceTest {
+
+    private static final String BAD = "violates a constraint";
+
+    private ChatIngestService ingest;
+
+    /** Stores in memory; any message with content BAD fails its insert. */
+    private static final class FakeChatMessageService extends ChatMessageService {
+        final AtomicLong seq = new AtomicLong();
+        final List<ChatMessage> stored = new CopyOnWriteArrayList<>();
+        final List<Integer> failedBatches = new CopyOnWriteArrayList<>();
+
+        FakeChatMessageService() {
+            super(null, null, null, null, null);
+        }
+
+        @Override
+        public ChatMessage send(ChatMessage m) {
+            if (m.getId() != null) throw new ObjectOptimisticLockingFailureException(ChatMessage.class, m.getId());
+            m.restore(seq.incrementAndGet(), m.getCreatedAt());
+            if (BAD.equals(m.getContent())) throw new DataIntegrityViolationException("insert failed");
+            stored.add(m);
+            return m;
+        }
+
+        @Override
+        public List<ChatMessage> sendBatch(List<ChatMessage> batch) {
+            for (ChatMessage m : batch) m.restore(seq.incrementAndGet(), m.getCreatedAt());
+            if (batch.stream().anyMatch(m -> BAD.equals(m.getContent()))) {
+                failedBatches.add(batch.size());
+                throw new DataIntegrityViolationException("batch insert failed");
+            }
+            stored.addAll(batch);
+            return batch;
+        }
+    }
+
+    private ChatIngestService batched(ChatMessageService service) {
+        ChatIngestService s = new ChatIngestService(service);
+        ReflectionTestUtils.setField(s, "mode", "batched");
+        ReflectionTestUtils.setField(s, "batchSize", 100);
+        ReflectionTestUtils.setField(s, "maxDelayMs", 200L);
+        ReflectionTestUtils.setField(s, "queueCapacity", 100);
+        s.start();
+        return s;
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        if (ingest != null) ingest.stop();
+    }
+
+    @Test
+    void oneFailingRowDoesNotRejectTheRestOfItsBatch() throws Exception {
+        FakeChatMessageService service = new FakeChatMessageService();
+        ingest = batched(service);
+
+        List<CompletableFuture<ChatMessage>> acks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) acks.add(ingest.submit(message(i == 4 ? BAD : "message " + i)));
+
+        for (int i = 0; i < acks.size(); i++) {
+            if (i == 4) {
+                ExecutionException e = null;
+                try {
+                    acks.get(i).get(5, TimeUnit.SECONDS);
+                } catch (ExecutionException failed) {
+                    e = failed;
+                }
+                assertNotNull(e, "the bad message should be rejected");
+                assertInstanceOf(DataIntegrityViolationException.class, e.getCause());
+            } else {
+                assertEquals("message " + i, acks.get(i).get(5, TimeUnit.SECONDS).getContent());
+            }
+        }
+        assertTrue(service.failedBatches.stream().anyMatch(size -> size > 1),
+                "the bad message should have shared a batch with others");
+        assertEquals(9, service.stored.size(), "every other message should be stored");
+        List<String> order = service.stored.stream().map(ChatMessage::getContent).toList();
+        assertEquals(List.of("message 0", "message 1", "message 2", "message 3", "message 5", "message 6",
+                "message 7", "message 8", "message 9"), order, "retries should keep queue order");
+    }
+
+    private static ChatMessage message(String content) {
+        ChatMessage m = new ChatMessage();
+        m.setSenderEmail("hr@example.com");
+        m.setSenderRole("hr");
+        m.setReceiverEmail("employee@example.com");
+        m.setReceiverRole("employee");
+        m.setContent(content);
+        m.setMessageType("GENERAL");
+        m.setCreatedAt(LocalDateTime.of(2026, 1, 1, 9, 0));
+        return m;
+    }
+}
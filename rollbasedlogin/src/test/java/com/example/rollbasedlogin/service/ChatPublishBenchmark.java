@@ -0,0 +1,97 @@
+package com.example.rollbasedlogin.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+
+import com.example.rollbasedlogin.config.StompPrincipal;
+import com.example.rollbasedlogin.model.ChatMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Publish cost of one trip message that reaches three destinations (direct inbox, role
+ * topic, trip topic): the entity serialized per destination, as before, against one
+ * ChatMessageEvent serialized once. The broker channel is a no-op, so the numbers are
+ * serialization and message building only.
+ *
+ * Not part of the normal build:
+ *   mvn test -Dtest=ChatPublishBenchmark -Dbench.publish=true [-Dbench.iterations=200000]
+ */
+@EnabledIfSystemProperty(named = "bench.publish", matches = "true")
+class ChatPublishBenchmark {
+
+    @Test
+    void entityPerDestinationVersusEventOnce() {
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        AtomicLong frames = new AtomicLong();
+        MessageChannel brokerChannel = (Message<?> message, long timeout) -> {
+            frames.incrementAndGet();
+            return true;
+        };
+        LocalClusterRelay relay = new LocalClusterRelay();
+        LiveSessionRegistry sessions = new LiveSessionRegistry(relay, mapper, new SimpleMeterRegistry());
+        sessions.start();
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create();
+        headers.setSessionId("s1");
+        sessions.onConnected(new SessionConnectedEvent(this,
+                MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders()),
+                new StompPrincipal("driver@example.com", "driver")));
+        ChatEventPublisher publisher = new ChatEventPublisher(new SimpMessagingTemplate(brokerChannel), mapper,
+                relay, sessions);
+
+        ChatMessage m = new ChatMessage();
+        m.setSenderEmail("hr@example.com");
+        m.setSenderRole("hr");
+        m.setReceiverEmail("driver@example.com");
+        m.setReceiverRole("driver");
+        m.setSubject("Trip 42");
+        m.setContent("Pickup moved to the north gate, please wait near the parking entrance.");
+        m.setMessageType("TRIP_DIRECTION");
+        m.setTripId(42L);
+        m.setCreatedAt(LocalDateTime.of(2026, 1, 1, 9, 0));
+
+        int iterations = Integer.getInteger("bench.iterations", 200_000);
+        Runnable perDestination = () -> {
+            publisher.publish("/user/driver@example.com/queue/inbox", m);
+            publisher.publish("/topic/inbox.role.driver", m);
+            publisher.publish("/topic/trip.42", m);
+        };
+        Runnable once = () -> publisher.publishTripMessage(m);
+
+        for (int round = 0; round < 3; round++) {
+            report("entity x3 ", perDestination, iterations);
+            report("event once", once, iterations);
+        }
+
+        frames.set(0);
+        once.run();
+        assertEquals(3, frames.get());
+    }
+
+    private static void report(String label, Runnable publish, int iterations) {
+        for (int i = 0; i < iterations / 10; i++) publish.run(); // warm up
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long bytes0 = threads.getCurrentThreadAllocatedBytes();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < iterations; i++) publish.run();
+        long nanos = System.nanoTime() - t0;
+        long bytes = threads.getCurrentThreadAllocatedBytes() - bytes0;
+        System.out.printf("[chat-publish] %s: %d ns/message, %d bytes allocated/message%n",
+                label, nanos / iterations, bytes / iterations);
+    }
+}
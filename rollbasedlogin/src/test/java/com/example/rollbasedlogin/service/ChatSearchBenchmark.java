@@ -0,0 +1,127 @@
+package com.example.rollbasedlogin.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.example.rollbasedlogin.repository.ChatMessageRepository;
+
+/**
+ * Chat search over a synthetic corpus (default one million messages) in a scratch Postgres
+ * database. Runs the exact SQL of ChatMessageRepository.searchPage against a copy of the
+ * chat_message search columns, next to an ILIKE scan for comparison.
+ *
+ * Not part of the normal build (needs a database and a few minutes to load):
+ *   mvn test -Dtest=ChatSearchBenchmark -Dbench.jdbc.url=jdbc:postgresql://localhost:5432/bench \
+ *       -Dbench.jdbc.user=postgres -Dbench.jdbc.password=... [-Dbench.rows=1000000]
+ */
+@EnabledIfSystemProperty(named = "bench.jdbc.url", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ChatSearchBenchmark {
+
+    private static final String TABLE = "chat_search_bench";
+    private static final int USERS = 2000;
+    private static final int RUNS = 200;
+
+    private JdbcTemplate jdbc;
+    private NamedParameterJdbcTemplate named;
+
+    @BeforeAll
+    void load() {
+        DriverManagerDataSource ds = new DriverManagerDataSource(
+                System.getProperty("bench.jdbc.url"),
+                System.getProperty("bench.jdbc.user", "postgres"),
+                System.getProperty("bench.jdbc.password", ""));
+        jdbc = new JdbcTemplate(ds);
+        named = new NamedParameterJdbcTemplate(jdbc);
+        int rows = Integer.getInteger("bench.rows", 1_000_000);
+
+        jdbc.execute("drop table if exists " + TABLE);
+        jdbc.execute("create table " + TABLE + " (" +
+                "id bigserial primary key, sender_email_norm varchar(255), receiver_email_norm varchar(255), " +
+                "receiver_role_norm varchar(255), subject varchar(255), content text, " +
+                "search_tsv tsvector generated always as (" +
+                "  setweight(to_tsvector('simple', coalesce(subject, '')), 'A') || " +
+                "  setweight(to_tsvector('simple', coalesce(content, '')), 'B')) stored)");
+
+        long t0 = System.nanoTime();
+        // ~1% of messages mention "gate 7", a rarer "terminal 3"; the rest is filler vocabulary
+        jdbc.update("insert into " + TABLE + " (sender_email_norm, receiver_email_norm, receiver_role_norm, subject, content) " +
+                "select 'user' || (g % " + USERS + ") || '@example.com', " +
+                "       'user' || ((g * 7) % " + USERS + ") || '@example.com', " +
+                "       case when g % 3 = 0 then 'driver' else 'employee' end, " +
+                "       case when g % 50 = 0 then 'Pickup change' else 'Trip update' end, " +
+                "       w[1 + (random() * 19)::int] || ' ' || w[1 + (random() * 19)::int] || ' ' || " +
+                "       w[1 + (random() * 19)::int] || ' ' || w[1 + (random() * 19)::int] || ' ' || " +
+                "       w[1 + (random() * 19)::int] || ' ' || w[1 + (random() * 19)::int] || " +
+                "       case when g % 100 = 0 then ' pickup at gate 7' when g % 1000 = 1 then ' meet at terminal 3' else '' end " +
+                "from generate_series(1, ?) g, " +
+                "     (select array['please','wait','near','the','main','entrance','road','traffic','late','driver'," +
+                "                   'arrived','office','parking','lobby','north','south','block','cab','on','way'] w) v",
+                rows);
+        jdbc.execute("create index on " + TABLE + " using gin (search_tsv)");
+        jdbc.execute("create index on " + TABLE + " (sender_email_norm, id)");
+        jdbc.execute("create index on " + TABLE + " (receiver_email_norm, id)");
+        jdbc.execute("analyze " + TABLE);
+        System.out.printf("[chat-search] loaded %d rows in %d ms%n", rows, (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    @AfterAll
+    void drop() {
+        if (jdbc != null) jdbc.execute("drop table if exists " + TABLE);
+    }
+
+    @Test
+    void rankedSearchVersusIlikeScan() throws Exception {
+        String searchSql = ChatMessageRepository.class
+                .getMethod("searchPage", String.class, String.class, String.class, double.class, long.class, int.class)
+                .getAnnotation(Query.class).value()
+                .replace("chat_message", TABLE);
+        String ilikeSql = "select id from " + TABLE + " m " +
+                "where (m.content ilike '%' || :query || '%' or m.subject ilike '%' || :query || '%') " +
+                "  and (m.sender_email_norm = :me or m.receiver_email_norm = :me " +
+                "       or (m.receiver_role_norm = :role and m.receiver_email_norm is null)) " +
+                "order by id desc limit :limit";
+
+        for (String term : List.of("gate 7", "terminal", "traffic")) {
+            List<Long> fts = time(searchSql, term);
+            List<Long> ilike = time(ilikeSql, term);
+            System.out.printf("[chat-search] '%s': tsvector+GIN p50=%dus p95=%dus | ILIKE p50=%dus p95=%dus%n",
+                    term, fts.get(RUNS / 2), fts.get((int) (RUNS * 0.95)),
+                    ilike.get(RUNS / 2), ilike.get((int) (RUNS * 0.95)));
+        }
+
+        // Sanity: a frequent term must actually find something for a sample user
+        assertFalse(named.queryForList(searchSql, params("gate 7", 0)).isEmpty());
+    }
+
+    private Map<String, Object> params(String query, int user) {
+        return Map.of("query", query, "me", "user" + user + "@example.com", "role", "driver",
+                "beforeRank", Double.MAX_VALUE, "beforeId", Long.MAX_VALUE, "limit", 20);
+    }
+
+    private List<Long> time(String sql, String term) {
+        for (int i = 0; i < 20; i++) named.queryForList(sql, params(term, i)); // warm up
+        List<Long> micros = new ArrayList<>(RUNS);
+        for (int i = 0; i < RUNS; i++) {
+            long t = System.nanoTime();
+            named.queryForList(sql, params(term, (i * 37) % USERS));
+            micros.add((System.nanoTime() - t) / 1_000);
+        }
+        Collections.sort(micros);
+        return micros;
+    }
+}
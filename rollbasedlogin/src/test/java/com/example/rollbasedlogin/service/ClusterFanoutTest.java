@@ -0,0 +1,155 @@
+package com.example.rollbasedlogin.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+
+import com.example.rollbasedlogin.config.StompPrincipal;
+import com.example.rollbasedlogin.model.ChatMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Two "nodes" (publisher + broker channel + relay + session registry each) wired through
+ * the in-memory relay: a message published on node A must reach node B's subscribers
+ * exactly once, and node A's own subscribers exactly once (no echo back from the relay).
+ */
+class ClusterFanoutTest {
+
+    private final List<InMemoryClusterRelay> relays = new ArrayList<>();
+    private final List<LiveSessionRegistry> registries = new ArrayList<>();
+
+    private static final class Node {
+        final AtomicInteger delivered = new AtomicInteger();
+        final ConcurrentHashMap<String, Long> receivedAt = new ConcurrentHashMap<>();
+        volatile CountDownLatch latch = new CountDownLatch(0);
+        ChatEventPublisher publisher;
+        LiveSessionRegistry sessions;
+    }
+
+    private Node node(ObjectMapper mapper) {
+        Node node = new Node();
+        MessageChannel brokerChannel = (Message<?> message, long timeout) -> {
+            String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+            node.receivedAt.put(destination + "#" + new String((byte[]) message.getPayload()), System.nanoTime());
+            node.delivered.incrementAndGet();
+            node.latch.countDown();
+            return true;
+        };
+        InMemoryClusterRelay relay = new InMemoryClusterRelay();
+        relays.add(relay);
+        node.sessions = new LiveSessionRegistry(relay, mapper, new SimpleMeterRegistry());
+        node.sessions.start();
+        registries.add(node.sessions);
+        node.publisher = new ChatEventPublisher(new SimpMessagingTemplate(brokerChannel), mapper, relay, node.sessions);
+        node.publisher.listenToCluster();
+        return node;
+    }
+
+    private static void connect(Node node, String sessionId, String email, String role) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create();
+        headers.setSessionId(sessionId);
+        Message<byte[]> connected = MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders());
+        node.sessions.onConnected(new SessionConnectedEvent(node, connected, new StompPrincipal(email, role)));
+    }
+
+    private static void awaitOnline(Node node, String email) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!node.sessions.isOnline(email) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(node.sessions.isOnline(email), email + " never showed up as online");
+    }
+
+    @AfterEach
+    void closeRelays() {
+        registries.forEach(LiveSessionRegistry::stop);
+        relays.forEach(InMemoryClusterRelay::close);
+    }
+
+    @Test
+    void messagePublishedOnOneNodeReachesSubscribersOnTheOther() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        Node a = node(mapper);
+        Node b = node(mapper);
+        connect(b, "s1", "driver@example.com", "driver");
+        awaitOnline(a, "driver@example.com");
+
+        ChatMessage m = new ChatMessage();
+        m.setSenderEmail("hr@example.com");
+        m.setReceiverEmail("Driver@Example.com");
+        m.setContent("Pickup moved to gate 2");
+        m.setCreatedAt(LocalDateTime.of(2026, 1, 1, 9, 0));
+
+        b.latch = new CountDownLatch(1);
+        a.publisher.publishToLiveInbox(m);
+        assertTrue(b.latch.await(2, TimeUnit.SECONDS), "node B never received the frame");
+
+        assertEquals(1, a.delivered.get());
+        assertEquals(1, b.delivered.get());
+        assertTrue(b.receivedAt.keySet().iterator().next().startsWith("/user/driver@example.com/queue/inbox#"));
+    }
+
+    @Test
+    void directEventForOfflineUserIsNotPublished() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        Node a = node(mapper);
+        Node b = node(mapper);
+
+        ChatMessage m = new ChatMessage();
+        m.setSenderEmail("hr@example.com");
+        m.setReceiverEmail("nobody@example.com");
+        m.setContent("Are you there?");
+
+        b.latch = new CountDownLatch(1);
+        a.publisher.publishToLiveInbox(m);
+        assertFalse(b.latch.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(0, a.delivered.get());
+        assertEquals(0, b.delivered.get());
+    }
+
+    @Test
+    void crossNodeLatency() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        Node a = node(mapper);
+        Node b = node(mapper);
+        int n = 2000;
+
+        List<Long> sentAt = new ArrayList<>(n);
+        b.latch = new CountDownLatch(n);
+        for (int i = 0; i < n; i++) {
+            sentAt.add(System.nanoTime());
+            a.publisher.publish("/topic/trip." + i, java.util.Map.of("seq", i));
+        }
+        assertTrue(b.latch.await(10, TimeUnit.SECONDS), "node B missed frames");
+
+        List<Long> micros = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Long got = b.receivedAt.get("/topic/trip." + i + "#{\"seq\":" + i + "}");
+            micros.add((got - sentAt.get(i)) / 1_000);
+        }
+        Collections.sort(micros);
+        System.out.printf("[cluster-fanout] in-memory relay, %d frames: p50=%dus p99=%dus max=%dus%n",
+                n, micros.get(n / 2), micros.get((int) (n * 0.99)), micros.get(n - 1));
+        assertEquals(n, b.delivered.get());
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.rollbasedlogin.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.example.rollbasedlogin.util.Geo;
+
+/**
+ * Nearest-K available drivers over bench.drivers positions spread over a 60 x 60 km metro
+ * area, one cab type:
+ * - scan: haversine to every driver, keep the K closest (what a query without an index costs)
+ * - grid: DriverGrid.nearest (0.01° cells)
+ * Both answer the same random queries; the grid's answers must match the scan's.
+ * Reports p50/p99 per query in microseconds, after a warm-up pass.
+ *
+ * Not part of the normal build:
+ *   mvn test -Dtest=DriverGridBenchmark -Dbench.grid=true \
+ *       [-Dbench.drivers=50000] [-Dbench.queries=20000] [-Dbench.k=5] [-Dbench.radius-km=10]
+ */
+@EnabledIfSystemProperty(named = "bench.grid", matches = "true")
+class DriverGridBenchmark {
+
+    private static final double LAT0 = 12.80;
+    private static final double LON0 = 77.40;
+    private static final double SPAN_LAT = 60_000 / Geo.METERS_PER_DEGREE;
+    private static final double SPAN_LON = SPAN_LAT / Math.cos(Math.toRadians(LAT0));
+
+    private final int drivers = Integer.getInteger("bench.drivers", 50000);
+    private final int queries = Integer.getInteger("bench.queries", 20000);
+    private final int k = Integer.getInteger("bench.k", 5);
+    private final double maxMeters = Integer.getInteger("bench.radius-km", 10) * 1000.0;
+
+    @Test
+    void nearestKOverFiftyThousandDrivers() {
+        Random rnd = new Random(7);
+        List<DriverPool.Entry> all = new ArrayList<>(drivers);
+        DriverGrid grid = new DriverGrid(0.01);
+        for (int d = 0; d < drivers; d++) {
+            DriverPool.Entry e = new DriverPool.Entry("driver" + d + "@bench", "cab", 0,
+                    LAT0 + rnd.nextDouble() * SPAN_LAT, LON0 + rnd.nextDouble() * SPAN_LON);
+            all.add(e);
+            grid.put(e);
+        }
+        double[][] points = new double[queries][];
+        for (int q = 0; q < queries; q++) {
+            points[q] = new double[] {LAT0 + rnd.nextDouble() * SPAN_LAT, LON0 + rnd.nextDouble() * SPAN_LON};
+        }
+
+        // Warm up both paths so the timings below are not class loading and JIT
+        for (int q = 0; q < Math.min(queries, 2000); q++) {
+            grid.nearest(points[q][0], points[q][1], k, maxMeters);
+            if (q < 200) scan(all, points[q][0], points[q][1]);
+        }
+
+        int scanned = Math.min(queries, 1000); // a scan over 50k drivers is slow; sample it
+        List<Long> scanNanos = new ArrayList<>();
+        List<Long> gridNanos = new ArrayList<>();
+        for (int q = 0; q < queries; q++) {
+            long t0 = System.nanoTime();
+            List<DriverGrid.Neighbour> fromGrid = grid.nearest(points[q][0], points[q][1], k, maxMeters);
+            gridNanos.add(System.nanoTime() - t0);
+            if (q >= scanned) continue;
+            t0 = System.nanoTime();
+            List<DriverGrid.Neighbour> fromScan = scan(all, points[q][0], points[q][1]);
+            scanNanos.add(System.nanoTime() - t0);
+            assertEquals(emails(fromScan), emails(fromGrid), "grid and scan disagree for query " + q);
+        }
+
+        Collections.sort(scanNanos);
+        Collections.sort(gridNanos);
+        System.out.printf("[driver-grid] %d drivers, k=%d within %.0f km: scan p50=%dus p99=%dus (%d queries), "
+                        + "grid p50=%dus p99=%dus (%d queries)%n",
+                drivers, k, maxMeters / 1000, micros(scanNanos, 0.50), micros(scanNanos, 0.99), scanNanos.size(),
+                micros(gridNanos, 0.50), micros(gridNanos, 0.99), gridNanos.size());
+        assertTrue(micros(gridNanos, 0.50) < micros(scanNanos, 0.50), "the grid should beat a full scan");
+    }
+
+    private List<DriverGrid.Neighbour> scan(List<DriverPool.Entry> all, double lat, double lon) {
+        List<DriverGrid.Neighbour> within = new ArrayList<>();
+        for (DriverPool.Entry d : all) {
+            double meters = Geo.haversineMeters(lat, lon, d.lat(), d.lon());
+            if (meters <= maxMeters) within.add(new DriverGrid.Neighbour(d, meters));
+        }
+        within.sort((a, b) -> Double.compare(a.meters(), b.meters()));
+        return within.subList(0, Math.min(k, within.size()));
+    }
+
+    private static List<String> emails(List<DriverGrid.Neighbour> neighbours) {
+        return neighbours.stream().map(n -> n.driver().email()).toList();
+    }
+
+    private static long micros(List<Long> sorted, double q) {
+        if (sorted.isEmpty()) return 0;
+        return TimeUnit.NANOSECONDS.toMicros(sorted.get(Math.min(sorted.size() - 1, (int) (sorted.size() * q))));
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.rollbasedlogin.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.example.rollbasedlogin.model.Booking;
+import com.example.rollbasedlogin.model.Driver;
+import com.example.rollbasedlogin.model.OtpTrip;
+import com.example.rollbasedlogin.repository.BookingRepository;
+import com.example.rollbasedlogin.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Latency of the accept path after the claim, with Twilio stubbed to take bench.sms-ms per
+ * SMS and every database write bench.db-ms:
+ * - inline: OTP SMS, driver SMS, notification and chat message on the request thread (before)
+ * - outbox: TripEffectsService.enqueue, i.e. the OTP row and four outbox inserts in the
+ *   claim's transaction; OutboxDispatcher sends them afterwards
+ * Many drivers accept at once; the test reports p50/p99/max of the request-thread time.
+ * The claim itself is measured by TripAcceptanceBenchmark.
+ *
+ * Not part of the normal build:
+ *   mvn test -Dtest=TripAcceptLatencyBenchmark -Dbench.accept=true \
+ *       [-Dbench.accepts=1000] [-Dbench.clients=64] [-Dbench.sms-ms=200] [-Dbench.db-ms=2]
+ */
+@EnabledIfSystemProperty(named = "bench.accept", matches = "true")
+class TripAcceptLatencyBenchmark {
+
+    private final int accepts = Integer.getInteger("bench.accepts", 1000);
+    private final int clients = Integer.getInteger("bench.clients", 64);
+    private final long smsMs = Long.getLong("bench.sms-ms", 200);
+    private final long dbMs = Long.getLong("bench.db-ms", 2);
+
+    @Test
+    void inlineSideEffectsVersusOutbox() throws Exception {
+        long[] before = run("inline", this::inlineEffects);
+
+        AtomicLong rows = new AtomicLong();
+        // Plain fakes rather than Mockito mocks, whose per-call bookkeeping would dominate here
+        OutboxEventRepository outboxRepo = (OutboxEventRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {OutboxEventRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("insert")) throw new UnsupportedOperationException(method.getName());
+                    pause(dbMs);
+                    rows.incrementAndGet();
+                    return 1;
+                });
+        OtpService otpService = new OtpService() {
+            @Override
+            public OtpTrip issueOtp(Long bookingId, String employeeEmail, String employeeName, String driverEmail) {
+                try {
+                    pause(2 * dbMs); // otp_trip insert + its OTP_SMS outbox row
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                rows.incrementAndGet();
+                return null;
+            }
+        };
+        OutboxService outbox = new OutboxService(outboxRepo, mock(OutboxDispatcher.class, withSettings().stubOnly()), new ObjectMapper()
+                .findAndRegisterModules());
+        TripEffectsService effects = new TripEffectsService(otpService, outbox, outboxRepo,
+                mock(BookingRepository.class));
+        // Warm up serialization so the first concurrent accepts don't measure class loading
+        for (long id = 1; id <= 100; id++) effects.enqueue(booking(id), driver(id));
+        rows.set(0);
+        long[] after = run("outbox", effects::enqueue);
+
+        assertEquals(4L * accepts, rows.get(), "every accept should queue four effects");
+        System.out.printf("[trip-accept] p99 %d us -> %d us%n", before[1], after[1]);
+        assertTrue(after[1] < TimeUnit.MILLISECONDS.toMicros(smsMs),
+                "an accept that only writes outbox rows should not wait for an SMS round trip");
+    }
+
+    /** What acceptTrip did after the claim before the outbox: two SMS and two writes. */
+    private void inlineEffects(Booking booking, Driver driver) {
+        try {
+            pause(smsMs);   // OtpService.generateAndSendOtpToEmployeeOnly
+            pause(smsMs);   // TwilioService.sendTripAssignmentNotification
+            pause(dbMs);    // notificationRepo.save
+            pause(dbMs);    // chatIngestService.send
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Returns {p50, p99} in microseconds. */
+    private long[] run(String label, BiConsumer<Booking, Driver> accept) throws Exception {
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        AtomicLong next = new AtomicLong();
+        for (int c = 0; c < clients; c++) {
+            pool.submit(() -> {
+                start.await();
+                long id;
+                while ((id = next.incrementAndGet()) <= accepts) {
+                    Booking booking = booking(id);
+                    Driver driver = driver(id);
+                    long t0 = System.nanoTime();
+                    accept.accept(booking, driver);
+                    latencies.add(System.nanoTime() - t0);
+                }
+                return null;
+            });
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        long p50 = micros(sorted, 0.50);
+        long p99 = micros(sorted, 0.99);
+        System.out.printf("[trip-accept] %s: %d accepts from %d clients in %d ms (sms %d ms, db %d ms), "
+                        + "p50=%dus p99=%dus max=%dus%n",
+                label, sorted.size(), clients, millis, smsMs, dbMs, p50, p99, micros(sorted, 1.0));
+        return new long[] {p50, p99};
+    }
+
+    private static void pause(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    private static String driverEmail(long id) {
+        return "driver" + id + "@bench";
+    }
+
+    private static Booking booking(long id) {
+        Booking b = new Booking();
+        b.setId(id);
+        b.setEmployeeName("Employee " + id);
+        b.setEmployeeEmail("employee" + id + "@bench");
+        b.setHrEmail("hr@bench");
+        b.setPickup("Gate 1");
+        b.setDropLocation("Campus");
+        b.setPickupTime(LocalTime.of(9, 0));
+        b.setStatus("ASSIGNED");
+        b.setDriverEmail(driverEmail(id));
+        return b;
+    }
+
+    private static Driver driver(long id) {
+        Driver d = new Driver();
+        d.setEmail(driverEmail(id));
+        d.setName("Driver " + id);
+        d.setPhoneNumber("+15550200");
+        return d;
+    }
+
+    private static long micros(List<Long> sorted, double q) {
+        if (sorted.isEmpty()) return 0;
+        return TimeUnit.NANOSECONDS.toMicros(sorted.get(Math.min(sorted.size() - 1, (int) (sorted.size() * q))));
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.rollbasedlogin.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Hundreds of simulated drivers racing for the same bookings in a scratch Postgres database.
+ *
+ * Each driver keeps picking a random open booking until it holds one or none are left.
+ * Two acceptance paths run on copies of the booking/driver columns:
+ * - read-check-write (what acceptTrip did before): select the status, then update
+ * - conditional claim (TripAcceptanceService): the SQL of DriverRepository.claim and
+ *   BookingRepository.claim in one transaction, rolled back when the booking was lost
+ * The first can hand one booking to several drivers; the second must produce exactly one
+ * winner per booking, which the test asserts.
+ *
+ * Not part of the normal build (needs a database):
+ *   mvn test -Dtest=TripAcceptanceBenchmark -Dbench.jdbc.url=jdbc:postgresql://localhost:5432/bench \
+ *       -Dbench.jdbc.user=postgres -Dbench.jdbc.password=... \
+ *       [-Dbench.drivers=400] [-Dbench.bookings=100] [-Dbench.connections=32]
+ */
+@EnabledIfSystemProperty(named = "bench.jdbc.url", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TripAcceptanceBenchmark {
+
+    private static final String BOOKINGS = "accept_bench_booking";
+    private static final String DRIVERS = "accept_bench_driver";
+
+    private final int drivers = Integer.getInteger("bench.drivers", 400);
+    private final int bookings = Integer.getInteger("bench.bookings", 100);
+
+    private HikariDataSource ds;
+    private JdbcTemplate jdbc;
+
+    @BeforeAll
+    void connect() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(System.getProperty("bench.jdbc.url"));
+        config.setUsername(System.getProperty("bench.jdbc.user", "postgres"));
+        config.setPassword(System.getProperty("bench.jdbc.password", ""));
+        config.setMaximumPoolSize(Integer.getInteger("bench.connections", 32));
+        ds = new HikariDataSource(config);
+        jdbc = new JdbcTemplate(ds);
+    }
+
+    @AfterAll
+    void close() {
+        dropTables();
+        ds.close();
+    }
+
+    private void dropTables() {
+        jdbc.execute("drop table if exists " + BOOKINGS);
+        jdbc.execute("drop table if exists " + DRIVERS);
+    }
+
+    private void reset() {
+        dropTables();
+        jdbc.execute("create table " + BOOKINGS + " (id bigint primary key, status varchar(255), " +
+                "driver_email varchar(255), version bigint not null default 0)");
+        jdbc.execute("create table " + DRIVERS + " (email varchar(255) primary key, available boolean not null, " +
+                "version bigint not null default 0)");
+        jdbc.update("insert into " + BOOKINGS + " (id, status) select g, 'REQUESTED' from generate_series(1, ?) g",
+                bookings);
+        jdbc.update("insert into " + DRIVERS + " (email, available) " +
+                "select 'driver' || g || '@bench', true from generate_series(1, ?) g", drivers);
+    }
+
+    @Test
+    void driversRacingForBookings() throws Exception {
+        Result before = race("read-check-write ", this::readCheckWrite);
+        Result after = race("conditional claim", this::conditionalClaim);
+
+        System.out.printf("[trip-accept] read-check-write handed out %d bookings more than once%n",
+                before.doubleAssigned());
+        assertEquals(0, after.doubleAssigned(), "a booking was accepted by more than one driver");
+        assertEquals(Math.min(bookings, drivers), after.winners(), "every booking should find exactly one driver");
+        Integer assigned = jdbc.queryForObject(
+                "select count(*) from " + BOOKINGS + " where status = 'ASSIGNED'", Integer.class);
+        assertEquals(after.winners(), assigned);
+    }
+
+    private interface Attempt {
+        /** true when this driver got the booking */
+        boolean accept(Connection c, long bookingId, String driver) throws SQLException;
+    }
+
+    private record Result(int winners, int doubleAssigned) {
+    }
+
+    private Result race(String label, Attempt attempt) throws Exception {
+        reset();
+        Map<Long, AtomicInteger> winnersPerBooking = new ConcurrentHashMap<>();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(drivers);
+
+        for (int d = 1; d <= drivers; d++) {
+            String driver = "driver" + d + "@bench";
+            pool.submit(() -> {
+                start.await();
+                // Each driver keeps trying random bookings until it wins one or none look open
+                for (int tries = 0; tries < bookings * 4; tries++) {
+                    long bookingId = ThreadLocalRandom.current().nextLong(1, bookings + 1);
+                    long t0 = System.nanoTime();
+                    boolean won;
+                    try (Connection c = ds.getConnection()) {
+                        c.setAutoCommit(false);
+                        won = attempt.accept(c, bookingId, driver);
+                    }
+                    latencies.add(System.nanoTime() - t0);
+                    if (won) {
+                        winnersPerBooking.computeIfAbsent(bookingId, k -> new AtomicInteger()).incrementAndGet();
+                        return null;
+                    }
+                    conflicts.incrementAndGet();
+                    if (openBookings() == 0) return null;
+                }
+                return null;
+            });
+        }
+
+        long t0 = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+
+        int winners = winnersPerBooking.values().stream().mapToInt(AtomicInteger::get).sum();
+        int doubles = (int) winnersPerBooking.values().stream().filter(n -> n.get() > 1).count();
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        System.out.printf("[trip-accept] %s: %d drivers, %d bookings, %d attempts in %d ms, %d refused (409), "
+                        + "%d wins, %d bookings with >1 winner, p50=%dus p99=%dus%n",
+                label, drivers, bookings, sorted.size(), millis, conflicts.get(), winners, doubles,
+                micros(sorted, 0.50), micros(sorted, 0.99));
+        return new Result(winners, doubles);
+    }
+
+    private int openBookings() {
+        Integer n = jdbc.queryForObject("select count(*) from " + BOOKINGS + " where status = 'REQUESTED'",
+                Integer.class);
+        return n == null ? 0 : n;
+    }
+
+    /** The old acceptTrip: read the status, and if it still looks REQUESTED, write the assignment. */
+    private boolean readCheckWrite(Connection c, long bookingId, String driver) throws SQLException {
+        try (PreparedStatement read = c.prepareStatement("select status from " + BOOKINGS + " where id = ?")) {
+            read.setLong(1, bookingId);
+            try (ResultSet rs = read.executeQuery()) {
+                if (!rs.next() || !"REQUESTED".equals(rs.getString(1))) {
+                    c.rollback();
+                    return false;
+                }
+            }
+        }
+        try (PreparedStatement write = c.prepareStatement(
+                "update " + BOOKINGS + " set driver_email = ?, status = 'ASSIGNED' where id = ?")) {
+            write.setString(1, driver);
+            write.setLong(2, bookingId);
+            write.executeUpdate();
+        }
+        c.commit();
+        return true;
+    }
+
+    /** TripAcceptanceService: driver claim, then booking claim, rolled back if either matched nothing. */
+    private boolean conditionalClaim(Connection c, long bookingId, String driver) throws SQLException {
+        try (PreparedStatement claimDriver = c.prepareStatement("update " + DRIVERS +
+                " set available = false, version = version + 1 where email = ? and available = true");
+             PreparedStatement claimBooking = c.prepareStatement("update " + BOOKINGS +
+                " set driver_email = ?, status = 'ASSIGNED', version = version + 1 " +
+                "where id = ? and status = 'REQUESTED'")) {
+            claimDriver.setString(1, driver);
+            if (claimDriver.executeUpdate() == 0) {
+                c.rollback();
+                return false;
+            }
+            claimBooking.setString(1, driver);
+            claimBooking.setLong(2, bookingId);
+            if (claimBooking.executeUpdate() == 0) {
+                c.rollback();
+                return false;
+            }
+            c.commit();
+            return true;
+        }
+    }
+
+    private static long micros(List<Long> sorted, double q) {
+        if (sorted.isEmpty()) return 0;
+        return TimeUnit.NANOSECONDS.toMicros(sorted.get(Math.min(sorted.size() - 1, (int) (sorted.size() * q))));
+    }
+}